@@ -0,0 +1,40 @@
+package com.example.excel2pdf.bench;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * The fonts a benchmark converts with. The application's own fonts are not part of the sources; when they have been
+ * added to {@code src/main/resources/fonts} the benchmarks use them as the application would, otherwise they fall back
+ * to the Liberation Sans bundled with PDFBox, which has no CJK glyphs.
+ */
+public final class BenchmarkFonts {
+
+    private static final String FALLBACK = "org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    private BenchmarkFonts() {
+    }
+
+    /**
+     * Properties with the application defaults and whichever fonts are available.
+     */
+    public static ConverterProperties properties() {
+        ConverterProperties properties = new ConverterProperties();
+        ConverterProperties.Fonts fonts = properties.getFonts();
+        if (!fonts.getFamilies().get(fonts.getDefaultFamily()).getRegular().exists()) {
+            fonts.getFamilies().clear();
+            fonts.getFamilies().put("Liberation Sans", new ConverterProperties.FontFamily(new ClassPathResource(FALLBACK), null));
+            fonts.setDefaultFamily("Liberation Sans");
+        }
+        return properties;
+    }
+
+    /**
+     * @throws IllegalStateException when CJK text is asked for without a font that can draw it
+     */
+    public static void requireCjk(ConverterProperties properties, SyntheticWorkbooks.Shape shape) {
+        if (shape == SyntheticWorkbooks.Shape.CJK && properties.getFonts().getDefaultFamily().equals("Liberation Sans")) {
+            throw new IllegalStateException("The CJK workbook needs a CJK font: add NanumGothic.ttf to src/main/resources/fonts");
+        }
+    }
+}
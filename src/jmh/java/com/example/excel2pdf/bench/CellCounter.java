@@ -0,0 +1,23 @@
+package com.example.excel2pdf.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the cells a benchmark got through as a secondary {@code cells} result, in cells per second when the
+ * benchmark runs in throughput mode.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class CellCounter {
+
+    public long cells;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        cells = 0;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.excel2pdf.bench;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Workbooks shaped like the ones the converter sees in production, generated with fixed content so runs compare.
+ * Every shape fills a single sheet of {@code rows} &times; {@value #COLUMNS} cells with thin borders; the shapes differ in
+ * what else the cells carry. Only standard APIs are used, so each shape comes out the same as .xlsx and .xls.
+ */
+public final class SyntheticWorkbooks {
+
+    public static final int COLUMNS = 12;
+
+    private static final String[] CJK_TEXT = {
+            "매출 합계", "전년 대비 증감률", "거래처명", "서울특별시 강남구 테헤란로 152",
+            "売上高の推移", "株式会社サンプル", "营业收入", "第三季度财务报告摘要"
+    };
+
+    public enum Shape {
+
+        /**
+         * A label column and numbers, the plain report most uploads are.
+         */
+        GRID,
+
+        /**
+         * The grid with a 2&times;3 merged region every third row and fourth column.
+         */
+        MERGES,
+
+        /**
+         * Every cell in one of 300 distinct styles: fonts, fills, borders and alignments.
+         */
+        STYLES,
+
+        /**
+         * Numbers in the first two columns, formulas chaining across the rest and down the sheet.
+         */
+        FORMULAS,
+
+        /**
+         * Korean, Japanese and Chinese text, wrapped in every other column.
+         */
+        CJK
+    }
+
+    public enum Format {
+
+        XLSX(".xlsx"),
+
+        XLS(".xls");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private SyntheticWorkbooks() {
+    }
+
+    public static long cellCount(int rows) {
+        return (long) rows * COLUMNS;
+    }
+
+    /**
+     * Writes the workbook to a new file in {@code directory}.
+     */
+    public static File write(Shape shape, Format format, int rows, Path directory) throws IOException {
+        File file = Files.createTempFile(directory, shape.name().toLowerCase(Locale.ROOT) + "-", format.extension()).toFile();
+        try (Workbook workbook = create(shape, format, rows); OutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        return file;
+    }
+
+    public static Workbook create(Shape shape, Format format, int rows) {
+        Workbook workbook = format == Format.XLSX ? new XSSFWorkbook() : new HSSFWorkbook();
+        Sheet sheet = workbook.createSheet(shape.name());
+        for (int column = 0; column < COLUMNS; column++) {
+            sheet.setColumnWidth(column, (column == 0 ? 18 : 11) * 256);
+        }
+        CellStyle[] styles = shape == Shape.STYLES ? distinctStyles(workbook, 300) : new CellStyle[]{bordered(workbook, false), bordered(workbook, true)};
+
+        for (int rowIndex = 0; rowIndex < rows; rowIndex++) {
+            Row row = sheet.createRow(rowIndex);
+            for (int column = 0; column < COLUMNS; column++) {
+                Cell cell = row.createCell(column);
+                switch (shape) {
+                    case FORMULAS -> fillFormula(cell, rowIndex, column);
+                    case CJK -> cell.setCellValue(CJK_TEXT[(rowIndex + column) % CJK_TEXT.length]);
+                    default -> fillValue(cell, rowIndex, column);
+                }
+                cell.setCellStyle(shape == Shape.STYLES ? styles[(rowIndex * COLUMNS + column) % styles.length]
+                        : styles[shape == Shape.CJK && column % 2 == 1 ? 1 : 0]);
+            }
+        }
+
+        if (shape == Shape.MERGES) {
+            for (int rowIndex = 0; rowIndex + 1 < rows; rowIndex += 3) {
+                for (int column = 0; column + 2 < COLUMNS; column += 4) {
+                    sheet.addMergedRegion(new CellRangeAddress(rowIndex, rowIndex + 1, column, column + 2));
+                }
+            }
+        }
+        return workbook;
+    }
+
+    private static void fillValue(Cell cell, int rowIndex, int column) {
+        if (column == 0) {
+            cell.setCellValue("Item " + rowIndex);
+        } else {
+            cell.setCellValue(rowIndex * 31.5 + column);
+        }
+    }
+
+    private static void fillFormula(Cell cell, int rowIndex, int column) {
+        if (column < 2) {
+            cell.setCellValue(rowIndex + column + 1);
+            return;
+        }
+        String left = CellReference.convertNumToColString(column - 1) + (rowIndex + 1);
+        String twoLeft = CellReference.convertNumToColString(column - 2) + (rowIndex + 1);
+        if (rowIndex == 0) {
+            cell.setCellFormula(left + "+" + twoLeft);
+        } else {
+            String above = CellReference.convertNumToColString(column) + rowIndex;
+            cell.setCellFormula(column % 4 == 0 ? "SUM(" + twoLeft + ":" + left + ")" : "ROUND(" + left + "*1.1+" + above + "/100,2)");
+        }
+    }
+
+    private static CellStyle bordered(Workbook workbook, boolean wrapText) {
+        CellStyle style = workbook.createCellStyle();
+        style.setBorderTop(BorderStyle.THIN);
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setBorderRight(BorderStyle.THIN);
+        style.setWrapText(wrapText);
+        return style;
+    }
+
+    private static CellStyle[] distinctStyles(Workbook workbook, int count) {
+        IndexedColors[] colors = {IndexedColors.LIGHT_YELLOW, IndexedColors.LIGHT_GREEN, IndexedColors.PALE_BLUE,
+                IndexedColors.ROSE, IndexedColors.GREY_25_PERCENT, IndexedColors.LEMON_CHIFFON};
+        BorderStyle[] borders = {BorderStyle.THIN, BorderStyle.MEDIUM, BorderStyle.DASHED, BorderStyle.THICK, BorderStyle.NONE};
+        CellStyle[] styles = new CellStyle[count];
+        for (int i = 0; i < count; i++) {
+            Font font = workbook.createFont();
+            font.setFontHeightInPoints((short) (8 + i % 7));
+            font.setBold(i % 3 == 0);
+            font.setItalic(i % 5 == 0);
+            font.setUnderline(i % 11 == 0 ? Font.U_SINGLE : Font.U_NONE);
+            font.setColor(IndexedColors.values()[8 + i % 40].getIndex());
+
+            CellStyle style = workbook.createCellStyle();
+            style.setFont(font);
+            style.setAlignment(HorizontalAlignment.values()[1 + i % 3]);
+            style.setVerticalAlignment(VerticalAlignment.values()[i % 3]);
+            style.setFillForegroundColor(colors[i % colors.length].getIndex());
+            style.setFillPattern(i % 2 == 0 ? FillPatternType.SOLID_FOREGROUND : FillPatternType.NO_FILL);
+            style.setBorderTop(borders[i % borders.length]);
+            style.setBorderBottom(borders[(i + 1) % borders.length]);
+            style.setBorderLeft(borders[(i + 2) % borders.length]);
+            style.setBorderRight(borders[(i + 3) % borders.length]);
+            styles[i] = style;
+        }
+        return styles;
+    }
+}
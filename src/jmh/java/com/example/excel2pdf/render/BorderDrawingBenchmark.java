@@ -0,0 +1,93 @@
+package com.example.excel2pdf.render;
+
+import com.example.excel2pdf.bench.CellCounter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borders of one full page: recording every cell's edges on a {@link BorderGrid} and stroking the coalesced runs into
+ * a content stream. {@code UNIFORM} is a thin grid, the common case; {@code MIXED} cycles through five border styles
+ * per side, so few runs coalesce.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BorderDrawingBenchmark {
+
+    private static final int ROWS = 50;
+    private static final int COLUMNS = 12;
+    private static final float ROW_HEIGHT = 15;
+    private static final float COLUMN_WIDTH = 45;
+
+    @Param({"UNIFORM", "MIXED"})
+    private String borders;
+
+    private RenderStyle[] styles;
+    private BorderGrid grid;
+    private PDDocument pdfDocument;
+
+    @Setup(Level.Trial)
+    public void createStyles() {
+        BorderStyle[] sides = borders.equals("UNIFORM")
+                ? new BorderStyle[]{BorderStyle.THIN}
+                : new BorderStyle[]{BorderStyle.THIN, BorderStyle.MEDIUM, BorderStyle.DASHED, BorderStyle.THICK, BorderStyle.NONE};
+        styles = new RenderStyle[sides.length];
+        for (int i = 0; i < sides.length; i++) {
+            styles[i] = new RenderStyle(null, 11, false, false, null, Color.BLACK, HorizontalAlignment.LEFT, VerticalAlignment.BOTTOM,
+                    false, false, sides[i], sides[(i + 1) % sides.length], sides[(i + 2) % sides.length], sides[(i + 3) % sides.length]);
+        }
+        grid = new BorderGrid();
+    }
+
+    @Setup(Level.Iteration)
+    public void createDocument() {
+        pdfDocument = new PDDocument();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeDocument() throws IOException {
+        pdfDocument.close();
+    }
+
+    @Benchmark
+    public void drawPage(CellCounter counter) throws IOException {
+        float top = PDRectangle.A4.getHeight() - 20;
+        for (int row = 0; row <= ROWS; row++) {
+            grid.setRowBoundary(row, top - row * ROW_HEIGHT);
+        }
+        for (int column = 0; column <= COLUMNS; column++) {
+            grid.setColumnBoundary(column, 20 + column * COLUMN_WIDTH);
+        }
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                grid.addCell(row, column, styles[(row * COLUMNS + column) % styles.length]);
+            }
+        }
+
+        PDPage page = new PDPage(PDRectangle.A4);
+        pdfDocument.addPage(page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(pdfDocument, page)) {
+            grid.stroke(contentStream);
+        }
+        counter.cells += ROWS * COLUMNS;
+    }
+}
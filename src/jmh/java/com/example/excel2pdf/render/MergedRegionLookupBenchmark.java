@@ -0,0 +1,109 @@
+package com.example.excel2pdf.render;
+
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merged-region lookups on a sheet of 2&times;2 merges tiled every few cells: the per-cell {@code CellAddress} map and
+ * linear {@code isCellInMergedRange} scan the converter used to build for every sheet, against
+ * {@link MergedRegionIndex}. Lookups touch every cell of a 200-row window, as rendering a page does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MergedRegionLookupBenchmark {
+
+    private static final int COLUMNS = 30;
+    private static final int LOOKUP_ROWS = 200;
+
+    @Param({"1000", "5000"})
+    private int regionCount;
+
+    private List<CellRangeAddress> regions;
+    private Map<CellAddress, CellRangeAddress> mergedCellsMap;
+    private MergedRegionIndex index;
+
+    @Setup(Level.Trial)
+    public void createRegions() {
+        regions = new ArrayList<>();
+        int perRow = COLUMNS / 3;
+        for (int i = 0; i < regionCount; i++) {
+            int row = (i / perRow) * 3;
+            int column = (i % perRow) * 3;
+            regions.add(new CellRangeAddress(row, row + 1, column, column + 1));
+        }
+        mergedCellsMap = legacyMap(regions);
+        index = MergedRegionIndex.of(regions);
+    }
+
+    @Benchmark
+    public Object buildLegacyMap() {
+        return legacyMap(regions);
+    }
+
+    @Benchmark
+    public Object buildIndex() {
+        return MergedRegionIndex.of(regions);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUP_ROWS * COLUMNS)
+    public void lookupLegacyMap(Blackhole blackhole) {
+        for (int row = 0; row < LOOKUP_ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                CellAddress address = new CellAddress(row, column);
+                blackhole.consume(mergedCellsMap.get(address));
+                blackhole.consume(isCellInMergedRange(row, column));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUP_ROWS * COLUMNS)
+    public void lookupIndex(Blackhole blackhole) {
+        for (int row = 0; row < LOOKUP_ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                blackhole.consume(index.find(row, column));
+                blackhole.consume(index.isMerged(row, column));
+            }
+        }
+    }
+
+    private static Map<CellAddress, CellRangeAddress> legacyMap(List<CellRangeAddress> regions) {
+        Map<CellAddress, CellRangeAddress> mergedCellsMap = new HashMap<>();
+        for (CellRangeAddress cellRange : regions) {
+            for (int row = cellRange.getFirstRow(); row <= cellRange.getLastRow(); row++) {
+                for (int col = cellRange.getFirstColumn(); col <= cellRange.getLastColumn(); col++) {
+                    mergedCellsMap.put(new CellAddress(row, col), cellRange);
+                }
+            }
+        }
+        return mergedCellsMap;
+    }
+
+    private boolean isCellInMergedRange(int row, int column) {
+        for (Map.Entry<CellAddress, CellRangeAddress> entry : mergedCellsMap.entrySet()) {
+            if (entry.getValue().isInRange(row, column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
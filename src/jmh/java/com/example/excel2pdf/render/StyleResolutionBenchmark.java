@@ -0,0 +1,142 @@
+package com.example.excel2pdf.render;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-cell cost of turning a {@code CellStyle} into what the renderer draws with: the lookups the converter used to
+ * repeat for every cell, against one {@link StyleCache} read. Run with {@code gradle jmh -PjmhIncludes=StyleResolution}
+ * and add {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StyleResolutionBenchmark {
+
+    private static final int ROWS = 500;
+    private static final int COLUMNS = 20;
+    private static final int STYLES = 200;
+
+    private Workbook workbook;
+    private Cell[] cells;
+    private StyleCache styleCache;
+
+    @Setup(Level.Trial)
+    public void createWorkbook() {
+        XSSFWorkbook xssfWorkbook = new XSSFWorkbook();
+        CellStyle[] styles = new CellStyle[STYLES];
+        for (int i = 0; i < STYLES; i++) {
+            XSSFFont font = xssfWorkbook.createFont();
+            font.setBold(i % 3 == 0);
+            font.setUnderline(i % 7 == 0 ? Font.U_SINGLE : Font.U_NONE);
+            font.setColor(new XSSFColor(new byte[]{(byte) i, 0, (byte) (255 - i)}, null));
+
+            XSSFCellStyle style = xssfWorkbook.createCellStyle();
+            style.setFont(font);
+            style.setAlignment(HorizontalAlignment.values()[i % 4]);
+            style.setFillForegroundColor(new XSSFColor(new byte[]{(byte) 200, (byte) i, 40}, null));
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            styles[i] = style;
+        }
+
+        Sheet sheet = xssfWorkbook.createSheet();
+        cells = new Cell[ROWS * COLUMNS];
+        for (int r = 0; r < ROWS; r++) {
+            Row row = sheet.createRow(r);
+            for (int c = 0; c < COLUMNS; c++) {
+                Cell cell = row.createCell(c);
+                cell.setCellStyle(styles[(r * COLUMNS + c) % STYLES]);
+                cells[r * COLUMNS + c] = cell;
+            }
+        }
+        workbook = xssfWorkbook;
+    }
+
+    @Setup(Level.Iteration)
+    public void createCache() {
+        // Fonts are not bundled with the sources; resolving the PDF font is a map lookup either way
+        styleCache = new StyleCache(workbook, workbook::getCellStyleAt, (name, bold) -> null);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeWorkbook() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS * COLUMNS)
+    public void perCellLookups(Blackhole blackhole) {
+        for (Cell cell : cells) {
+            CellStyle cellStyle = cell.getCellStyle();
+            Font cellFont = workbook.getFontAt(cellStyle.getFontIndex());
+            blackhole.consume(cellFont.getFontHeightInPoints());
+            blackhole.consume(cellFont.getBold());
+            blackhole.consume(backgroundColor(cellStyle));
+            blackhole.consume(fontColor(cellStyle));
+            blackhole.consume(workbook.getFontAt(cellStyle.getFontIndex()).getUnderline() != Font.U_NONE);
+            blackhole.consume(cellStyle.getAlignment());
+            blackhole.consume(cellStyle.getVerticalAlignment());
+            blackhole.consume(cellStyle.getBorderTop());
+            blackhole.consume(cellStyle.getBorderBottom());
+            blackhole.consume(cellStyle.getBorderLeft());
+            blackhole.consume(cellStyle.getBorderRight());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS * COLUMNS)
+    public void styleCache(Blackhole blackhole) throws IOException {
+        for (Cell cell : cells) {
+            blackhole.consume(styleCache.get(cell.getCellStyle()));
+        }
+    }
+
+    private static Color backgroundColor(CellStyle cellStyle) {
+        if (cellStyle.getFillPattern() == FillPatternType.SOLID_FOREGROUND) {
+            XSSFColor color = (XSSFColor) cellStyle.getFillForegroundColorColor();
+            if (color != null) {
+                byte[] rgb = color.getRGB();
+                if (rgb != null) {
+                    return new Color((rgb[0] & 0xFF), (rgb[1] & 0xFF), (rgb[2] & 0xFF));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Color fontColor(CellStyle cellStyle) {
+        XSSFColor xssfColor = ((XSSFCellStyle) cellStyle).getFont().getXSSFColor();
+        if (xssfColor != null) {
+            byte[] rgb = xssfColor.getRGB();
+            if (rgb != null) {
+                return new Color((rgb[0] & 0xFF), (rgb[1] & 0xFF), (rgb[2] & 0xFF));
+            }
+        }
+        return Color.BLACK;
+    }
+}
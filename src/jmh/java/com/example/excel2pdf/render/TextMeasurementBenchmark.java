@@ -0,0 +1,107 @@
+package com.example.excel2pdf.render;
+
+import com.example.excel2pdf.bench.BenchmarkFonts;
+import com.example.excel2pdf.bench.SyntheticWorkbooks;
+import com.example.excel2pdf.config.ConverterProperties;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Width of one cell's text, over the texts of a synthetic sheet: PDFBox's {@code getStringWidth}, which the converter
+ * used to call for every cell, against {@link TextMeasurer}'s advance tables, both cold (a new measurer per pass, as
+ * every conversion starts) and warm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TextMeasurementBenchmark {
+
+    private static final int TEXTS = 10_000;
+
+    @Param({"GRID", "CJK"})
+    private SyntheticWorkbooks.Shape shape;
+
+    private FontRegistry fontRegistry;
+    private PDDocument pdfDocument;
+    private PDType0Font font;
+    private String[] texts;
+    private TextMeasurer warmMeasurer;
+
+    @Setup(Level.Trial)
+    public void collectTexts() throws IOException {
+        ConverterProperties properties = BenchmarkFonts.properties();
+        BenchmarkFonts.requireCjk(properties, shape);
+        fontRegistry = new FontRegistry(properties);
+        fontRegistry.load();
+        pdfDocument = new PDDocument();
+        font = fontRegistry.forDocument(pdfDocument).get(properties.getFonts().getDefaultFamily(), false);
+
+        List<String> sheetTexts = new ArrayList<>();
+        DataFormatter formatter = new DataFormatter();
+        try (Workbook workbook = SyntheticWorkbooks.create(shape, SyntheticWorkbooks.Format.XLSX, TEXTS / SyntheticWorkbooks.COLUMNS + 1)) {
+            for (Row row : workbook.getSheetAt(0)) {
+                for (Cell cell : row) {
+                    sheetTexts.add(formatter.formatCellValue(cell));
+                }
+            }
+        }
+        texts = sheetTexts.subList(0, TEXTS).toArray(String[]::new);
+
+        warmMeasurer = new TextMeasurer();
+        for (String text : texts) {
+            warmMeasurer.width(font, 11, text);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDocument() throws IOException {
+        pdfDocument.close();
+        fontRegistry.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS)
+    public void pdfBox(Blackhole blackhole) throws IOException {
+        for (String text : texts) {
+            blackhole.consume(font.getStringWidth(text) / 1000 * 11);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS)
+    public void coldMeasurer(Blackhole blackhole) throws IOException {
+        TextMeasurer measurer = new TextMeasurer();
+        for (String text : texts) {
+            blackhole.consume(measurer.width(font, 11, text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS)
+    public void warmMeasurer(Blackhole blackhole) throws IOException {
+        for (String text : texts) {
+            blackhole.consume(warmMeasurer.width(font, 11, text));
+        }
+    }
+}
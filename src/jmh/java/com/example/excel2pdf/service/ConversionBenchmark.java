@@ -0,0 +1,82 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.bench.BenchmarkFonts;
+import com.example.excel2pdf.bench.CellCounter;
+import com.example.excel2pdf.bench.SyntheticWorkbooks;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.render.FontRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole conversions, file in and PDF bytes out, for every synthetic workbook shape in both formats. The primary
+ * result is conversions per second; {@code cells} is the same in cells per second, which compares across shapes. Run
+ * with {@code gradle jmh -PjmhIncludes=ConversionBenchmark}; the build adds the GC profiler, so the allocation rate
+ * ({@code gc.alloc.rate.norm}) is reported per conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConversionBenchmark {
+
+    @Param({"GRID", "MERGES", "STYLES", "FORMULAS", "CJK"})
+    private SyntheticWorkbooks.Shape shape;
+
+    @Param({"XLSX", "XLS"})
+    private SyntheticWorkbooks.Format format;
+
+    @Param({"2000"})
+    private int rows;
+
+    private Path directory;
+    private File workbook;
+    private FontRegistry fontRegistry;
+    private ConversionExecutor conversionExecutor;
+    private ExcelToPDFConverterService converter;
+    private ConversionOptions options;
+
+    @Setup(Level.Trial)
+    public void createWorkbook() throws IOException {
+        ConverterProperties properties = BenchmarkFonts.properties();
+        BenchmarkFonts.requireCjk(properties, shape);
+        directory = Files.createTempDirectory("excel2pdf-bench-");
+        workbook = SyntheticWorkbooks.write(shape, format, rows, directory);
+
+        fontRegistry = new FontRegistry(properties);
+        fontRegistry.load();
+        conversionExecutor = new ConversionExecutor(properties);
+        converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor, ConversionMetrics.disabled(), new ConversionAdmission(properties));
+        options = ConversionOptions.defaults(properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkbook() throws IOException {
+        conversionExecutor.destroy();
+        fontRegistry.close();
+        Files.deleteIfExists(workbook.toPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void convert(CellCounter counter) throws IOException {
+        converter.convertExcelToPDF(workbook, OutputStream.nullOutputStream(), options);
+        counter.cells += SyntheticWorkbooks.cellCount(rows);
+    }
+}
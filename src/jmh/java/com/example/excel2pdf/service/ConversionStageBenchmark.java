@@ -0,0 +1,141 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.bench.BenchmarkFonts;
+import com.example.excel2pdf.bench.CellCounter;
+import com.example.excel2pdf.bench.SyntheticWorkbooks;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.render.FontRegistry;
+import com.example.excel2pdf.render.RenderContext;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stages of a conversion on their own, so a regression in {@link ConversionBenchmark} can be traced to one of
+ * them: opening the workbook, resolving every cell's style with a cold cache, rendering the opened workbook, and
+ * {@code PDDocument.save} of a rendered one, which includes subsetting the fonts. Text measurement and border drawing
+ * have benchmarks of their own in the render package.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConversionStageBenchmark {
+
+    @Param({"GRID", "STYLES", "CJK"})
+    private SyntheticWorkbooks.Shape shape;
+
+    @Param({"XLSX", "XLS"})
+    private SyntheticWorkbooks.Format format;
+
+    @Param({"2000"})
+    private int rows;
+
+    private Path directory;
+    private File workbookFile;
+    private FontRegistry fontRegistry;
+    private ConversionExecutor conversionExecutor;
+    private ExcelToPDFConverterService converter;
+    private ConversionOptions options;
+    private OpenedWorkbook opened;
+
+    @Setup(Level.Trial)
+    public void openWorkbook() throws IOException {
+        ConverterProperties properties = BenchmarkFonts.properties();
+        BenchmarkFonts.requireCjk(properties, shape);
+        directory = Files.createTempDirectory("excel2pdf-bench-");
+        workbookFile = SyntheticWorkbooks.write(shape, format, rows, directory);
+
+        fontRegistry = new FontRegistry(properties);
+        fontRegistry.load();
+        conversionExecutor = new ConversionExecutor(properties);
+        converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor, ConversionMetrics.disabled(), new ConversionAdmission(properties));
+        options = ConversionOptions.defaults(properties);
+        opened = converter.open(workbookFile, options);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeWorkbook() throws IOException {
+        opened.close();
+        conversionExecutor.destroy();
+        fontRegistry.close();
+        Files.deleteIfExists(workbookFile.toPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void open(CellCounter counter, Blackhole blackhole) throws IOException {
+        try (OpenedWorkbook workbook = converter.open(workbookFile, options)) {
+            blackhole.consume(workbook);
+            counter.cells += SyntheticWorkbooks.cellCount(rows);
+        }
+    }
+
+    @Benchmark
+    public void resolveStyles(CellCounter counter, Blackhole blackhole) throws IOException {
+        Workbook workbook = opened.getWorkbook().getWorkbook();
+        try (PDDocument pdfDocument = new PDDocument()) {
+            RenderContext context = new RenderContext(pdfDocument, fontRegistry, workbook, workbook::getCellStyleAt, options.formulaMode());
+            for (Row row : workbook.getSheetAt(0)) {
+                for (Cell cell : row) {
+                    blackhole.consume(context.getStyle(cell.getCellStyle()));
+                }
+            }
+        }
+        counter.cells += SyntheticWorkbooks.cellCount(rows);
+    }
+
+    @Benchmark
+    public void render(CellCounter counter, Blackhole blackhole) throws IOException {
+        try (PDDocument pdfDocument = converter.render(opened, new ConversionProgress())) {
+            blackhole.consume(pdfDocument);
+            counter.cells += SyntheticWorkbooks.cellCount(rows);
+        }
+    }
+
+    @Benchmark
+    public void save(Rendered rendered, CellCounter counter) throws IOException {
+        converter.save(rendered.pdfDocument, OutputStream.nullOutputStream());
+        counter.cells += SyntheticWorkbooks.cellCount(rows);
+    }
+
+    /**
+     * A freshly rendered document for every save: fonts are subset on the first save only, so saving one twice would
+     * measure less than a conversion does.
+     */
+    @State(Scope.Thread)
+    public static class Rendered {
+
+        private PDDocument pdfDocument;
+
+        @Setup(Level.Invocation)
+        public void render(ConversionStageBenchmark benchmark) throws IOException {
+            pdfDocument = benchmark.converter.render(benchmark.opened, new ConversionProgress());
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            pdfDocument.close();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.excel2pdf.admission;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides, before a workbook is parsed, whether and how it is converted. The {@link WorkbookInspector} profile is
+ * turned into an estimate of the heap the conversion will hold, and the upload is
+ * <ul>
+ *     <li>rejected when it is a zip bomb, has more cells than any conversion may render, or would not fit in the
+ *     budget even streamed,</li>
+ *     <li>routed to the streaming reader when it is an .xlsx over the streaming threshold or its DOM would be too
+ *     large, or</li>
+ *     <li>admitted against a memory budget shared by every conversion in flight, waiting a while for room.</li>
+ * </ul>
+ * A single pathological file is thus turned away or streamed instead of filling the heap inside POI.
+ */
+@Slf4j
+@Component
+public class ConversionAdmission {
+
+    private final ConverterProperties converterProperties;
+    private final long budget;
+    private long available;
+
+    public ConversionAdmission(ConverterProperties converterProperties) {
+        this.converterProperties = converterProperties;
+        ConverterProperties.Admission settings = converterProperties.getAdmission();
+        this.budget = settings.getMemoryBudget() != null
+                ? settings.getMemoryBudget().toBytes()
+                : Runtime.getRuntime().maxMemory() / 2;
+        this.available = budget;
+    }
+
+    /**
+     * Inspects the workbook and claims its share of the memory budget, which is held until the returned admission is
+     * closed.
+     *
+     * @throws WorkbookRejectedException when the workbook may not be converted at all
+     * @throws RejectedExecutionException when the budget stayed full for the configured wait
+     */
+    public Admission admit(File excelFile) throws IOException {
+        ConverterProperties.Admission settings = converterProperties.getAdmission();
+        if (!settings.isEnabled()) {
+            return new Admission(overStreamingThreshold(excelFile) ? Route.STREAMING : Route.DOM, 0);
+        }
+
+        WorkbookProfile profile = WorkbookInspector.inspect(excelFile);
+        if (profile.uncompressedBytes() > settings.getMaxUncompressedSize().toBytes()) {
+            throw new WorkbookRejectedException("Workbook inflates to " + profile.uncompressedBytes() + " bytes");
+        }
+        if (profile.maxCompressionRatio() > settings.getMaxCompressionRatio()) {
+            throw new WorkbookRejectedException("Workbook part is compressed " + Math.round(profile.maxCompressionRatio()) + " to 1");
+        }
+        if (profile.cells() > settings.getMaxCells()) {
+            throw new WorkbookRejectedException("Workbook has room for " + profile.cells() + " cells");
+        }
+
+        Route route;
+        long cost;
+        if (!profile.ole2() && (overStreamingThreshold(excelFile) || profile.domBytes() > settings.getMaxDomSize().toBytes())) {
+            route = Route.STREAMING;
+            cost = profile.streamingBytes();
+        } else if (profile.domBytes() <= settings.getMaxDomSize().toBytes()) {
+            route = Route.DOM;
+            cost = profile.domBytes();
+        } else {
+            throw new WorkbookRejectedException("Workbook needs about " + profile.domBytes() + " bytes of heap");
+        }
+        if (cost > budget) {
+            throw new WorkbookRejectedException("Workbook needs about " + cost + " bytes of heap");
+        }
+
+        acquire(cost, settings.getBudgetWait().toNanos());
+        log.debug("Admitted {} for {} with about {} bytes", excelFile.getName(), route, cost);
+        return new Admission(route, cost);
+    }
+
+    /**
+     * Bytes of the budget not claimed by conversions in flight.
+     */
+    public synchronized long getAvailable() {
+        return available;
+    }
+
+    private boolean overStreamingThreshold(File excelFile) throws IOException {
+        ConverterProperties.Streaming streaming = converterProperties.getStreaming();
+        return streaming.isEnabled()
+                && excelFile.length() >= streaming.getThreshold().toBytes()
+                && FileMagic.valueOf(excelFile) == FileMagic.OOXML;
+    }
+
+    private synchronized void acquire(long bytes, long waitNanos) throws InterruptedIOException {
+        long deadline = System.nanoTime() + waitNanos;
+        while (available < bytes) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new RejectedExecutionException("Conversion memory budget is exhausted");
+            }
+            try {
+                wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for conversion memory");
+            }
+        }
+        available -= bytes;
+    }
+
+    private synchronized void release(long bytes) {
+        available += bytes;
+        notifyAll();
+    }
+
+    public enum Route {
+
+        /**
+         * Parse the whole workbook with POI and render from its DOM.
+         */
+        DOM,
+
+        /**
+         * Render an .xlsx row by row with the streaming reader.
+         */
+        STREAMING
+    }
+
+    /**
+     * An admitted workbook. Closing it gives its share of the budget back; closing twice has no effect.
+     */
+    public class Admission implements AutoCloseable {
+
+        private final Route route;
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(Route route, long bytes) {
+            this.route = route;
+            this.bytes = bytes;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        /**
+         * The share of the memory budget held.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true) && bytes > 0) {
+                release(bytes);
+            }
+        }
+    }
+}
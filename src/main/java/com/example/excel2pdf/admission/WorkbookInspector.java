@@ -0,0 +1,180 @@
+package com.example.excel2pdf.admission;
+
+import org.apache.poi.poifs.filesystem.DirectoryEntry;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
+import org.apache.poi.poifs.filesystem.Entry;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads what a workbook will cost without building it: for an .xlsx the zip's central directory, the
+ * {@code <dimension>} at the top of each worksheet and the counts on the shared strings root; for an .xls the sizes of
+ * its OLE streams. Only the first elements of each part are ever inflated.
+ */
+public final class WorkbookInspector {
+
+    /**
+     * Parts smaller than this inflated are left out of the compression ratio, as small XML parts legitimately compress
+     * very well.
+     */
+    private static final long RATIO_MIN_SIZE = 1024 * 1024;
+
+    /**
+     * The shortest cell a worksheet can spell out, {@code <c r="A1"/>}; caps what a declared dimension can claim.
+     */
+    private static final long MIN_BYTES_PER_CELL = 11;
+
+    /**
+     * Typical XML per cell, for sheets that declare no dimension.
+     */
+    private static final long TYPICAL_BYTES_PER_CELL = 40;
+
+    /**
+     * Typical size of an .xls cell record.
+     */
+    private static final long XLS_BYTES_PER_CELL = 16;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private WorkbookInspector() {
+    }
+
+    public static WorkbookProfile inspect(File excelFile) throws IOException {
+        FileMagic fileMagic = FileMagic.valueOf(excelFile);
+        if (fileMagic == FileMagic.OOXML) {
+            return inspectXlsx(excelFile);
+        }
+        if (fileMagic == FileMagic.OLE2) {
+            return inspectXls(excelFile);
+        }
+        throw new IOException("Unsupported workbook format: " + fileMagic);
+    }
+
+    private static WorkbookProfile inspectXlsx(File xlsxFile) throws IOException {
+        long uncompressedBytes = 0;
+        long sheetBytes = 0;
+        long sharedStringBytes = 0;
+        long sharedStringCount = 0;
+        long cells = 0;
+        double maxRatio = 0;
+        try (ZipFile zip = new ZipFile(xlsxFile)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                long size = entry.getSize();
+                long compressedSize = Math.max(entry.getCompressedSize(), 1);
+                if (size < 0) {
+                    // Unknown until inflated: assume the worst ratio a zip can have
+                    size = compressedSize * 1032;
+                }
+                uncompressedBytes += size;
+                if (size >= RATIO_MIN_SIZE) {
+                    maxRatio = Math.max(maxRatio, (double) size / compressedSize);
+                }
+
+                String name = entry.getName();
+                if (name.startsWith("xl/worksheets/") && name.endsWith(".xml") && name.indexOf('/', "xl/worksheets/".length()) < 0) {
+                    sheetBytes += size;
+                    long declared = readDimension(zip, entry);
+                    cells += declared >= 0 ? Math.min(declared, size / MIN_BYTES_PER_CELL) : size / TYPICAL_BYTES_PER_CELL;
+                } else if (name.equals("xl/sharedStrings.xml")) {
+                    sharedStringBytes = size;
+                    sharedStringCount = readUniqueCount(zip, entry);
+                }
+            }
+        }
+        return new WorkbookProfile(false, uncompressedBytes, sheetBytes, sharedStringBytes, sharedStringCount, cells, maxRatio);
+    }
+
+    private static WorkbookProfile inspectXls(File xlsFile) throws IOException {
+        try (POIFSFileSystem fileSystem = new POIFSFileSystem(xlsFile, true)) {
+            DirectoryEntry root = fileSystem.getRoot();
+            long workbookBytes = 0;
+            for (String name : new String[]{"Workbook", "WORKBOOK", "BOOK", "Book"}) {
+                if (root.hasEntry(name) && root.getEntry(name) instanceof DocumentEntry document) {
+                    workbookBytes = document.getSize();
+                    break;
+                }
+            }
+            long streamBytes = 0;
+            for (Entry entry : root) {
+                if (entry instanceof DocumentEntry document) {
+                    streamBytes += document.getSize();
+                }
+            }
+            return new WorkbookProfile(true, streamBytes, workbookBytes, 0, 0, workbookBytes / XLS_BYTES_PER_CELL, 1);
+        }
+    }
+
+    /**
+     * Cells in the area a worksheet declares, or -1 when it declares none before its data.
+     */
+    private static long readDimension(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream inputStream = zip.getInputStream(entry)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String element = reader.getLocalName();
+                    if (element.equals("dimension")) {
+                        String ref = reader.getAttributeValue(null, "ref");
+                        if (ref == null || ref.isEmpty()) {
+                            return -1;
+                        }
+                        CellRangeAddress area = CellRangeAddress.valueOf(ref);
+                        return (long) (Math.abs(area.getLastRow() - area.getFirstRow()) + 1)
+                                * (Math.abs(area.getLastColumn() - area.getFirstColumn()) + 1);
+                    }
+                    if (element.equals("sheetData")) {
+                        return -1;
+                    }
+                }
+                return -1;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IOException("Unreadable worksheet " + entry.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The {@code uniqueCount} on the shared strings root, falling back to {@code count}.
+     */
+    private static long readUniqueCount(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream inputStream = zip.getInputStream(entry)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            try {
+                reader.nextTag();
+                String count = reader.getAttributeValue(null, "uniqueCount");
+                if (count == null) {
+                    count = reader.getAttributeValue(null, "count");
+                }
+                return count != null ? Long.parseLong(count) : 0;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Unreadable shared strings: " + e.getMessage(), e);
+        }
+    }
+}
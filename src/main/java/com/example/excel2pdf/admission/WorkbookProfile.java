@@ -0,0 +1,64 @@
+package com.example.excel2pdf.admission;
+
+/**
+ * What a workbook will cost to convert, read from its metadata before any of it is parsed.
+ *
+ * @param ole2                whether it is an .xls rather than an .xlsx
+ * @param uncompressedBytes   total size of the package's parts once inflated, or of an .xls file's streams
+ * @param sheetBytes          inflated size of the worksheet parts, or the .xls workbook stream
+ * @param sharedStringBytes   inflated size of the shared strings part; 0 for .xls, whose strings are in the stream
+ * @param sharedStringCount   distinct shared strings the package declares
+ * @param cells               cells the sheets can hold: the declared {@code <dimension>} areas, capped by how many
+ *                            cells the sheet XML has room for
+ * @param maxCompressionRatio highest inflated-to-stored ratio of a part large enough to matter
+ */
+public record WorkbookProfile(boolean ole2, long uncompressedBytes, long sheetBytes, long sharedStringBytes,
+                              long sharedStringCount, long cells, double maxCompressionRatio) {
+
+    /**
+     * Heap an XSSF cell holds on to once the DOM is built: the XMLBeans bean, its value and reference strings, and the
+     * POI wrapper around them.
+     */
+    private static final long XSSF_BYTES_PER_CELL = 800;
+
+    /**
+     * Heap of an HSSF cell: its record plus the POI wrapper.
+     */
+    private static final long HSSF_BYTES_PER_CELL = 160;
+
+    /**
+     * Heap an XSSF shared string holds besides its characters: the rich-text bean, its text bean and the string
+     * wrapping them.
+     */
+    private static final long XSSF_BYTES_PER_SHARED_STRING = 240;
+
+    /**
+     * Heap the streaming reader's read-only shared strings table holds per entry besides the characters: the rich-text
+     * wrapper, the string and its list slot.
+     */
+    private static final long STREAMING_BYTES_PER_SHARED_STRING = 120;
+
+    /**
+     * Heap the streaming reader and a rendered page need besides the shared strings.
+     */
+    private static final long STREAMING_BASE_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Estimated heap held while the workbook is converted through the DOM.
+     */
+    public long domBytes() {
+        if (ole2) {
+            return cells * HSSF_BYTES_PER_CELL + sheetBytes * 2;
+        }
+        // Shared strings become XMLBeans rich-text beans, several times the size of their XML
+        return cells * XSSF_BYTES_PER_CELL + sharedStringBytes * 4 + sharedStringCount * XSSF_BYTES_PER_SHARED_STRING;
+    }
+
+    /**
+     * Estimated heap held while an .xlsx is converted with the streaming reader, which keeps only the shared strings
+     * and the current row.
+     */
+    public long streamingBytes() {
+        return STREAMING_BASE_BYTES + sharedStringBytes * 2 + sharedStringCount * STREAMING_BYTES_PER_SHARED_STRING;
+    }
+}
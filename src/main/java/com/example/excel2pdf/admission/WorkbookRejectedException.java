@@ -0,0 +1,13 @@
+package com.example.excel2pdf.admission;
+
+import java.io.IOException;
+
+/**
+ * The workbook would cost more than any conversion is allowed to, whatever else is running.
+ */
+public class WorkbookRejectedException extends IOException {
+
+    public WorkbookRejectedException(String message) {
+        super(message);
+    }
+}
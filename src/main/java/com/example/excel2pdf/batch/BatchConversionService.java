@@ -0,0 +1,340 @@
+package com.example.excel2pdf.batch;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.service.ConversionOptions;
+import com.example.excel2pdf.service.ConversionProgress;
+import com.example.excel2pdf.service.ExcelToPDFConverterService;
+import com.example.excel2pdf.service.OpenedWorkbook;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Converts every workbook in a ZIP archive and writes the PDFs into a ZIP of their own, as a pipeline of three stages
+ * joined by bounded queues:
+ * <ol>
+ *     <li>one thread extracts each .xlsx and .xls and opens it,</li>
+ *     <li>{@code render-threads} threads lay out and render the opened workbooks,</li>
+ *     <li>the calling thread saves each rendered document into the output archive.</li>
+ * </ol>
+ * Extraction and writing overlap with rendering, and the queues hold at most {@code stage-capacity} workbooks or
+ * documents each, so a batch never has more than a handful of them in memory. PDFs are written in the order they
+ * finish, not the order of the input archive.
+ * <p>
+ * An entry that cannot be extracted, opened or rendered does not stop the batch: it gets a line in
+ * {@value #ERROR_MANIFEST} at the end of the output instead of a PDF.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchConversionService {
+
+    static final String ERROR_MANIFEST = "errors.txt";
+
+    private final ConverterProperties converterProperties;
+    private final ExcelToPDFConverterService excelToPDFConverterService;
+
+    /**
+     * Converts the archive's workbooks into a ZIP written to {@code outputStream}, which is left open.
+     *
+     * @throws IOException when the output cannot be written; the batch is then abandoned
+     */
+    public void convert(File archive, OutputStream outputStream, ConversionOptions options) throws IOException, InterruptedException {
+        ConverterProperties.Batch settings = converterProperties.getBatch();
+        int renderThreads = Math.max(settings.getRenderThreads(), 1);
+        int capacity = Math.max(settings.getStageCapacity(), 1);
+        BlockingQueue<Entry> opened = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Entry> rendered = new ArrayBlockingQueue<>(capacity);
+        // Shared by the batch's conversions, so one cancel stops every render in flight
+        ConversionProgress progress = new ConversionProgress();
+
+        ExecutorService stages = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("excel2pdf-batch-", 0).factory());
+        boolean completed = false;
+        try {
+            stages.execute(() -> {
+                try {
+                    unzip(archive, options, settings, opened);
+                } finally {
+                    for (int i = 0; i < renderThreads; i++) {
+                        putQuietly(opened, Entry.END);
+                    }
+                }
+            });
+            for (int i = 0; i < renderThreads; i++) {
+                stages.execute(() -> {
+                    try {
+                        render(opened, rendered, progress);
+                    } finally {
+                        putQuietly(rendered, Entry.END);
+                    }
+                });
+            }
+            write(rendered, renderThreads, outputStream);
+            completed = true;
+        } finally {
+            if (!completed) {
+                progress.cancel();
+                stages.shutdownNow();
+            }
+            stages.close();
+            closeAll(opened);
+            closeAll(rendered);
+        }
+    }
+
+    /**
+     * Stage 1: extracts the workbooks in archive order and opens them.
+     */
+    private void unzip(File archive, ConversionOptions options, ConverterProperties.Batch settings, BlockingQueue<Entry> opened) {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            int count = 0;
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                if (!isWorkbook(zipEntry)) {
+                    continue;
+                }
+                Entry entry = new Entry(zipEntry.getName());
+                if (++count > settings.getMaxEntries()) {
+                    entry.error = "skipped, the archive holds more than " + settings.getMaxEntries() + " workbooks";
+                } else {
+                    try {
+                        entry.file = extract(zipFile, zipEntry, settings.getMaxEntrySize().toBytes());
+                        entry.workbook = excelToPDFConverterService.open(entry.file.toFile(), options);
+                    } catch (IOException | RuntimeException e) {
+                        entry.fail(e);
+                    }
+                }
+                if (!putQuietly(opened, entry)) {
+                    entry.close();
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read batch archive", e);
+            Entry entry = new Entry(archive.getName());
+            entry.fail(e);
+            putQuietly(opened, entry);
+        }
+    }
+
+    /**
+     * Stage 2: renders opened workbooks until the first stage is done. Failed entries are passed on as they are.
+     */
+    private void render(BlockingQueue<Entry> opened, BlockingQueue<Entry> rendered, ConversionProgress progress) {
+        while (true) {
+            Entry entry;
+            try {
+                entry = opened.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == Entry.END) {
+                return;
+            }
+            if (entry.error == null) {
+                try (OpenedWorkbook workbook = entry.workbook) {
+                    entry.document = excelToPDFConverterService.render(workbook, progress);
+                } catch (IOException | RuntimeException e) {
+                    entry.fail(e);
+                }
+                entry.workbook = null;
+                entry.deleteFile();
+            }
+            if (!putQuietly(rendered, entry)) {
+                entry.close();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stage 3: saves the rendered documents into the output archive as they arrive, then lists the failures.
+     */
+    private void write(BlockingQueue<Entry> rendered, int renderThreads, OutputStream outputStream) throws IOException, InterruptedException {
+        ZipOutputStream zip = new ZipOutputStream(StreamUtils.nonClosing(outputStream));
+        Set<String> names = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+        int converted = 0;
+        for (int ended = 0; ended < renderThreads; ) {
+            Entry entry = rendered.take();
+            if (entry == Entry.END) {
+                ended++;
+                continue;
+            }
+            try (entry) {
+                if (entry.error != null) {
+                    failures.add(entry.name + ": " + entry.error);
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry(uniqueName(pdfName(entry.name), names)));
+                excelToPDFConverterService.save(entry.document, zip);
+                zip.closeEntry();
+                converted++;
+            }
+        }
+        if (!failures.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(uniqueName(ERROR_MANIFEST, names)));
+            zip.write((String.join("\n", failures) + "\n").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        log.info("Batch converted {} workbooks, {} failed", converted, failures.size());
+    }
+
+    /**
+     * Copies the entry to a temp file, refusing entries that unpack to more than {@code maxSize} bytes whatever their
+     * header claims.
+     */
+    private static Path extract(ZipFile zipFile, ZipEntry zipEntry, long maxSize) throws IOException {
+        if (zipEntry.getSize() > maxSize) {
+            throw new IOException("unpacks to more than " + maxSize + " bytes");
+        }
+        String name = zipEntry.getName().toLowerCase(Locale.ROOT);
+        Path file = Files.createTempFile("excel2pdf-batch-", name.substring(name.lastIndexOf('.')));
+        try (InputStream inputStream = zipFile.getInputStream(zipEntry);
+             OutputStream outputStream = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+            long size = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new IOException("unpacks to more than " + maxSize + " bytes");
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * .xlsx and .xls files, except the lock files Excel leaves next to open workbooks and the metadata macOS adds to
+     * archives.
+     */
+    private static boolean isWorkbook(ZipEntry zipEntry) {
+        String name = zipEntry.getName();
+        String fileName = name.substring(name.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        return !zipEntry.isDirectory()
+                && !name.startsWith("__MACOSX/")
+                && !fileName.startsWith("~$")
+                && !fileName.startsWith(".")
+                && (fileName.endsWith(".xlsx") || fileName.endsWith(".xls"));
+    }
+
+    private static String pdfName(String entryName) {
+        return entryName.substring(0, entryName.lastIndexOf('.')) + ".pdf";
+    }
+
+    /**
+     * ZIP entries must be unique, and {@code a.xls} and {@code a.xlsx} would both become {@code a.pdf}.
+     */
+    private static String uniqueName(String name, Set<String> names) {
+        String unique = name;
+        int dot = name.lastIndexOf('.');
+        for (int i = 2; !names.add(unique); i++) {
+            unique = name.substring(0, dot) + " (" + i + ")" + name.substring(dot);
+        }
+        return unique;
+    }
+
+    /**
+     * @return false when interrupted, which only happens once the batch has been abandoned
+     */
+    private static boolean putQuietly(BlockingQueue<Entry> queue, Entry entry) {
+        try {
+            queue.put(entry);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void closeAll(BlockingQueue<Entry> queue) {
+        for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+            entry.close();
+        }
+    }
+
+    /**
+     * One workbook on its way through the pipeline. Holds whatever the last stage produced for it; closing releases
+     * all of it.
+     */
+    private static final class Entry implements Closeable {
+
+        /**
+         * Sent once per consumer when a stage has no more entries.
+         */
+        static final Entry END = new Entry(null);
+
+        final String name;
+        Path file;
+        OpenedWorkbook workbook;
+        PDDocument document;
+        String error;
+
+        Entry(String name) {
+            this.name = name;
+        }
+
+        void fail(Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.debug("Batch entry {} failed", name, e);
+        }
+
+        void deleteFile() {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete {}", file, e);
+                }
+                file = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (workbook != null) {
+                    workbook.close();
+                }
+                if (document != null) {
+                    document.close();
+                }
+            } catch (IOException e) {
+                log.warn("Could not release batch entry {}", name, e);
+            }
+            deleteFile();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.excel2pdf.cache;
+
+import com.example.excel2pdf.service.ConversionOptions;
+import com.example.excel2pdf.service.Selection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Identifies a conversion result by what it was rendered from: the SHA-256 of the uploaded workbook and of the
+ * resolved options, hex encoded. Two uploads with the same bytes and options produce the same PDF, whatever the file
+ * was called.
+ */
+public record CacheKey(String value) {
+
+    /**
+     * Bumped whenever the renderer's output changes, so results of an older build left on disk are not served.
+     */
+    private static final String FORMAT = "excel2pdf-1";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static CacheKey of(File excelFile, ConversionOptions resolvedOptions) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(excelFile.toPath())) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        Selection selection = resolvedOptions.selection();
+        String options = FORMAT + ";formulas=" + resolvedOptions.formulaMode() + (selection.isAll() ? "" : ";" + selection.key());
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        return new CacheKey(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    public String etag() {
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header names this result. Weak validators match too: the PDF for a key is
+     * always the same.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.excel2pdf.cache;
+
+/**
+ * Counters since startup and current sizes of the {@link ConversionCache}, for sizing its tiers. Evictions are entries
+ * a tier dropped to stay within its byte budget; expirations are entries it dropped because they outlived the TTL.
+ */
+public record CacheStats(long memoryHits,
+                         long diskHits,
+                         long misses,
+                         long memoryEvictions,
+                         long diskEvictions,
+                         long memoryExpirations,
+                         long diskExpirations,
+                         long memoryEntries,
+                         long diskEntries,
+                         long memoryBytes,
+                         long diskBytes) {
+
+    public long expirations() {
+        return memoryExpirations + diskExpirations;
+    }
+}
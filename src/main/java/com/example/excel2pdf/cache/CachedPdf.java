@@ -0,0 +1,16 @@
+package com.example.excel2pdf.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A cached result, opened for reading. The content stays readable even if the entry is evicted meanwhile.
+ */
+public record CachedPdf(long size, InputStream content) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.excel2pdf.cache;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.service.ConversionOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finished PDFs keyed by the digest of the upload and the options they were rendered with, so the same workbook sent
+ * again is answered without parsing it. Recently used PDFs up to {@code memory-max-entry-size} are kept on the heap;
+ * every PDF is kept in the disk directory, which survives restarts. Both tiers drop the least recently used entries
+ * beyond their byte budget and anything older than the TTL.
+ * <p>
+ * A PDF enters the cache while it is written to the client: a {@link Recorder} copies the bytes to a temp file on the
+ * way through, and {@link Recorder#commit()} publishes it once the conversion has succeeded.
+ */
+@Slf4j
+@Component
+public class ConversionCache {
+
+    private final ConverterProperties converterProperties;
+    private final boolean enabled;
+    private final long memoryMaxEntrySize;
+    private final Clock clock;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder memoryEvictions = new LongAdder();
+    private final LongAdder diskEvictions = new LongAdder();
+    private final LongAdder memoryExpirations = new LongAdder();
+    private final LongAdder diskExpirations = new LongAdder();
+
+    private final MemoryTier memory;
+    private final DiskTier disk;
+
+    @Autowired
+    public ConversionCache(ConverterProperties converterProperties) throws IOException {
+        this(converterProperties, Clock.systemUTC());
+    }
+
+    ConversionCache(ConverterProperties converterProperties, Clock clock) throws IOException {
+        ConverterProperties.Cache settings = converterProperties.getCache();
+        this.converterProperties = converterProperties;
+        this.enabled = settings.isEnabled();
+        this.memoryMaxEntrySize = settings.getMemoryMaxEntrySize().toBytes();
+        this.clock = clock;
+        this.memory = new MemoryTier(settings.getMemorySize().toBytes(), settings.getTtl(), clock, memoryEvictions, memoryExpirations);
+        this.disk = enabled
+                ? new DiskTier(settings.getDirectory().toPath(), settings.getDiskSize().toBytes(), settings.getTtl(), clock, diskEvictions, diskExpirations)
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Digests the workbook together with the options after the application defaults are filled in, so a request that
+     * spells out the default shares its entry with one that leaves it unset.
+     */
+    public CacheKey key(File excelFile, ConversionOptions options) throws IOException {
+        return CacheKey.of(excelFile, options.orElse(ConversionOptions.defaults(converterProperties)));
+    }
+
+    /**
+     * The cached PDF, from the heap if it is there and from disk otherwise. A PDF read from disk that is small enough
+     * is moved up to the heap for the next request.
+     */
+    public Optional<CachedPdf> get(CacheKey key) throws IOException {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        byte[] pdf = memory.get(key);
+        if (pdf != null) {
+            memoryHits.increment();
+            // Keeps the disk tier's recency in step, or it would evict the PDFs served most often
+            disk.touch(key);
+            return Optional.of(new CachedPdf(pdf.length, new ByteArrayInputStream(pdf)));
+        }
+        CachedPdf cached = disk.get(key);
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        diskHits.increment();
+        if (cached.size() > memoryMaxEntrySize) {
+            return Optional.of(cached);
+        }
+        try (cached) {
+            pdf = cached.content().readAllBytes();
+        }
+        memory.put(key, pdf, clock.instant());
+        return Optional.of(new CachedPdf(pdf.length, new ByteArrayInputStream(pdf)));
+    }
+
+    /**
+     * Starts recording a PDF written to {@code target} under the key. Nothing is cached unless
+     * {@link Recorder#commit()} is called before the recorder is closed.
+     */
+    public Recorder record(CacheKey key, OutputStream target) throws IOException {
+        return new Recorder(key, target, disk.createTempFile());
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(memoryHits.sum(), diskHits.sum(), misses.sum(), memoryEvictions.sum(), diskEvictions.sum(),
+                memoryExpirations.sum(), diskExpirations.sum(), memory.size(), disk != null ? disk.size() : 0,
+                memory.bytes(), disk != null ? disk.bytes() : 0);
+    }
+
+    /**
+     * Passes everything written to it on to the target and keeps a copy in a temp file, plus one on the heap while the
+     * PDF is small enough for the memory tier. Closing it never closes the target.
+     */
+    public class Recorder extends OutputStream {
+
+        private final CacheKey key;
+        private final OutputStream target;
+        private final Path tempFile;
+        private final OutputStream file;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private long size;
+        private boolean committed;
+
+        private Recorder(CacheKey key, OutputStream target, Path tempFile) throws IOException {
+            this.key = key;
+            this.target = target;
+            this.tempFile = tempFile;
+            this.file = Files.newOutputStream(tempFile);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            file.write(b);
+            if (copy != null) {
+                copy.write(b);
+            }
+            grow(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            file.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+            }
+            grow(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        /**
+         * Publishes the recorded PDF to both tiers. Only to be called once the whole PDF has been written.
+         */
+        public void commit() throws IOException {
+            file.close();
+            disk.commit(key, tempFile, size, clock.instant());
+            if (copy != null) {
+                memory.put(key, copy.toByteArray(), clock.instant());
+            }
+            committed = true;
+            log.debug("Cached {} bytes under {}: {}", size, key.value(), getStats());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                file.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        private void grow(int written) {
+            size += written;
+            if (copy != null && size > memoryMaxEntrySize) {
+                copy = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.excel2pdf.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PDFs kept as {@code <key>.pdf} files in one directory, least recently used first out once their total size passes
+ * the budget. The index lives on the heap and is rebuilt from the directory at startup, in modification order, so a
+ * restart keeps what was cached but forgets the order of later reads.
+ * <p>
+ * A PDF being written goes to a {@code .tmp} file and is moved into place once complete, so a reader never sees half a
+ * PDF and a crash leaves only temp files, which the next startup deletes.
+ */
+@Slf4j
+final class DiskTier {
+
+    private static final String SUFFIX = ".pdf";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Clock clock;
+    private final LongAdder evictions;
+    private final LongAdder expirations;
+
+    private final LinkedHashMap<CacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    DiskTier(Path directory, long maxBytes, Duration ttl, Clock clock, LongAdder evictions, LongAdder expirations) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        load();
+    }
+
+    /**
+     * Opens the cached PDF. The stream stays readable if the entry is evicted meanwhile, as the file is only unlinked.
+     */
+    synchronized CachedPdf get(CacheKey key) throws IOException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry.created())) {
+            delete(key, entry);
+            expirations.increment();
+            return null;
+        }
+        return new CachedPdf(entry.size(), Files.newInputStream(entry.file()));
+    }
+
+    synchronized void touch(CacheKey key) {
+        entries.get(key);
+    }
+
+    Path createTempFile() throws IOException {
+        return Files.createTempFile(directory, "pending-", TEMP_SUFFIX);
+    }
+
+    /**
+     * Moves a completely written temp file into place under the key, then deletes expired entries and the least
+     * recently used ones until the tier fits its budget again.
+     */
+    synchronized void commit(CacheKey key, Path tempFile, long size, Instant created) throws IOException {
+        if (size > maxBytes) {
+            Files.deleteIfExists(tempFile);
+            return;
+        }
+        Path file = directory.resolve(key.value() + SUFFIX);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Entry previous = entries.put(key, new Entry(file, size, created));
+        bytes += size - (previous != null ? previous.size() : 0);
+
+        Iterator<Map.Entry<CacheKey, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CacheKey, Entry> eldest = iterator.next();
+            boolean expired = isExpired(eldest.getValue().created());
+            if (!expired && bytes <= maxBytes) {
+                continue;
+            }
+            iterator.remove();
+            bytes -= eldest.getValue().size();
+            deleteQuietly(eldest.getValue().file());
+            (expired ? expirations : evictions).increment();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void load() throws IOException {
+        List<Entry> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    deleteQuietly(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    found.add(new Entry(file, Files.size(file), Files.getLastModifiedTime(file).toInstant()));
+                }
+            }
+        }
+        // Newest first, so the budget keeps the most recent PDFs; they are then indexed oldest first, as LRU order
+        found.sort(Comparator.comparing(Entry::created).reversed());
+        List<Entry> kept = new ArrayList<>();
+        for (Entry entry : found) {
+            if (isExpired(entry.created()) || bytes + entry.size() > maxBytes) {
+                deleteQuietly(entry.file());
+                continue;
+            }
+            kept.add(entry);
+            bytes += entry.size();
+        }
+        Collections.reverse(kept);
+        for (Entry entry : kept) {
+            String name = entry.file().getFileName().toString();
+            entries.put(new CacheKey(name.substring(0, name.length() - SUFFIX.length())), entry);
+        }
+        log.info("Conversion cache in {} holds {} PDFs, {} bytes", directory, entries.size(), bytes);
+    }
+
+    private void delete(CacheKey key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.size();
+        deleteQuietly(entry.file());
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached PDF {}", file, e);
+        }
+    }
+
+    private boolean isExpired(Instant created) {
+        return !clock.instant().isBefore(created.plus(ttl));
+    }
+
+    private record Entry(Path file, long size, Instant created) {
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.excel2pdf.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small PDFs kept on the heap, least recently used first out once their total size passes the budget.
+ */
+final class MemoryTier {
+
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Clock clock;
+    private final LongAdder evictions;
+    private final LongAdder expirations;
+
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<CacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    MemoryTier(long maxBytes, Duration ttl, Clock clock, LongAdder evictions, LongAdder expirations) {
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.evictions = evictions;
+        this.expirations = expirations;
+    }
+
+    synchronized byte[] get(CacheKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry.created())) {
+            remove(key, entry);
+            expirations.increment();
+            return null;
+        }
+        return entry.pdf();
+    }
+
+    /**
+     * Keeps the PDF unless it alone is larger than the budget, then evicts down to the budget.
+     */
+    synchronized void put(CacheKey key, byte[] pdf, Instant created) {
+        if (pdf.length > maxBytes || isExpired(created)) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(pdf, created));
+        bytes += pdf.length - (previous != null ? previous.pdf().length : 0);
+        Iterator<Map.Entry<CacheKey, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            bytes -= eldest.pdf().length;
+            evictions.increment();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void remove(CacheKey key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.pdf().length;
+    }
+
+    private boolean isExpired(Instant created) {
+        return !clock.instant().isBefore(created.plus(ttl));
+    }
+
+    private record Entry(byte[] pdf, Instant created) {
+    }
+}
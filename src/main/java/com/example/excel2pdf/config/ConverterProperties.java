@@ -0,0 +1,311 @@
+package com.example.excel2pdf.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "excel2pdf")
+public class ConverterProperties {
+
+    private final Streaming streaming = new Streaming();
+
+    private final Executor executor = new Executor();
+
+    private final Fonts fonts = new Fonts();
+
+    private final Formulas formulas = new Formulas();
+
+    private final Output output = new Output();
+
+    private final Cache cache = new Cache();
+
+    private final Jobs jobs = new Jobs();
+
+    private final Batch batch = new Batch();
+
+    private final Metrics metrics = new Metrics();
+
+    private final Admission admission = new Admission();
+
+    private final Warmup warmup = new Warmup();
+
+    @Getter
+    @Setter
+    public static class Streaming {
+
+        /**
+         * Whether large .xlsx uploads are rendered through the SAX event reader instead of the DOM.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Uploads at or above this size are streamed; smaller ones keep using the DOM path.
+         */
+        private DataSize threshold = DataSize.ofMegabytes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Executor {
+
+        /**
+         * Conversions rendering at the same time. 0 means one per available processor.
+         */
+        private int maxConcurrent = 0;
+
+        /**
+         * Conversions allowed to wait for a free slot before new requests are turned away with 429.
+         */
+        private int queueCapacity = 16;
+
+        /**
+         * Whether conversions run on virtual threads instead of a platform thread pool.
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * Worker threads of the fork-join pool that lays out and renders the sheets of a workbook in parallel. 0 means
+         * one per available processor.
+         */
+        private int sheetParallelism = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Fonts {
+
+        /**
+         * Family used for Excel fonts that no family claims in its {@code excel-names}.
+         */
+        private String defaultFamily = "NanumGothic";
+
+        /**
+         * TrueType families parsed once at startup, keyed by family name.
+         */
+        private Map<String, FontFamily> families = new LinkedHashMap<>(Map.of("NanumGothic",
+                new FontFamily(new ClassPathResource("fonts/NanumGothic.ttf"), new ClassPathResource("fonts/NanumGothicBold.ttf"))));
+    }
+
+    @Getter
+    @Setter
+    public static class Formulas {
+
+        /**
+         * Default for requests that do not pick a mode themselves.
+         */
+        private FormulaMode mode = FormulaMode.EVALUATE;
+    }
+
+    @Getter
+    @Setter
+    public static class Output {
+
+        /**
+         * Default for requests that do not pick where their document is built.
+         */
+        private OutputMemory memory = OutputMemory.MIXED;
+
+        /**
+         * Heap a document may use in {@link OutputMemory#MIXED} mode before PDFBox spills to its scratch file.
+         */
+        private DataSize memoryThreshold = DataSize.ofMegabytes(8);
+
+        /**
+         * Directory of PDFBox's scratch files; the system temp directory when unset.
+         */
+        private File tempDirectory;
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+
+        /**
+         * Whether finished PDFs are kept and served again for the same upload and options.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Heap budget of the in-memory tier.
+         */
+        private DataSize memorySize = DataSize.ofMegabytes(64);
+
+        /**
+         * Larger PDFs skip the memory tier and are only kept on disk.
+         */
+        private DataSize memoryMaxEntrySize = DataSize.ofMegabytes(4);
+
+        /**
+         * Directory of the disk tier. Entries left there survive a restart.
+         */
+        private File directory = new File(System.getProperty("java.io.tmpdir"), "excel2pdf-cache");
+
+        /**
+         * Byte budget of the disk tier; the least recently used PDFs are deleted beyond it.
+         */
+        private DataSize diskSize = DataSize.ofGigabytes(1);
+
+        /**
+         * How long a PDF is served from either tier after it was rendered.
+         */
+        private Duration ttl = Duration.ofDays(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Jobs {
+
+        /**
+         * Jobs still converting this long after they started are cancelled.
+         */
+        private Duration timeout = Duration.ofMinutes(10);
+
+        /**
+         * How long a finished job and its PDF are kept for download.
+         */
+        private Duration resultTtl = Duration.ofHours(1);
+
+        /**
+         * Directory the finished PDFs are written to. Emptied at startup, as jobs do not survive a restart.
+         */
+        private File directory = new File(System.getProperty("java.io.tmpdir"), "excel2pdf-jobs");
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /**
+         * Threads of a batch that lay out and render workbooks while the archive is read and written on others.
+         */
+        private int renderThreads = 2;
+
+        /**
+         * Opened workbooks and rendered documents each stage may hand on before it waits for the next one, which
+         * bounds the heap a batch holds between stages.
+         */
+        private int stageCapacity = 2;
+
+        /**
+         * Entries that unpack to more than this fail instead of being extracted.
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(100);
+
+        /**
+         * Workbooks converted per archive; the rest are reported as skipped.
+         */
+        private int maxEntries = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        /**
+         * Whether conversions are timed per stage and counted in Micrometer. JFR events are emitted either way, and
+         * only cost anything while a recording enables them.
+         */
+        private boolean enabled = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Admission {
+
+        /**
+         * Whether workbooks are inspected and their estimated cost checked before they are parsed. When off, only the
+         * streaming threshold decides how a workbook is read.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Estimated heap all conversions in flight may hold together. Defaults to half the maximum heap.
+         */
+        private DataSize memoryBudget;
+
+        /**
+         * How long a conversion waits for room in the budget before it is turned away.
+         */
+        private Duration budgetWait = Duration.ofSeconds(10);
+
+        /**
+         * Estimated DOM size above which an .xlsx is streamed and an .xls rejected.
+         */
+        private DataSize maxDomSize = DataSize.ofMegabytes(256);
+
+        /**
+         * Workbooks whose parts inflate to more than this are rejected.
+         */
+        private DataSize maxUncompressedSize = DataSize.ofGigabytes(2);
+
+        /**
+         * Workbooks with a large part compressed more than this are rejected as zip bombs. Matches POI's own minimum
+         * inflate ratio of 0.01.
+         */
+        private double maxCompressionRatio = 100;
+
+        /**
+         * Workbooks with room for more cells than this are rejected, as rendering them would take too long even
+         * streamed.
+         */
+        private long maxCells = 20_000_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Warmup {
+
+        /**
+         * Whether generated workbooks are converted at startup, before the application reports itself ready, so the
+         * first requests do not pay for cold classes, fonts and JIT.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Rounds of warm-up; each converts the generated .xlsx and .xls once.
+         */
+        private int iterations = 10;
+
+        /**
+         * Whether this start is an AppCDS training run: the application exits as soon as it is warmed up.
+         */
+        private boolean trainingRun = false;
+    }
+
+    @Getter
+    @Setter
+    public static class FontFamily {
+
+        private Resource regular;
+
+        /**
+         * Optional; bold cells fall back to the regular face when absent.
+         */
+        private Resource bold;
+
+        /**
+         * Excel font names (e.g. "Malgun Gothic") rendered with this family.
+         */
+        private List<String> excelNames = new ArrayList<>();
+
+        public FontFamily() {
+        }
+
+        public FontFamily(Resource regular, Resource bold) {
+            this.regular = regular;
+            this.bold = bold;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.excel2pdf.config;
+
+/**
+ * How formula cells get the value that is printed.
+ */
+public enum FormulaMode {
+
+    /**
+     * Recalculate every formula with POI's evaluator, sharing one evaluator (and its cache) across the workbook.
+     */
+    EVALUATE,
+
+    /**
+     * Print the result Excel stored with the formula when the file was saved; only formulas without a stored result
+     * are evaluated. The streaming reader always works this way.
+     */
+    CACHED
+}
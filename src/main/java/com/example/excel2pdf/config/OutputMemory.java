@@ -0,0 +1,22 @@
+package com.example.excel2pdf.config;
+
+/**
+ * Where PDFBox keeps the document being built, chiefly its page content streams, until it is saved.
+ */
+public enum OutputMemory {
+
+    /**
+     * Everything on the heap; fastest, but a document of hundreds of pages is held whole until it is saved.
+     */
+    MEMORY,
+
+    /**
+     * On the heap up to {@code excel2pdf.output.memory-threshold} per document, in a scratch file beyond it.
+     */
+    MIXED,
+
+    /**
+     * Always in a scratch file, keeping the heap a conversion needs flat whatever the page count.
+     */
+    TEMP_FILE
+}
@@ -0,0 +1,19 @@
+package com.example.excel2pdf.config;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Binds request parameters the way {@code application.yml} is bound, so {@code ?formulas=cached} works as well as
+     * {@code ?formulas=CACHED}.
+     */
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        ApplicationConversionService.addApplicationConverters(registry);
+    }
+}
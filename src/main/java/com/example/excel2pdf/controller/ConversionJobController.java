@@ -0,0 +1,113 @@
+package com.example.excel2pdf.controller;
+
+import com.example.excel2pdf.config.FormulaMode;
+import com.example.excel2pdf.config.OutputMemory;
+import com.example.excel2pdf.job.ConversionJob;
+import com.example.excel2pdf.job.ConversionJobService;
+import com.example.excel2pdf.job.JobState;
+import com.example.excel2pdf.job.JobStatus;
+import com.example.excel2pdf.service.ConversionOptions;
+import com.example.excel2pdf.service.Selection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Conversions that outlive the request: submit returns 202 with the job's status URL, clients poll it until the job
+ * has finished and then download the PDF.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/jobs")
+public class ConversionJobController {
+
+    private final ConversionJobService conversionJobService;
+
+    @PostMapping
+    public ResponseEntity<JobStatus> submit(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(value = "formulas", required = false) FormulaMode formulaMode,
+                                            @RequestParam(value = "memory", required = false) OutputMemory outputMemory,
+                                            @RequestParam(value = "sheets", required = false) List<String> sheets,
+                                            @RequestParam(value = "ranges", required = false) List<String> ranges,
+                                            @RequestParam(value = "names", required = false) List<String> names,
+                                            @RequestParam(value = "pages", required = false) String pages) {
+        Optional<Selection> selection = Selection.parse(sheets, ranges, names, pages);
+        if (file.isEmpty() || selection.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        File tempFile = null;
+        try {
+            tempFile = Files.createTempFile("excel2pdf-", ".upload").toFile();
+            file.transferTo(tempFile);
+            ConversionJob job = conversionJobService.submit(tempFile, new ConversionOptions(formulaMode, outputMemory, selection.get()));
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.getId()).toUri())
+                    .body(JobStatus.of(job));
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(tempFile);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "5").body(null);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatus> status(@PathVariable String id) {
+        return ResponseEntity.of(conversionJobService.get(id).map(JobStatus::of));
+    }
+
+    /**
+     * The finished PDF; 409 with the job's status while it is not there (yet).
+     */
+    @GetMapping("/{id}/pdf")
+    public ResponseEntity<?> download(@PathVariable String id) {
+        Optional<ConversionJob> job = conversionJobService.get(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getState() != JobState.SUCCEEDED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(JobStatus.of(job.get()));
+        }
+        Resource pdf = new FileSystemResource(job.get().getResult());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"convertedFile.pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(pdf);
+    }
+
+    /**
+     * Cancels a job that has not finished yet, or discards the result of one that has.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<JobStatus> cancel(@PathVariable String id) {
+        return ResponseEntity.of(conversionJobService.cancel(id).map(JobStatus::of));
+    }
+
+    private void deleteQuietly(File file) {
+        if (file != null) {
+            file.delete();
+        }
+    }
+}
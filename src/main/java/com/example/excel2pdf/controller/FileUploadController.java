@@ -1,57 +1,313 @@
 package com.example.excel2pdf.controller;
 
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.admission.WorkbookRejectedException;
+import com.example.excel2pdf.batch.BatchConversionService;
+import com.example.excel2pdf.cache.CacheKey;
+import com.example.excel2pdf.cache.CachedPdf;
+import com.example.excel2pdf.cache.ConversionCache;
+import com.example.excel2pdf.config.FormulaMode;
+import com.example.excel2pdf.config.OutputMemory;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.service.ConversionExecutor;
+import com.example.excel2pdf.service.ConversionOptions;
+import com.example.excel2pdf.service.ConversionProgress;
 import com.example.excel2pdf.service.ExcelToPDFConverterService;
+import com.example.excel2pdf.service.InvalidSelectionException;
+import com.example.excel2pdf.service.Selection;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequiredArgsConstructor
 public class FileUploadController {
 
-    @Autowired
-    private ExcelToPDFConverterService excelToPDFConverterService;
+    private final ExcelToPDFConverterService excelToPDFConverterService;
+    private final ConversionExecutor conversionExecutor;
+    private final ConversionCache conversionCache;
+    private final BatchConversionService batchConversionService;
+    private final ConversionMetrics conversionMetrics;
+    private final ConversionAdmission conversionAdmission;
 
     @PostMapping("/convert-excel-to-pdf")
-    public ResponseEntity<ByteArrayResource> convertExcelToPDF(@RequestParam("file") MultipartFile file) {
-        if (file.isEmpty()) {
+    public ResponseEntity<StreamingResponseBody> convertExcelToPDF(@RequestParam("file") MultipartFile file,
+                                                                   @RequestParam(value = "formulas", required = false) FormulaMode formulaMode,
+                                                                   @RequestParam(value = "memory", required = false) OutputMemory outputMemory,
+                                                                   @RequestParam(value = "sheets", required = false) List<String> sheets,
+                                                                   @RequestParam(value = "ranges", required = false) List<String> ranges,
+                                                                   @RequestParam(value = "names", required = false) List<String> names,
+                                                                   @RequestParam(value = "pages", required = false) String pages,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                   HttpServletRequest request) {
+        Optional<Selection> selection = Selection.parse(sheets, ranges, names, pages);
+        if (file.isEmpty() || selection.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
 
+        File tempFile = null;
+        ConversionAdmission.Admission admission = null;
+        ConversionExecutor.Reservation reservation = null;
         try {
-            File tempFile = Files.createTempFile(null, null).toFile();
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                fos.write(file.getBytes());
+            tempFile = Files.createTempFile("excel2pdf-", ".upload").toFile();
+            // Moves the part Spring already spooled to disk instead of copying it through the heap
+            file.transferTo(tempFile);
+            File excelFile = tempFile;
+            ConversionOptions options = new ConversionOptions(formulaMode, outputMemory, selection.get());
+
+            // Cached results are served before a conversion slot is claimed, so they are not turned away under load
+            CacheKey cacheKey = null;
+            if (conversionCache.isEnabled()) {
+                cacheKey = conversionCache.key(excelFile, options);
+                // RFC 9110 allows 304 only for GET and HEAD; a POST whose If-None-Match matches fails its precondition
+                if (cacheKey.matches(ifNoneMatch)) {
+                    deleteQuietly(tempFile);
+                    conversionMetrics.recordRequest("convert", "precondition_failed");
+                    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(cacheKey.etag()).build();
+                }
+                Optional<CachedPdf> cached = conversionCache.get(cacheKey);
+                if (cached.isPresent()) {
+                    deleteQuietly(tempFile);
+                    conversionMetrics.recordRequest("convert", "cached");
+                    CachedPdf pdf = cached.get();
+                    return pdfResponse(cacheKey)
+                            .contentLength(pdf.size())
+                            .body(releasedIfNeverWritten(request, outputStream -> {
+                                try (pdf) {
+                                    pdf.content().transferTo(outputStream);
+                                }
+                            }, () -> closeQuietly(pdf)));
+                }
             }
 
-            excelToPDFConverterService.convertExcelToPDF(tempFile);
+            // The workbook's cost is checked before it is parsed, so a pathological upload is answered with 413 here
+            try {
+                admission = conversionAdmission.admit(excelFile);
+                reservation = conversionExecutor.reserve();
+            } catch (WorkbookRejectedException e) {
+                deleteQuietly(tempFile);
+                conversionMetrics.recordRequest("convert", "too_large");
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(null);
+            } catch (RejectedExecutionException e) {
+                if (admission != null) {
+                    admission.close();
+                }
+                deleteQuietly(tempFile);
+                conversionMetrics.recordRequest("convert", "rejected");
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(null);
+            }
+            // Only the sheet and defined names are read here; the workbook itself is loaded inside the reserved slot
+            try {
+                excelToPDFConverterService.checkSelection(excelFile, options, admission);
+            } catch (InvalidSelectionException e) {
+                admission.close();
+                reservation.close();
+                deleteQuietly(tempFile);
+                conversionMetrics.recordRequest("convert", "invalid_selection");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            }
+            ConversionAdmission.Admission admitted = admission;
+            ConversionExecutor.Reservation slot = reservation;
+            CacheKey key = cacheKey;
 
-            byte[] pdfContent = Files.readAllBytes(Path.of("output.pdf"));
-            ByteArrayResource resource = new ByteArrayResource(pdfContent);
+            // PDFBox writes straight into the response; nothing is buffered in a file or byte array in between
+            StreamingResponseBody body = outputStream -> {
+                String outcome = "failed";
+                try {
+                    slot.execute(() -> convert(excelFile, outputStream, options, admitted, key));
+                    outcome = "converted";
+                } catch (InvalidSelectionException e) {
+                    outcome = "invalid_selection";
+                    throw e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Conversion interrupted");
+                } finally {
+                    conversionMetrics.recordRequest("convert", outcome);
+                    admitted.close();
+                    Files.deleteIfExists(excelFile.toPath());
+                }
+            };
+
+            return pdfResponse(cacheKey).body(releasedIfNeverWritten(request, body, () -> {
+                conversionMetrics.recordRequest("convert", "abandoned");
+                slot.close();
+                admitted.close();
+                deleteQuietly(excelFile);
+            }));
+        } catch (IOException | RuntimeException e) {
+            if (admission != null) {
+                admission.close();
+            }
+            if (reservation != null) {
+                reservation.close();
+            }
+            deleteQuietly(tempFile);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Converts every .xlsx and .xls in the uploaded ZIP and streams back a ZIP of the PDFs, with an
+     * {@code errors.txt} listing the workbooks that could not be converted. The batch takes one conversion slot.
+     */
+    @PostMapping("/convert-excel-to-pdf/batch")
+    public ResponseEntity<StreamingResponseBody> convertBatch(@RequestParam("file") MultipartFile file,
+                                                              @RequestParam(value = "formulas", required = false) FormulaMode formulaMode,
+                                                              @RequestParam(value = "memory", required = false) OutputMemory outputMemory,
+                                                              @RequestParam(value = "sheets", required = false) List<String> sheets,
+                                                              @RequestParam(value = "ranges", required = false) List<String> ranges,
+                                                              @RequestParam(value = "names", required = false) List<String> names,
+                                                              @RequestParam(value = "pages", required = false) String pages,
+                                                              HttpServletRequest request) {
+        Optional<Selection> selection = Selection.parse(sheets, ranges, names, pages);
+        if (file.isEmpty() || selection.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        ConversionExecutor.Reservation reservation;
+        try {
+            reservation = conversionExecutor.reserve();
+        } catch (RejectedExecutionException e) {
+            conversionMetrics.recordRequest("batch", "rejected");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(null);
+        }
+
+        File tempFile = null;
+        try {
+            tempFile = Files.createTempFile("excel2pdf-", ".zip").toFile();
+            file.transferTo(tempFile);
+            File archive = tempFile;
+            ConversionOptions options = new ConversionOptions(formulaMode, outputMemory, selection.get());
+
+            StreamingResponseBody body = outputStream -> {
+                String outcome = "failed";
+                try {
+                    reservation.execute(() -> {
+                        try {
+                            batchConversionService.convert(archive, outputStream, options);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Batch interrupted");
+                        }
+                    });
+                    outcome = "converted";
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Batch interrupted");
+                } finally {
+                    conversionMetrics.recordRequest("batch", outcome);
+                    Files.deleteIfExists(archive.toPath());
+                }
+            };
 
             return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"convertedFile.pdf\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(resource.contentLength())
-                    .body(resource);
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"convertedFiles.zip\"")
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .body(releasedIfNeverWritten(request, body, () -> {
+                        conversionMetrics.recordRequest("batch", "abandoned");
+                        reservation.close();
+                        deleteQuietly(archive);
+                    }));
         } catch (IOException e) {
+            reservation.close();
+            deleteQuietly(tempFile);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
-        } finally {
-            new File("output.pdf").delete();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A selection that leaves nothing to print is only found out while rendering, before any of the PDF is written.
+     */
+    @ExceptionHandler(InvalidSelectionException.class)
+    public ResponseEntity<Void> invalidSelection(HttpServletResponse response) {
+        // Drops the PDF headers set when the response was started
+        response.reset();
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+    }
+
+    /**
+     * Converts into the response and, when caching, records the PDF on the way through. It is only cached if the
+     * conversion finishes.
+     */
+    private void convert(File excelFile, OutputStream outputStream, ConversionOptions options, ConversionAdmission.Admission admission,
+                         CacheKey cacheKey) throws IOException {
+        if (cacheKey == null) {
+            excelToPDFConverterService.convertExcelToPDF(excelFile, outputStream, options, new ConversionProgress(), admission);
+            return;
+        }
+        try (ConversionCache.Recorder recorder = conversionCache.record(cacheKey, outputStream)) {
+            excelToPDFConverterService.convertExcelToPDF(excelFile, recorder, options, new ConversionProgress(), admission);
+            recorder.commit();
+        }
+    }
+
+    /**
+     * Spring writes a streaming body on its async executor after the handler returns. If the request completes before
+     * that happens, say it timed out in the queue or the executor turned it away, the body never runs and nor does its
+     * cleanup; {@code release} runs instead. Once the body has started, it does its own cleanup.
+     */
+    private static StreamingResponseBody releasedIfNeverWritten(HttpServletRequest request, StreamingResponseBody body, Runnable release) {
+        AtomicBoolean claimed = new AtomicBoolean();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(StreamingResponseBody.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        if (claimed.compareAndSet(false, true)) {
+                            release.run();
+                        }
+                    }
+                });
+        return outputStream -> {
+            if (claimed.compareAndSet(false, true)) {
+                body.writeTo(outputStream);
+            }
+        };
+    }
+
+    private static ResponseEntity.BodyBuilder pdfResponse(CacheKey cacheKey) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"convertedFile.pdf\"")
+                .contentType(MediaType.APPLICATION_PDF);
+        return cacheKey != null ? response.eTag(cacheKey.etag()) : response;
+    }
+
+    private void deleteQuietly(File file) {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    private static void closeQuietly(CachedPdf pdf) {
+        try {
+            pdf.close();
+        } catch (IOException e) {
+            // Nothing was read from it, so there is nothing to report
+        }
+    }
+}
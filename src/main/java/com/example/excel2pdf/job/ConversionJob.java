@@ -0,0 +1,96 @@
+package com.example.excel2pdf.job;
+
+import com.example.excel2pdf.service.ConversionProgress;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.Future;
+
+/**
+ * One submitted conversion. The state only moves forward, from {@link JobState#QUEUED} through
+ * {@link JobState#RUNNING} to one of the finished states; the transitions are synchronized, so a cancellation racing
+ * with the end of the conversion leaves the job either cancelled without a result or succeeded with one.
+ */
+@Getter
+public class ConversionJob {
+
+    private final String id;
+    private final Instant submittedAt;
+    private final ConversionProgress progress = new ConversionProgress();
+
+    private volatile JobState state = JobState.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile Path result;
+
+    @Getter(AccessLevel.NONE)
+    private Future<?> future;
+    @Getter(AccessLevel.NONE)
+    private JobState cancelledAs;
+
+    ConversionJob(String id, Instant submittedAt) {
+        this.id = id;
+        this.submittedAt = submittedAt;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * @return false when the job was cancelled while it waited and must not run
+     */
+    synchronized boolean start(Instant now) {
+        if (state != JobState.QUEUED) {
+            return false;
+        }
+        state = JobState.RUNNING;
+        startedAt = now;
+        return true;
+    }
+
+    /**
+     * Cancels a queued job on the spot; its worker skips it and only cleans up. A running one is asked to stop and
+     * finishes as {@code reason} once the converter gives up.
+     *
+     * @param reason {@link JobState#CANCELLED} or {@link JobState#TIMED_OUT}
+     * @return false when the job had already finished
+     */
+    synchronized boolean cancel(JobState reason, Instant now) {
+        if (state == JobState.QUEUED) {
+            state = reason;
+            finishedAt = now;
+            return true;
+        }
+        if (state != JobState.RUNNING) {
+            return false;
+        }
+        cancelledAs = reason;
+        progress.cancel();
+        if (future != null) {
+            // Also interrupts whatever the converter is blocked on
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    /**
+     * Records the outcome of a run. A cancellation requested meanwhile takes precedence over the outcome.
+     *
+     * @return false when the job ended up cancelled instead, so the result is not kept
+     */
+    synchronized boolean finish(Path result, String error, Instant now) {
+        finishedAt = now;
+        if (cancelledAs != null) {
+            state = cancelledAs;
+            return false;
+        }
+        this.result = result;
+        this.error = error;
+        state = result != null ? JobState.SUCCEEDED : JobState.FAILED;
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.excel2pdf.job;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.service.ConversionExecutor;
+import com.example.excel2pdf.service.ConversionOptions;
+import com.example.excel2pdf.service.ExcelToPDFConverterService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs conversions in the background for clients that should not hold a connection open while a large workbook
+ * renders. Jobs take a slot of the {@link ConversionExecutor} like synchronous requests do, so both share one
+ * concurrency limit and queue. They are cancelled when they run past their timeout, and write the PDF to the results
+ * directory, where it stays downloadable for {@code result-ttl}.
+ * <p>
+ * Jobs live on the heap only; the results directory is emptied at startup.
+ */
+@Slf4j
+@Service
+public class ConversionJobService implements DisposableBean {
+
+    private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+    private final ExcelToPDFConverterService excelToPDFConverterService;
+    private final ConversionExecutor conversionExecutor;
+    private final Clock clock;
+    private final Duration timeout;
+    private final Duration resultTtl;
+    private final Path directory;
+
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public ConversionJobService(ConverterProperties converterProperties, ExcelToPDFConverterService excelToPDFConverterService,
+                                ConversionExecutor conversionExecutor) throws IOException {
+        this(converterProperties, excelToPDFConverterService, conversionExecutor, Clock.systemUTC());
+    }
+
+    ConversionJobService(ConverterProperties converterProperties, ExcelToPDFConverterService excelToPDFConverterService,
+                         ConversionExecutor conversionExecutor, Clock clock) throws IOException {
+        ConverterProperties.Jobs settings = converterProperties.getJobs();
+        this.excelToPDFConverterService = excelToPDFConverterService;
+        this.conversionExecutor = conversionExecutor;
+        this.clock = clock;
+        this.timeout = settings.getTimeout();
+        this.resultTtl = settings.getResultTtl();
+        this.directory = Files.createDirectories(settings.getDirectory().toPath());
+        deleteLeftoverResults();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("excel2pdf-job-scheduler").daemon().factory());
+    }
+
+    /**
+     * Starts sweeping expired results, once the service is fully constructed.
+     */
+    @PostConstruct
+    void scheduleExpiry() {
+        scheduler.scheduleWithFixedDelay(this::expire, SWEEP_INTERVAL.toMillis(), SWEEP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the conversion. The job takes over {@code excelFile} and deletes it when done; on rejection it stays
+     * with the caller.
+     *
+     * @throws RejectedExecutionException when every conversion slot and queue position is taken
+     */
+    public ConversionJob submit(File excelFile, ConversionOptions options) {
+        ConversionExecutor.Reservation reservation = conversionExecutor.reserve();
+        ConversionJob job = new ConversionJob(UUID.randomUUID().toString(), clock.instant());
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(reservation.submit(() -> run(job, excelFile, options)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ConversionJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Cancels the job if it has not finished, or else forgets it and deletes its PDF.
+     *
+     * @return the job, or empty when it is unknown or has already expired
+     */
+    public Optional<ConversionJob> cancel(String id) {
+        ConversionJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (!job.cancel(JobState.CANCELLED, clock.instant())) {
+            discard(job);
+        }
+        return Optional.of(job);
+    }
+
+    /**
+     * Forgets finished jobs older than the result TTL and deletes their PDFs.
+     */
+    void expire() {
+        Instant cutoff = clock.instant().minus(resultTtl);
+        for (ConversionJob job : jobs.values()) {
+            Instant finishedAt = job.getFinishedAt();
+            if (job.getState().isFinished() && finishedAt != null && !finishedAt.isAfter(cutoff)) {
+                discard(job);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        // Running jobs are interrupted when the conversion executor shuts down
+    }
+
+    private void run(ConversionJob job, File excelFile, ConversionOptions options) {
+        try {
+            if (!job.start(clock.instant())) {
+                return;
+            }
+            ScheduledFuture<?> timer = scheduler.schedule(() -> job.cancel(JobState.TIMED_OUT, clock.instant()), timeout.toMillis(), TimeUnit.MILLISECONDS);
+            Path result = directory.resolve(job.getId() + ".pdf");
+            try {
+                try (OutputStream outputStream = Files.newOutputStream(result)) {
+                    excelToPDFConverterService.convertExcelToPDF(excelFile, outputStream, options, job.getProgress());
+                }
+                if (!job.finish(result, null, clock.instant())) {
+                    deleteQuietly(result);
+                }
+            } catch (IOException | RuntimeException e) {
+                deleteQuietly(result);
+                if (job.finish(null, e.getMessage(), clock.instant())) {
+                    log.warn("Conversion job {} failed", job.getId(), e);
+                }
+            } finally {
+                timer.cancel(false);
+            }
+            log.debug("Conversion job {} {} after {} rows", job.getId(), job.getState(), job.getProgress().getRowsRendered());
+        } finally {
+            deleteQuietly(excelFile.toPath());
+        }
+    }
+
+    private void discard(ConversionJob job) {
+        jobs.remove(job.getId());
+        if (job.getResult() != null) {
+            deleteQuietly(job.getResult());
+        }
+    }
+
+    private void deleteLeftoverResults() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.pdf")) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.excel2pdf.job;
+
+public enum JobState {
+
+    QUEUED,
+
+    RUNNING,
+
+    /**
+     * The PDF is ready for download.
+     */
+    SUCCEEDED,
+
+    FAILED,
+
+    CANCELLED,
+
+    /**
+     * Cancelled because it was still converting when its timeout ran out.
+     */
+    TIMED_OUT;
+
+    public boolean isFinished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
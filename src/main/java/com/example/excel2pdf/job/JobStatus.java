@@ -0,0 +1,27 @@
+package com.example.excel2pdf.job;
+
+import java.time.Instant;
+
+/**
+ * What the status endpoint reports about a job.
+ *
+ * @param sheetCount sheets the workbook will print, {@code null} while unknown (always for streamed workbooks)
+ * @param error      why a failed job failed
+ */
+public record JobStatus(String id,
+                        JobState state,
+                        Integer sheetCount,
+                        int sheetsRendered,
+                        long rowsRendered,
+                        Instant submittedAt,
+                        Instant startedAt,
+                        Instant finishedAt,
+                        String error) {
+
+    public static JobStatus of(ConversionJob job) {
+        int sheetCount = job.getProgress().getSheetCount();
+        return new JobStatus(job.getId(), job.getState(), sheetCount >= 0 ? sheetCount : null,
+                job.getProgress().getSheetsRendered(), job.getProgress().getRowsRendered(),
+                job.getSubmittedAt(), job.getStartedAt(), job.getFinishedAt(), job.getError());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.excel2pdf.layout;
+
+/**
+ * An inclusive run of rows or columns.
+ */
+public record Band(int first, int last) {
+
+    public boolean contains(int index) {
+        return index >= first && index <= last;
+    }
+}
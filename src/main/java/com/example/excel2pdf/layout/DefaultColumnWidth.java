@@ -0,0 +1,30 @@
+package com.example.excel2pdf.layout;
+
+/**
+ * The width, in characters, of the columns a sheet declares no width for, from its {@code sheetFormatPr}. Shared by the
+ * DOM and streaming paths so both print undeclared columns alike.
+ */
+public final class DefaultColumnWidth {
+
+    /**
+     * Excel's {@code baseColWidth} when a sheet declares none.
+     */
+    public static final double BASE_COLUMN_WIDTH = 8;
+
+    private DefaultColumnWidth() {
+    }
+
+    /**
+     * {@code defaultColWidth} when the sheet declares it. Otherwise {@code baseColWidth}, which counts digits only, plus
+     * the 4 pixels of margin and 1 of gridline ECMA-376 adds, at the 7 pixel maximum digit width of the default font.
+     *
+     * @param defaultColWidth the declared {@code defaultColWidth}, or {@code null}
+     * @param baseColWidth    the declared {@code baseColWidth}, or {@code null}
+     */
+    public static double inCharacters(Double defaultColWidth, Double baseColWidth) {
+        if (defaultColWidth != null) {
+            return defaultColWidth;
+        }
+        return (baseColWidth != null ? baseColWidth : BASE_COLUMN_WIDTH) + 5.0 / 7;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.excel2pdf.layout;
+
+/**
+ * The cells printed on one page: a block of rows and columns, preceded by the sheet's title rows and columns when the
+ * page does not already start with them.
+ *
+ * @param titleRows    rows repeated at the top of this page, or {@code null}
+ * @param titleColumns columns repeated at the left of this page, or {@code null}
+ */
+public record PageArea(Band titleRows, Band rows, Band titleColumns, Band columns) {
+}
@@ -0,0 +1,139 @@
+package com.example.excel2pdf.layout;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCol;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheetFormatPr;
+
+/**
+ * Row heights and column widths of a sheet in points, read from POI once and kept as prefix sums: {@code rowOffsets[r]}
+ * is the distance from the top of row 0 to the top of row {@code r}, and likewise for columns. The size of any row,
+ * column or span is then a subtraction. Hidden rows and columns take no space; rows missing from the file take the
+ * sheet's default height. Past the end of the tables every row and column has the default size.
+ */
+public class SheetGeometry {
+
+    private final float[] rowOffsets;
+    private final float[] columnOffsets;
+    private final float defaultRowHeight;
+    private final float defaultColumnWidth;
+
+    public SheetGeometry(Sheet sheet) {
+        this.defaultRowHeight = sheet.getDefaultRowHeightInPoints();
+        int defaultColumnWidthUnits = defaultColumnWidthUnits(sheet);
+        this.defaultColumnWidth = toPoints(defaultColumnWidthUnits);
+
+        int rowCount = sheet.getLastRowNum() + 1;
+        int columnCount = 0;
+        for (Row row : sheet) {
+            columnCount = Math.max(columnCount, row.getLastCellNum());
+        }
+        for (CellRangeAddress region : sheet.getMergedRegions()) {
+            rowCount = Math.max(rowCount, region.getLastRow() + 1);
+            columnCount = Math.max(columnCount, region.getLastColumn() + 1);
+        }
+
+        // Summed in double so a long sheet's offsets do not drift
+        rowOffsets = new float[rowCount + 1];
+        double y = 0;
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            Row row = sheet.getRow(rowIndex);
+            y += row == null ? defaultRowHeight : row.getZeroHeight() ? 0 : row.getHeightInPoints();
+            rowOffsets[rowIndex + 1] = (float) y;
+        }
+        columnOffsets = new float[columnCount + 1];
+        double x = 0;
+        for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+            x += sheet.isColumnHidden(columnIndex) ? 0 : toPoints(columnWidthUnits(sheet, columnIndex, defaultColumnWidthUnits));
+            columnOffsets[columnIndex + 1] = (float) x;
+        }
+    }
+
+    /**
+     * Rows up to the last one in the file or covered by a merged region.
+     */
+    public int rowCount() {
+        return rowOffsets.length - 1;
+    }
+
+    /**
+     * Columns up to the last one holding a cell or covered by a merged region.
+     */
+    public int columnCount() {
+        return columnOffsets.length - 1;
+    }
+
+    public float rowHeight(int rowIndex) {
+        return rowOffset(rowIndex + 1) - rowOffset(rowIndex);
+    }
+
+    public float columnWidth(int columnIndex) {
+        return columnOffset(columnIndex + 1) - columnOffset(columnIndex);
+    }
+
+    /**
+     * Distance from the top of the sheet to the top of the row.
+     */
+    public float rowOffset(int rowIndex) {
+        int last = rowOffsets.length - 1;
+        return rowIndex <= last ? rowOffsets[rowIndex] : rowOffsets[last] + (rowIndex - last) * defaultRowHeight;
+    }
+
+    /**
+     * Distance from the left of the sheet to the left of the column.
+     */
+    public float columnOffset(int columnIndex) {
+        int last = columnOffsets.length - 1;
+        return columnIndex <= last ? columnOffsets[columnIndex] : columnOffsets[last] + (columnIndex - last) * defaultColumnWidth;
+    }
+
+    public float height(Band rows) {
+        return height(rows.first(), rows.last());
+    }
+
+    public float width(Band columns) {
+        return width(columns.first(), columns.last());
+    }
+
+    public float height(int firstRow, int lastRow) {
+        return rowOffset(lastRow + 1) - rowOffset(firstRow);
+    }
+
+    public float width(int firstColumn, int lastColumn) {
+        return columnOffset(lastColumn + 1) - columnOffset(firstColumn);
+    }
+
+    /**
+     * POI answers {@code baseColWidth} for an .xlsx, which leaves out the padding Excel adds, so the width comes from
+     * {@link DefaultColumnWidth} as on the streaming path.
+     */
+    private static int defaultColumnWidthUnits(Sheet sheet) {
+        if (!(sheet instanceof XSSFSheet xssfSheet)) {
+            return sheet.getDefaultColumnWidth() * 256;
+        }
+        CTSheetFormatPr format = xssfSheet.getCTWorksheet().getSheetFormatPr();
+        double width = DefaultColumnWidth.inCharacters(
+                format != null && format.isSetDefaultColWidth() ? format.getDefaultColWidth() : null,
+                format != null && format.isSetBaseColWidth() ? (double) format.getBaseColWidth() : null);
+        return (int) Math.round(width * 256);
+    }
+
+    private static int columnWidthUnits(Sheet sheet, int columnIndex, int defaultColumnWidthUnits) {
+        if (sheet instanceof XSSFSheet xssfSheet) {
+            CTCol column = xssfSheet.getColumnHelper().getColumn(columnIndex, false);
+            if (column == null || !column.isSetWidth()) {
+                return defaultColumnWidthUnits;
+            }
+        }
+        return sheet.getColumnWidth(columnIndex);
+    }
+
+    /**
+     * 1/256 character units at 6pt per character, as the converter has always measured columns.
+     */
+    private static float toPoints(int widthUnits) {
+        return widthUnits * 6f / 256;
+    }
+}
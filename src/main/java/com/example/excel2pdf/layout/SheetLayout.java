@@ -0,0 +1,12 @@
+package com.example.excel2pdf.layout;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.util.List;
+
+/**
+ * How a sheet is printed: the paper every page uses, the scale its cells are drawn at and the pages in print order.
+ * An empty sheet has no pages.
+ */
+public record SheetLayout(PDRectangle paper, float scale, List<PageArea> pages) {
+}
@@ -0,0 +1,214 @@
+package com.example.excel2pdf.layout;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.poi.ss.usermodel.PrintSetup;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Splits a sheet into pages the way Excel prints it: the print area (or the used range), manual row and column breaks,
+ * the page setup's scale or fit-to-page, repeated title rows and columns, paper size, orientation and page order.
+ */
+public class SheetPaginator {
+
+    private final float margin;
+
+    /**
+     * @param margin blank border kept on every side of the paper, in points
+     */
+    public SheetPaginator(float margin) {
+        this.margin = margin;
+    }
+
+    public SheetLayout paginate(Workbook workbook, int sheetIndex, SheetGeometry geometry) {
+        return paginate(workbook, sheetIndex, geometry, UsedRange.of(workbook.getSheetAt(sheetIndex)));
+    }
+
+    public SheetLayout paginate(Workbook workbook, int sheetIndex, SheetGeometry geometry, UsedRange usedRange) {
+        return paginate(workbook, sheetIndex, geometry, usedRange, null);
+    }
+
+    /**
+     * @param requested areas to print instead of the sheet's print area, or {@code null} for the print area
+     */
+    public SheetLayout paginate(Workbook workbook, int sheetIndex, SheetGeometry geometry, UsedRange usedRange, List<CellRangeAddress> requested) {
+        Sheet sheet = workbook.getSheetAt(sheetIndex);
+        PrintSetup printSetup = sheet.getPrintSetup();
+        PDRectangle paper = paper(sheet, printSetup);
+
+        List<CellRangeAddress> areas = requested != null ? clip(requested, usedRange) : printAreas(workbook, sheetIndex, usedRange);
+        if (areas.isEmpty()) {
+            return new SheetLayout(paper, 1, List.of());
+        }
+
+        float scale = scale(sheet, printSetup, paper, areas, geometry);
+        float usableWidth = (paper.getWidth() - 2 * margin) / scale;
+        float usableHeight = (paper.getHeight() - 2 * margin) / scale;
+
+        Band titleRows = band(sheet.getRepeatingRows(), true);
+        Band titleColumns = band(sheet.getRepeatingColumns(), false);
+        float titleHeight = titleRows != null ? geometry.height(titleRows) : 0;
+        float titleWidth = titleColumns != null ? geometry.width(titleColumns) : 0;
+
+        // Excel ignores manual breaks when the sheet is fitted to a number of pages
+        int[] rowBreaks = sheet.getFitToPage() ? new int[0] : sorted(sheet.getRowBreaks());
+        int[] columnBreaks = sheet.getFitToPage() ? new int[0] : sorted(sheet.getColumnBreaks());
+
+        List<PageArea> pages = new ArrayList<>();
+        for (CellRangeAddress area : areas) {
+            List<Band> rowBands = split(area.getFirstRow(), area.getLastRow(), geometry::rowHeight, rowBreaks, usableHeight, titleRows, titleHeight);
+            List<Band> columnBands = split(area.getFirstColumn(), area.getLastColumn(), geometry::columnWidth, columnBreaks, usableWidth, titleColumns, titleWidth);
+
+            if (printSetup.getLeftToRight()) {
+                for (Band rows : rowBands) {
+                    for (Band columns : columnBands) {
+                        pages.add(page(rows, columns, titleRows, titleColumns));
+                    }
+                }
+            } else {
+                for (Band columns : columnBands) {
+                    for (Band rows : rowBands) {
+                        pages.add(page(rows, columns, titleRows, titleColumns));
+                    }
+                }
+            }
+        }
+        return new SheetLayout(paper, scale, pages);
+    }
+
+    private static PageArea page(Band rows, Band columns, Band titleRows, Band titleColumns) {
+        return new PageArea(titleRows != null && rows.first() > titleRows.last() ? titleRows : null,
+                rows,
+                titleColumns != null && columns.first() > titleColumns.last() ? titleColumns : null,
+                columns);
+    }
+
+    /**
+     * Greedily fills each page with rows (or columns) until the next one would not fit, ending a page early at a manual
+     * break. A page always takes at least one row, however tall. Room for the titles is kept on every page that starts
+     * after them.
+     */
+    private static List<Band> split(int first, int last, IntToDoubleFunction size, int[] breaks, float usable, Band titles, float titleSize) {
+        List<Band> bands = new ArrayList<>();
+        int start = first;
+        while (start <= last) {
+            float available = titles != null && start > titles.last() ? usable - titleSize : usable;
+            float used = (float) size.applyAsDouble(start);
+            int end = start;
+            while (end < last && Arrays.binarySearch(breaks, end) < 0) {
+                float next = (float) size.applyAsDouble(end + 1);
+                if (used + next > available) {
+                    break;
+                }
+                used += next;
+                end++;
+            }
+            bands.add(new Band(start, end));
+            start = end + 1;
+        }
+        return bands;
+    }
+
+    /**
+     * Fit-to-page shrinks the sheet until its widest area spans at most {@code fitWidth} pages across and
+     * {@code fitHeight} pages down (0 leaves that direction free); otherwise the page setup's percentage applies.
+     */
+    private float scale(Sheet sheet, PrintSetup printSetup, PDRectangle paper, List<CellRangeAddress> areas, SheetGeometry geometry) {
+        if (!sheet.getFitToPage()) {
+            short percent = printSetup.getScale();
+            return percent >= 10 && percent <= 400 ? percent / 100f : 1;
+        }
+        float width = 0;
+        float height = 0;
+        for (CellRangeAddress area : areas) {
+            width = Math.max(width, geometry.width(new Band(area.getFirstColumn(), area.getLastColumn())));
+            height = Math.max(height, geometry.height(new Band(area.getFirstRow(), area.getLastRow())));
+        }
+        float scale = 1;
+        if (printSetup.getFitWidth() > 0 && width > 0) {
+            scale = Math.min(scale, printSetup.getFitWidth() * (paper.getWidth() - 2 * margin) / width);
+        }
+        if (printSetup.getFitHeight() > 0 && height > 0) {
+            scale = Math.min(scale, printSetup.getFitHeight() * (paper.getHeight() - 2 * margin) / height);
+        }
+        return scale;
+    }
+
+    /**
+     * The sheet's print areas in order, clipped to the used range, or the used range itself when none is defined.
+     */
+    private static List<CellRangeAddress> printAreas(Workbook workbook, int sheetIndex, UsedRange usedRange) {
+        CellRangeAddress used = usedRange.area();
+        String printArea = workbook.getPrintArea(sheetIndex);
+        if (printArea == null) {
+            return used != null ? List.of(used) : List.of();
+        }
+        List<CellRangeAddress> areas = new ArrayList<>();
+        for (AreaReference reference : AreaReference.generateContiguous(workbook.getSpreadsheetVersion(), printArea)) {
+            areas.add(new CellRangeAddress(reference.getFirstCell().getRow(), reference.getLastCell().getRow(),
+                    reference.getFirstCell().getCol(), reference.getLastCell().getCol()));
+        }
+        return clip(areas, usedRange);
+    }
+
+    /**
+     * Whole-row and whole-column areas stop at the last used cell instead of running to row 1,048,576.
+     */
+    private static List<CellRangeAddress> clip(List<CellRangeAddress> areas, UsedRange usedRange) {
+        CellRangeAddress used = usedRange.area();
+        if (used == null) {
+            return areas;
+        }
+        List<CellRangeAddress> clipped = new ArrayList<>(areas.size());
+        for (CellRangeAddress area : areas) {
+            clipped.add(new CellRangeAddress(area.getFirstRow(), Math.min(area.getLastRow(), Math.max(used.getLastRow(), area.getFirstRow())),
+                    area.getFirstColumn(), Math.min(area.getLastColumn(), Math.max(used.getLastColumn(), area.getFirstColumn()))));
+        }
+        return clipped;
+    }
+
+    private static Band band(CellRangeAddress range, boolean rows) {
+        if (range == null) {
+            return null;
+        }
+        int first = rows ? range.getFirstRow() : range.getFirstColumn();
+        int last = rows ? range.getLastRow() : range.getLastColumn();
+        return first >= 0 && last >= first ? new Band(first, last) : null;
+    }
+
+    private static int[] sorted(int[] breaks) {
+        int[] copy = breaks.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * An .xlsx that never picked a paper size reports Letter, the format's implicit default; it keeps printing on A4 as
+     * it always has.
+     */
+    private static PDRectangle paper(Sheet sheet, PrintSetup printSetup) {
+        short paperSize = sheet instanceof XSSFSheet xssfSheet && !hasPaperSize(xssfSheet) ? PrintSetup.A4_PAPERSIZE : printSetup.getPaperSize();
+        PDRectangle paper = switch (paperSize) {
+            case PrintSetup.LETTER_PAPERSIZE -> PDRectangle.LETTER;
+            case PrintSetup.LEGAL_PAPERSIZE -> PDRectangle.LEGAL;
+            case PrintSetup.A3_PAPERSIZE -> PDRectangle.A3;
+            case PrintSetup.A5_PAPERSIZE -> PDRectangle.A5;
+            default -> PDRectangle.A4;
+        };
+        return printSetup.getLandscape() ? new PDRectangle(paper.getHeight(), paper.getWidth()) : paper;
+    }
+
+    private static boolean hasPaperSize(XSSFSheet sheet) {
+        CTWorksheet worksheet = sheet.getCTWorksheet();
+        return worksheet.isSetPageSetup() && worksheet.getPageSetup().isSetPaperSize();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.excel2pdf.layout;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * The part of a sheet that prints something: cells with a value, a solid fill or a border, rows formatted with a fill
+ * or border, and merged regions whose top-left cell is one of those. Rows and columns past it that only carry
+ * formatting nothing is drawn for (a font, a number format, an explicitly blank cell) are left out, so a sheet
+ * formatted out to column XFD prints only its content.
+ * <p>
+ * Also answers whether a style draws anything at all, so the renderer can pass over cells that would paint nothing.
+ * Found in one pass over the cells the file holds; the answer per style is cached by style index.
+ */
+public final class UsedRange {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte VISIBLE = 1;
+    private static final byte INVISIBLE = 2;
+
+    private final byte[] styleVisibility;
+    private final int firstRow;
+    private int lastRow = -1;
+    private int lastColumn = -1;
+
+    private UsedRange(Sheet sheet) {
+        this.styleVisibility = new byte[sheet.getWorkbook().getNumCellStyles()];
+        this.firstRow = sheet.getFirstRowNum();
+        for (Row row : sheet) {
+            if (row.isFormatted() && isVisible(row.getRowStyle())) {
+                lastRow = Math.max(lastRow, row.getRowNum());
+            }
+            int lastOutput = -1;
+            for (Cell cell : row) {
+                if (producesOutput(cell)) {
+                    lastOutput = cell.getColumnIndex();
+                }
+            }
+            if (lastOutput >= 0) {
+                lastRow = Math.max(lastRow, row.getRowNum());
+                lastColumn = Math.max(lastColumn, lastOutput);
+            }
+        }
+        for (CellRangeAddress region : sheet.getMergedRegions()) {
+            Row row = sheet.getRow(region.getFirstRow());
+            Cell anchor = row != null ? row.getCell(region.getFirstColumn()) : null;
+            if (anchor != null && producesOutput(anchor)) {
+                lastRow = Math.max(lastRow, region.getLastRow());
+                lastColumn = Math.max(lastColumn, region.getLastColumn());
+            }
+        }
+    }
+
+    public static UsedRange of(Sheet sheet) {
+        return new UsedRange(sheet);
+    }
+
+    /**
+     * From the sheet's first row and column A to the last row and column with output; {@code null} when nothing on
+     * the sheet prints.
+     */
+    public CellRangeAddress area() {
+        if (lastRow < 0) {
+            return null;
+        }
+        return new CellRangeAddress(Math.min(firstRow, lastRow), lastRow, 0, Math.max(lastColumn, 0));
+    }
+
+    /**
+     * Whether the cell draws anything: a value, or a style that does.
+     */
+    public boolean producesOutput(Cell cell) {
+        CellType cellType = cell.getCellType();
+        if (cellType == CellType.STRING ? !cell.getStringCellValue().isEmpty() : cellType != CellType.BLANK) {
+            return true;
+        }
+        return isVisible(cell.getCellStyle());
+    }
+
+    /**
+     * Whether a cell in this style draws something even when empty: a solid fill, the only fill the renderer paints,
+     * or a border.
+     */
+    public boolean isVisible(CellStyle cellStyle) {
+        if (cellStyle == null) {
+            return false;
+        }
+        int index = cellStyle.getIndex();
+        // Style indexes are shorts, so those past 32,767 come back negative
+        if (index < 0 || index >= styleVisibility.length) {
+            return visible(cellStyle);
+        }
+        if (styleVisibility[index] == UNKNOWN) {
+            styleVisibility[index] = visible(cellStyle) ? VISIBLE : INVISIBLE;
+        }
+        return styleVisibility[index] == VISIBLE;
+    }
+
+    private static boolean visible(CellStyle cellStyle) {
+        return cellStyle.getFillPattern() == FillPatternType.SOLID_FOREGROUND
+                || cellStyle.getBorderTop() != BorderStyle.NONE
+                || cellStyle.getBorderBottom() != BorderStyle.NONE
+                || cellStyle.getBorderLeft() != BorderStyle.NONE
+                || cellStyle.getBorderRight() != BorderStyle.NONE;
+    }
+}
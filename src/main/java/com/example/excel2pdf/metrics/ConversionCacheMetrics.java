@@ -0,0 +1,69 @@
+package com.example.excel2pdf.metrics;
+
+import com.example.excel2pdf.cache.CacheStats;
+import com.example.excel2pdf.cache.ConversionCache;
+import com.example.excel2pdf.config.ConverterProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the {@link ConversionCache}'s {@link CacheStats}, read whenever the registry is scraped:
+ * <ul>
+ *     <li>{@code excel2pdf.cache.hits}, {@code .evictions} and {@code .expirations}: counters by tier</li>
+ *     <li>{@code excel2pdf.cache.misses}: lookups neither tier could answer</li>
+ *     <li>{@code excel2pdf.cache.entries} and {@code .size}: gauges of what each tier holds now</li>
+ * </ul>
+ * Nothing is bound while {@code excel2pdf.metrics.enabled} or the cache is off.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversionCacheMetrics implements MeterBinder {
+
+    private final ConverterProperties converterProperties;
+    private final ConversionCache conversionCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!converterProperties.getMetrics().isEnabled() || !conversionCache.isEnabled()) {
+            return;
+        }
+        bindTier(registry, "memory", CacheStats::memoryHits, CacheStats::memoryEvictions, CacheStats::memoryExpirations,
+                CacheStats::memoryEntries, CacheStats::memoryBytes);
+        bindTier(registry, "disk", CacheStats::diskHits, CacheStats::diskEvictions, CacheStats::diskExpirations,
+                CacheStats::diskEntries, CacheStats::diskBytes);
+        FunctionCounter.builder("excel2pdf.cache.misses", conversionCache, cache -> cache.getStats().misses())
+                .description("Lookups neither tier could answer")
+                .register(registry);
+    }
+
+    private void bindTier(MeterRegistry registry, String tier, ToLongFunction<CacheStats> hits, ToLongFunction<CacheStats> evictions,
+                          ToLongFunction<CacheStats> expirations, ToLongFunction<CacheStats> entries, ToLongFunction<CacheStats> bytes) {
+        FunctionCounter.builder("excel2pdf.cache.hits", conversionCache, cache -> hits.applyAsLong(cache.getStats()))
+                .description("Lookups answered by the tier")
+                .tag("tier", tier)
+                .register(registry);
+        FunctionCounter.builder("excel2pdf.cache.evictions", conversionCache, cache -> evictions.applyAsLong(cache.getStats()))
+                .description("Entries dropped to stay within the tier's byte budget")
+                .tag("tier", tier)
+                .register(registry);
+        FunctionCounter.builder("excel2pdf.cache.expirations", conversionCache, cache -> expirations.applyAsLong(cache.getStats()))
+                .description("Entries dropped because they outlived the TTL")
+                .tag("tier", tier)
+                .register(registry);
+        Gauge.builder("excel2pdf.cache.entries", conversionCache, cache -> entries.applyAsLong(cache.getStats()))
+                .description("PDFs the tier holds")
+                .tag("tier", tier)
+                .register(registry);
+        Gauge.builder("excel2pdf.cache.size", conversionCache, cache -> bytes.applyAsLong(cache.getStats()))
+                .description("Bytes of PDFs the tier holds")
+                .tag("tier", tier)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.excel2pdf.metrics;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters and JFR events for conversions, exposed through Actuator's {@code /actuator/metrics} and
+ * {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code excel2pdf.conversion.stage}: a timer with a histogram per {@link ConversionStage}</li>
+ *     <li>{@code excel2pdf.conversion.cells}, {@code .merged.regions}, {@code .formulas} (by mode) and
+ *     {@code .pages}: what the conversions drew</li>
+ *     <li>{@code excel2pdf.conversion.input} and {@code .output}: distributions of workbook and PDF sizes</li>
+ *     <li>{@code excel2pdf.requests}: requests by endpoint and outcome</li>
+ *     <li>{@code excel2pdf.cache.*}: the conversion cache's tiers, bound by {@link ConversionCacheMetrics}</li>
+ * </ul>
+ * Meters are registered once, up front. With {@code excel2pdf.metrics.enabled} off nothing is registered or timed,
+ * and a stage costs only its JFR event, which the JIT reduces to almost nothing while no recording asks for it.
+ */
+@Component
+public class ConversionMetrics {
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<ConversionStage, Timer> stageTimers = new EnumMap<>(ConversionStage.class);
+    private final Counter cells;
+    private final Counter mergedRegions;
+    private final Counter evaluatedFormulas;
+    private final Counter cachedFormulas;
+    private final Counter pages;
+    private final DistributionSummary inputBytes;
+    private final DistributionSummary outputBytes;
+
+    public ConversionMetrics(ConverterProperties converterProperties, MeterRegistry meterRegistry) {
+        this.enabled = converterProperties.getMetrics().isEnabled();
+        this.meterRegistry = meterRegistry;
+        if (!enabled) {
+            cells = mergedRegions = evaluatedFormulas = cachedFormulas = pages = null;
+            inputBytes = outputBytes = null;
+            return;
+        }
+        for (ConversionStage stage : ConversionStage.values()) {
+            stageTimers.put(stage, Timer.builder("excel2pdf.conversion.stage")
+                    .description("Time spent per conversion stage")
+                    .tag("stage", stage.tag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        cells = counter("excel2pdf.conversion.cells", "Cells drawn");
+        mergedRegions = counter("excel2pdf.conversion.merged.regions", "Merged regions drawn, once per page they appear on");
+        evaluatedFormulas = Counter.builder("excel2pdf.conversion.formulas").description("Formula cells printed").tag("mode", "evaluated").register(meterRegistry);
+        cachedFormulas = Counter.builder("excel2pdf.conversion.formulas").description("Formula cells printed").tag("mode", "cached").register(meterRegistry);
+        pages = counter("excel2pdf.conversion.pages", "PDF pages written");
+        inputBytes = bytes("excel2pdf.conversion.input", "Size of the workbooks converted");
+        outputBytes = bytes("excel2pdf.conversion.output", "Size of the PDFs written");
+    }
+
+    /**
+     * Metrics that record nothing, for converters built outside the application context.
+     */
+    public static ConversionMetrics disabled() {
+        ConverterProperties properties = new ConverterProperties();
+        properties.getMetrics().setEnabled(false);
+        return new ConversionMetrics(properties, new SimpleMeterRegistry());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing a stage; closing the returned timing ends it, whether the stage succeeded or not.
+     */
+    public Timing time(ConversionStage stage) {
+        return new Timing(stage);
+    }
+
+    /**
+     * Records time measured elsewhere, for stages that happen in many small pieces.
+     */
+    public void record(ConversionStage stage, long nanos) {
+        if (enabled) {
+            stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Adds what one rendered document drew.
+     */
+    public void recordDocument(long cellCount, long mergedRegionCount, long evaluatedFormulaCount, long cachedFormulaCount, int pageCount) {
+        if (enabled) {
+            cells.increment(cellCount);
+            mergedRegions.increment(mergedRegionCount);
+            evaluatedFormulas.increment(evaluatedFormulaCount);
+            cachedFormulas.increment(cachedFormulaCount);
+            pages.increment(pageCount);
+        }
+    }
+
+    public void recordInput(long bytes) {
+        if (enabled) {
+            inputBytes.record(bytes);
+        }
+    }
+
+    /**
+     * Wraps a stream to count the bytes of a PDF written through it; the count is recorded when the wrapper is
+     * closed. Returns the stream itself while metrics are off.
+     */
+    public OutputStream countOutput(OutputStream outputStream) {
+        return enabled ? new CountingOutputStream(outputStream) : outputStream;
+    }
+
+    /**
+     * Counts a request by endpoint and outcome, e.g. {@code converted}, {@code cached} or {@code rejected}.
+     */
+    public void recordRequest(String endpoint, String outcome) {
+        if (enabled) {
+            meterRegistry.counter("excel2pdf.requests", "endpoint", endpoint, "outcome", outcome).increment();
+        }
+    }
+
+    private Counter counter(String name, String description) {
+        return Counter.builder(name).description(description).register(meterRegistry);
+    }
+
+    private DistributionSummary bytes(String name, String description) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * One stage in progress: a JFR event, plus a timer sample while metrics are on.
+     */
+    public final class Timing implements AutoCloseable {
+
+        private final ConversionStage stage;
+        private final ConversionStageEvent event = new ConversionStageEvent();
+        private final long start;
+
+        private Timing(ConversionStage stage) {
+            this.stage = stage;
+            this.start = enabled ? System.nanoTime() : 0;
+            event.begin();
+        }
+
+        @Override
+        public void close() {
+            if (enabled) {
+                stageTimers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            event.commit(stage);
+        }
+    }
+
+    private class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            outputBytes.record(count);
+        }
+    }
+}
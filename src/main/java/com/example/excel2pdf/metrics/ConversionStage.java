@@ -0,0 +1,39 @@
+package com.example.excel2pdf.metrics;
+
+import java.util.Locale;
+
+/**
+ * The parts a conversion's time is reported in. {@link #FONTS} and {@link #FORMULAS} are spent inside
+ * {@link #RENDER} and are reported on their own as well, as they are the usual suspects when rendering is slow.
+ */
+public enum ConversionStage {
+
+    /**
+     * Reading the workbook up to the point rendering can start: the whole DOM, or the package of a streamed .xlsx.
+     */
+    OPEN,
+
+    /**
+     * Binding the fonts a document uses to it.
+     */
+    FONTS,
+
+    /**
+     * Recalculating formula cells.
+     */
+    FORMULAS,
+
+    /**
+     * Laying out and drawing every page, including the sheet parsing of a streamed .xlsx.
+     */
+    RENDER,
+
+    /**
+     * {@code PDDocument.save}: subsetting the fonts, compressing and writing the PDF.
+     */
+    SAVE;
+
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.excel2pdf.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one stage of a conversion, so a recording lines the stages up with GC pauses, allocation samples
+ * and the threads that ran them. Costs next to nothing unless a recording has it enabled.
+ */
+@Name("com.example.excel2pdf.ConversionStage")
+@Label("Conversion Stage")
+@Category("Excel2PDF")
+@Description("One stage of converting a workbook to PDF")
+public class ConversionStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    /**
+     * Ends the event and commits it if a recording wants it.
+     */
+    public void commit(ConversionStage conversionStage) {
+        end();
+        if (shouldCommit()) {
+            stage = conversionStage.tag();
+            commit();
+        }
+    }
+}
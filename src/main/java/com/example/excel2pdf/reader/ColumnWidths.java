@@ -0,0 +1,95 @@
+package com.example.excel2pdf.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column widths declared in a sheet's {@code <cols>} element, expressed in PDF points. Hidden columns are 0 wide.
+ * <p>
+ * {@code <cols>} comes before {@code <sheetData>}, so the ranges are complete by the first lookup. That lookup turns
+ * them into prefix sums of column offsets up to the last declared column, and from then on the width of a column or of
+ * any span of columns is a subtraction.
+ */
+public class ColumnWidths {
+
+    private final List<int[]> ranges = new ArrayList<>();
+    private final List<Float> widths = new ArrayList<>();
+    private float defaultWidthInPoints;
+
+    private float[] offsets;
+
+    public ColumnWidths(double defaultWidthInCharacters) {
+        this.defaultWidthInPoints = toPoints(defaultWidthInCharacters);
+    }
+
+    public void setDefaultWidth(double widthInCharacters) {
+        this.defaultWidthInPoints = toPoints(widthInCharacters);
+        offsets = null;
+    }
+
+    /**
+     * Registers a width for the zero-based, inclusive column range.
+     */
+    public void add(int firstColumn, int lastColumn, double widthInCharacters) {
+        addInPoints(firstColumn, lastColumn, toPoints(widthInCharacters));
+    }
+
+    /**
+     * Registers a zero-based, inclusive range of hidden columns.
+     */
+    public void hide(int firstColumn, int lastColumn) {
+        addInPoints(firstColumn, lastColumn, 0);
+    }
+
+    public float widthInPoints(int columnIndex) {
+        return offset(columnIndex + 1) - offset(columnIndex);
+    }
+
+    /**
+     * Width of the columns {@code firstColumn} to {@code lastColumn}, inclusive.
+     */
+    public float spanInPoints(int firstColumn, int lastColumn) {
+        return offset(lastColumn + 1) - offset(firstColumn);
+    }
+
+    private void addInPoints(int firstColumn, int lastColumn, float width) {
+        ranges.add(new int[]{firstColumn, lastColumn});
+        widths.add(width);
+        offsets = null;
+    }
+
+    private float offset(int columnIndex) {
+        if (offsets == null) {
+            offsets = buildOffsets();
+        }
+        int last = offsets.length - 1;
+        return columnIndex <= last ? offsets[columnIndex] : offsets[last] + (columnIndex - last) * defaultWidthInPoints;
+    }
+
+    private float[] buildOffsets() {
+        int columnCount = 0;
+        for (int[] range : ranges) {
+            columnCount = Math.max(columnCount, range[1] + 1);
+        }
+        float[] columnWidths = new float[columnCount];
+        Arrays.fill(columnWidths, defaultWidthInPoints);
+        // Filled back to front, so the first range declared for a column wins
+        for (int i = ranges.size() - 1; i >= 0; i--) {
+            int[] range = ranges.get(i);
+            Arrays.fill(columnWidths, range[0], range[1] + 1, widths.get(i));
+        }
+        float[] columnOffsets = new float[columnCount + 1];
+        double x = 0;
+        for (int column = 0; column < columnCount; column++) {
+            x += columnWidths[column];
+            columnOffsets[column + 1] = (float) x;
+        }
+        return columnOffsets;
+    }
+
+    private static float toPoints(double widthInCharacters) {
+        // Same conversion as Sheet.getColumnWidth (1/256 character units) followed by the DOM path's 6pt per character.
+        return Math.round(widthInCharacters * 256) * 6f / 256;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.excel2pdf.reader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A workbook opened read-only straight from a file. An .xlsx is read through {@link OPCPackage}'s zip file and an .xls
+ * through {@link POIFSFileSystem}'s file channel, so the upload is never buffered into a heap array first, as
+ * {@code WorkbookFactory.create(InputStream)} does.
+ */
+public final class ReadOnlyWorkbook implements Closeable {
+
+    private final Workbook workbook;
+
+    private ReadOnlyWorkbook(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    public static ReadOnlyWorkbook open(File excelFile) throws IOException {
+        FileMagic fileMagic = FileMagic.valueOf(excelFile);
+        if (fileMagic == FileMagic.OOXML) {
+            OPCPackage opcPackage;
+            try {
+                opcPackage = OPCPackage.open(excelFile, PackageAccess.READ);
+            } catch (InvalidFormatException e) {
+                throw new IOException("Unable to open .xlsx package: " + e.getMessage(), e);
+            }
+            try {
+                return new ReadOnlyWorkbook(new XSSFWorkbook(opcPackage));
+            } catch (IOException | RuntimeException e) {
+                opcPackage.revert();
+                throw e;
+            }
+        }
+        if (fileMagic == FileMagic.OLE2) {
+            POIFSFileSystem fileSystem = new POIFSFileSystem(excelFile, true);
+            try {
+                return new ReadOnlyWorkbook(WorkbookFactory.create(fileSystem));
+            } catch (IOException | RuntimeException e) {
+                fileSystem.close();
+                throw e;
+            }
+        }
+        throw new IOException("Unsupported workbook format: " + fileMagic);
+    }
+
+    public Workbook getWorkbook() {
+        return workbook;
+    }
+
+    /**
+     * Releases the underlying file without writing anything back.
+     */
+    @Override
+    public void close() throws IOException {
+        if (workbook instanceof XSSFWorkbook xssfWorkbook) {
+            xssfWorkbook.getPackage().revert();
+        } else {
+            workbook.close();
+        }
+    }
+}
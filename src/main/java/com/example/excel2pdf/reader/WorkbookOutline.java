@@ -0,0 +1,93 @@
+package com.example.excel2pdf.reader;
+
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder;
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.NameRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A workbook's sheet names and defined names, read without loading any sheet, shared string or style: for an .xlsx
+ * only the workbook part, for an .xls only the workbook globals records up to the first sheet.
+ *
+ * @param sheetNames   the sheets, in workbook order
+ * @param definedNames the formulas the defined names refer to, looked up case-insensitively; when a name is defined
+ *                     for several sheets, the first definition in the file wins
+ */
+public record WorkbookOutline(List<String> sheetNames, Map<String, String> definedNames) {
+
+    public static WorkbookOutline read(File excelFile) throws IOException {
+        FileMagic fileMagic = FileMagic.valueOf(excelFile);
+        if (fileMagic == FileMagic.OOXML) {
+            return readXlsx(excelFile);
+        }
+        if (fileMagic == FileMagic.OLE2) {
+            return readXls(excelFile);
+        }
+        throw new IOException("Unsupported workbook format: " + fileMagic);
+    }
+
+    private static WorkbookOutline readXlsx(File xlsxFile) throws IOException {
+        OPCPackage opcPackage;
+        try {
+            opcPackage = OPCPackage.open(xlsxFile, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Unable to open .xlsx package: " + e.getMessage(), e);
+        }
+        try {
+            return XlsxStreamingReader.readOutline(new XSSFReader(opcPackage));
+        } catch (OpenXML4JException e) {
+            throw new IOException("Unable to read .xlsx workbook part: " + e.getMessage(), e);
+        } finally {
+            opcPackage.revert();
+        }
+    }
+
+    private static WorkbookOutline readXls(File xlsFile) throws IOException {
+        try (POIFSFileSystem fileSystem = new POIFSFileSystem(xlsFile, true);
+             InputStream workbookStream = fileSystem.createDocumentInputStream(HSSFWorkbook.getWorkbookDirEntryName(fileSystem.getRoot()))) {
+            RecordFactoryInputStream records = new RecordFactoryInputStream(workbookStream, false);
+            List<Record> globals = new ArrayList<>();
+            EventWorkbookBuilder.SheetRecordCollectingListener sheetRecords = new EventWorkbookBuilder.SheetRecordCollectingListener(null);
+            for (Record record = records.nextRecord(); record != null; record = records.nextRecord()) {
+                globals.add(record);
+                sheetRecords.processRecordInternally(record);
+                if (record instanceof EOFRecord) {
+                    break;
+                }
+            }
+            InternalWorkbook workbook = InternalWorkbook.createWorkbook(globals);
+            List<String> sheetNames = new ArrayList<>();
+            for (int sheetIndex = 0; sheetIndex < workbook.getNumSheets(); sheetIndex++) {
+                sheetNames.add(workbook.getSheetName(sheetIndex));
+            }
+            // Renders 3D references the way HSSFName does, from the external sheet table in the globals
+            HSSFWorkbook stub = sheetRecords.getStubHSSFWorkbook();
+            Map<String, String> definedNames = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int nameIndex = 0; nameIndex < workbook.getNumNames(); nameIndex++) {
+                NameRecord name = workbook.getNameRecord(nameIndex);
+                definedNames.putIfAbsent(name.getNameText(), HSSFFormulaParser.toFormulaString(stub, name.getNameDefinition()));
+            }
+            return new WorkbookOutline(sheetNames, definedNames);
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to read .xls workbook globals: " + e.getMessage(), e);
+        }
+    }
+}
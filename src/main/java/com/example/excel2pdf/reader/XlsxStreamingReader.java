@@ -0,0 +1,387 @@
+package com.example.excel2pdf.reader;
+
+import com.example.excel2pdf.layout.DefaultColumnWidth;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads .xlsx sheets through POI's event API. Only the shared strings and styles tables are kept in memory;
+ * sheet XML is parsed with SAX and handed to a {@link SheetHandler} one row at a time.
+ */
+public class XlsxStreamingReader implements Closeable {
+
+    private static final float DEFAULT_ROW_HEIGHT = 15f;
+
+    private final OPCPackage opcPackage;
+    private final XSSFReader xssfReader;
+    private final SharedStrings sharedStrings;
+    private final StylesTable stylesTable;
+    private final DataFormatter dataFormatter = new DataFormatter();
+    private WorkbookOutline outline;
+
+    public XlsxStreamingReader(File xlsxFile) throws IOException {
+        try {
+            this.opcPackage = OPCPackage.open(xlsxFile, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Unable to open .xlsx package: " + e.getMessage(), e);
+        }
+        try {
+            this.xssfReader = new XSSFReader(opcPackage);
+            this.sharedStrings = new ReadOnlySharedStringsTable(opcPackage, false);
+            this.stylesTable = xssfReader.getStylesTable();
+        } catch (OpenXML4JException | SAXException | IOException e) {
+            opcPackage.revert();
+            throw new IOException("Unable to read .xlsx workbook parts: " + e.getMessage(), e);
+        }
+    }
+
+    public XSSFCellStyle getCellStyle(int styleIndex) {
+        return stylesTable.getStyleAt(styleIndex);
+    }
+
+    /**
+     * Streams the sheets the filter accepts, in workbook order, into the handler. The XML of the other sheets is
+     * never read.
+     */
+    public void readSheets(SheetFilter filter, SheetHandler handler) throws IOException {
+        try {
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            for (int sheetIndex = 0; sheets.hasNext(); sheetIndex++) {
+                // <mergeCell> elements follow <sheetData>, so a cheap first pass collects them before any row is rendered.
+                MergedRegionsHandler mergedRegionsHandler = new MergedRegionsHandler();
+                try (InputStream sheetData = sheets.next()) {
+                    if (!filter.accept(sheetIndex, sheets.getSheetName())) {
+                        continue;
+                    }
+                    parse(sheetData, mergedRegionsHandler);
+                }
+
+                PackagePart sheetPart = sheets.getSheetPart();
+                try (InputStream sheetData = sheetPart.getInputStream()) {
+                    parse(sheetData, new SheetDataHandler(sheets.getSheetName(), mergedRegionsHandler.mergedRegions, handler));
+                }
+            }
+        } catch (OpenXML4JException e) {
+            throw new IOException("Unable to read .xlsx sheets: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The sheet names and defined names, read from the workbook part the first time they are asked for.
+     */
+    public WorkbookOutline getOutline() throws IOException {
+        if (outline == null) {
+            try {
+                outline = readOutline(xssfReader);
+            } catch (OpenXML4JException e) {
+                throw new IOException("Unable to read .xlsx workbook part: " + e.getMessage(), e);
+            }
+        }
+        return outline;
+    }
+
+    static WorkbookOutline readOutline(XSSFReader xssfReader) throws IOException, OpenXML4JException {
+        WorkbookHandler handler = new WorkbookHandler();
+        try (InputStream workbookData = xssfReader.getWorkbookData()) {
+            parse(workbookData, handler);
+        }
+        return new WorkbookOutline(handler.sheetNames, handler.definedNames);
+    }
+
+    @Override
+    public void close() {
+        opcPackage.revert();
+    }
+
+    private static void parse(InputStream xml, ContentHandler contentHandler) throws IOException {
+        try {
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(contentHandler);
+            xmlReader.parse(new InputSource(xml));
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Unable to create SAX parser", e);
+        } catch (SAXException e) {
+            if (e.getException() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Malformed sheet XML: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isSpreadsheetElement(String uri) {
+        return uri == null || uri.isEmpty() || XSSFRelation.NS_SPREADSHEETML.equals(uri);
+    }
+
+    /**
+     * xsd:boolean, which allows {@code 1} as well as {@code true}.
+     */
+    private static boolean isTrue(String value) {
+        return "1".equals(value) || "true".equals(value);
+    }
+
+    @FunctionalInterface
+    public interface SheetFilter {
+
+        /**
+         * @param sheetIndex zero-based position of the sheet in the workbook
+         */
+        boolean accept(int sheetIndex, String sheetName);
+    }
+
+    public interface SheetHandler {
+
+        void startSheet(SheetInfo sheet) throws IOException;
+
+        void row(StreamedRow row) throws IOException;
+
+        void endSheet() throws IOException;
+    }
+
+    /**
+     * @param defaultRowHeight the height, in points, of the rows the sheet XML leaves out
+     */
+    public record SheetInfo(String name, ColumnWidths columnWidths, float defaultRowHeight, List<CellRangeAddress> mergedRegions) {
+    }
+
+    /**
+     * A row as it appears in the sheet XML. Only cells present in the file are listed, ordered by column; a row the
+     * XML leaves out is not reported at all.
+     */
+    public record StreamedRow(int rowIndex, float heightInPoints, List<StreamedCell> cells) {
+
+        public int lastCellNum() {
+            return cells.isEmpty() ? -1 : cells.get(cells.size() - 1).columnIndex() + 1;
+        }
+    }
+
+    public record StreamedCell(int columnIndex, int styleIndex, String text) {
+    }
+
+    private static class MergedRegionsHandler extends DefaultHandler {
+
+        private final List<CellRangeAddress> mergedRegions = new ArrayList<>();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (isSpreadsheetElement(uri) && "mergeCell".equals(localName)) {
+                String ref = attributes.getValue("ref");
+                if (ref != null) {
+                    mergedRegions.add(CellRangeAddress.valueOf(ref));
+                }
+            }
+        }
+    }
+
+    private static class WorkbookHandler extends DefaultHandler {
+
+        private final List<String> sheetNames = new ArrayList<>();
+        private final Map<String, String> definedNames = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final StringBuilder formula = new StringBuilder();
+        private String name;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (isSpreadsheetElement(uri) && "sheet".equals(localName)) {
+                sheetNames.add(attributes.getValue("name"));
+            } else if (isSpreadsheetElement(uri) && "definedName".equals(localName)) {
+                name = attributes.getValue("name");
+                formula.setLength(0);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (name != null) {
+                formula.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (isSpreadsheetElement(uri) && "definedName".equals(localName) && name != null) {
+                definedNames.putIfAbsent(name, formula.toString().strip());
+                name = null;
+            }
+        }
+    }
+
+    private class SheetDataHandler extends DefaultHandler {
+
+        private final String sheetName;
+        private final List<CellRangeAddress> mergedRegions;
+        private final SheetHandler handler;
+        private final ColumnWidths columnWidths = new ColumnWidths(DefaultColumnWidth.inCharacters(null, null));
+        private float defaultRowHeight = DEFAULT_ROW_HEIGHT;
+
+        private int rowIndex = -1;
+        private float rowHeight;
+        private List<StreamedCell> cells;
+
+        private int columnIndex;
+        private int styleIndex;
+        private String cellType;
+        private boolean formula;
+        private boolean collectingValue;
+        private final StringBuilder value = new StringBuilder();
+
+        SheetDataHandler(String sheetName, List<CellRangeAddress> mergedRegions, SheetHandler handler) {
+            this.sheetName = sheetName;
+            this.mergedRegions = mergedRegions;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            if (!isSpreadsheetElement(uri)) {
+                return;
+            }
+            switch (localName) {
+                case "sheetFormatPr" -> {
+                    String defaultColWidth = attributes.getValue("defaultColWidth");
+                    String baseColWidth = attributes.getValue("baseColWidth");
+                    columnWidths.setDefaultWidth(DefaultColumnWidth.inCharacters(
+                            defaultColWidth != null ? Double.valueOf(defaultColWidth) : null,
+                            baseColWidth != null ? Double.valueOf(baseColWidth) : null));
+                    String defaultRowHeightValue = attributes.getValue("defaultRowHeight");
+                    if (defaultRowHeightValue != null) {
+                        defaultRowHeight = Float.parseFloat(defaultRowHeightValue);
+                    }
+                }
+                case "col" -> {
+                    int firstColumn = Integer.parseInt(attributes.getValue("min")) - 1;
+                    int lastColumn = Integer.parseInt(attributes.getValue("max")) - 1;
+                    String width = attributes.getValue("width");
+                    if (isTrue(attributes.getValue("hidden"))) {
+                        columnWidths.hide(firstColumn, lastColumn);
+                    } else if (width != null) {
+                        columnWidths.add(firstColumn, lastColumn, Double.parseDouble(width));
+                    }
+                }
+                case "sheetData" -> notifyHandler(() -> handler.startSheet(new SheetInfo(sheetName, columnWidths, defaultRowHeight, mergedRegions)));
+                case "row" -> {
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    String ht = attributes.getValue("ht");
+                    rowHeight = isTrue(attributes.getValue("hidden")) ? 0 : ht != null ? Float.parseFloat(ht) : defaultRowHeight;
+                    cells = new ArrayList<>();
+                    columnIndex = -1;
+                }
+                case "c" -> {
+                    String r = attributes.getValue("r");
+                    columnIndex = r != null ? new CellReference(r).getCol() : columnIndex + 1;
+                    String s = attributes.getValue("s");
+                    styleIndex = s != null ? Integer.parseInt(s) : 0;
+                    cellType = attributes.getValue("t");
+                    formula = false;
+                    value.setLength(0);
+                }
+                case "f" -> formula = true;
+                case "v", "t" -> collectingValue = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collectingValue) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (!isSpreadsheetElement(uri)) {
+                return;
+            }
+            switch (localName) {
+                case "v", "t" -> collectingValue = false;
+                case "c" -> cells.add(new StreamedCell(columnIndex, styleIndex, formatValue()));
+                case "row" -> notifyHandler(() -> handler.row(new StreamedRow(rowIndex, rowHeight, cells)));
+                case "sheetData" -> notifyHandler(handler::endSheet);
+                default -> {
+                }
+            }
+        }
+
+        /**
+         * Mirrors the DOM path: formula cells show their (cached) result the way {@code formatCellValue} prints
+         * an evaluated {@code CellValue}, every other cell goes through {@link DataFormatter}.
+         */
+        private String formatValue() {
+            String raw = value.toString();
+            if (cellType == null) {
+                cellType = "n";
+            }
+            switch (cellType) {
+                case "s":
+                    return raw.isEmpty() ? "" : sharedStrings.getItemAt(Integer.parseInt(raw)).getString();
+                case "inlineStr":
+                case "str":
+                    return raw;
+                case "b":
+                    boolean booleanValue = "1".equals(raw);
+                    if (formula) {
+                        return String.valueOf(booleanValue);
+                    }
+                    return booleanValue ? "TRUE" : "FALSE";
+                case "e":
+                    return formula ? "" : raw;
+                default:
+                    if (raw.isEmpty()) {
+                        return "";
+                    }
+                    double number = Double.parseDouble(raw);
+                    if (formula) {
+                        return String.valueOf(number);
+                    }
+                    XSSFCellStyle style = stylesTable.getStyleAt(styleIndex);
+                    if (style == null) {
+                        return dataFormatter.formatRawCellContents(number, 0, "General");
+                    }
+                    return dataFormatter.formatRawCellContents(number, style.getDataFormat(), style.getDataFormatString());
+            }
+        }
+
+        private void notifyHandler(HandlerCall call) throws SAXException {
+            try {
+                call.run();
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface HandlerCall {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.poi.ss.usermodel.BorderStyle;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The borders of one page, recorded on the sheet's grid instead of in page coordinates. A horizontal edge sits on a row
+ * boundary (the top of row {@code r}) and spans one column; a vertical edge sits on a column boundary and spans one row.
+ * Two cells sharing an edge therefore hit the same slot, and a merged region's side is just a run of slots.
+ * <p>
+ * Nothing is drawn while cells are added. {@link #stroke} joins adjacent edges of the same style into single segments
+ * and strokes each style once, so a bordered grid costs one path per line instead of four per cell.
+ */
+public class BorderGrid {
+
+    private static final BorderStyle[] STYLES = BorderStyle.values();
+
+    /**
+     * Sheet row of boundary slot 0; -1 until the first edge or coordinate of the page arrives.
+     */
+    private int baseRow = -1;
+    private int rowCount;
+
+    /**
+     * {@code horizontal[r][c]}: style ordinal of the edge on top of row {@code baseRow + r}, column {@code c}.
+     */
+    private byte[][] horizontal = new byte[64][];
+
+    /**
+     * {@code vertical[r][c]}: style ordinal of the edge left of column {@code c}, row {@code baseRow + r}.
+     */
+    private byte[][] vertical = new byte[64][];
+
+    private float[] rowY = new float[64];
+    private float[] columnX = new float[64];
+    private int columnCount;
+
+    private final Segments[] segments = new Segments[STYLES.length];
+
+    public BorderGrid() {
+        Arrays.fill(rowY, Float.NaN);
+        Arrays.fill(columnX, Float.NaN);
+    }
+
+    /**
+     * Records where the top of {@code row} is on the page.
+     */
+    public void setRowBoundary(int row, float y) {
+        // rowSlot may replace the array, so it has to run before rowY is read
+        int slot = rowSlot(row);
+        rowY[slot] = y;
+    }
+
+    /**
+     * Records where the left edge of {@code column} is on the page.
+     */
+    public void setColumnBoundary(int column, float x) {
+        ensureColumns(column + 1);
+        columnX[column] = x;
+    }
+
+    public void addCell(int row, int column, RenderStyle style) {
+        addRegion(row, row, column, column, style.borderTop(), style.borderBottom(), style.borderLeft(), style.borderRight());
+    }
+
+    /**
+     * Adds the outline of a block of cells. An edge that is already set keeps its style, as the first cell to draw a
+     * shared edge used to win.
+     */
+    public void addRegion(int firstRow, int lastRow, int firstColumn, int lastColumn,
+                          BorderStyle top, BorderStyle bottom, BorderStyle left, BorderStyle right) {
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            setEdge(true, firstRow, column, top);
+            setEdge(true, lastRow + 1, column, bottom);
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            setEdge(false, row, firstColumn, left);
+            setEdge(false, row, lastColumn + 1, right);
+        }
+    }
+
+    /**
+     * Draws every recorded edge and forgets the page. Rows that were never laid out (absent from the sheet) take no
+     * height, so an unknown row boundary sits where the previous one does.
+     */
+    public void stroke(PDPageContentStream contentStream) throws IOException {
+        if (baseRow < 0) {
+            return;
+        }
+        for (int slot = 1; slot < rowCount; slot++) {
+            if (Float.isNaN(rowY[slot])) {
+                rowY[slot] = rowY[slot - 1];
+            }
+        }
+
+        for (int slot = 0; slot < rowCount; slot++) {
+            collectHorizontal(slot);
+        }
+        for (int column = 0; column < columnCount; column++) {
+            collectVertical(column);
+        }
+
+        for (int ordinal = 1; ordinal < STYLES.length; ordinal++) {
+            Segments styleSegments = segments[ordinal];
+            if (styleSegments == null || styleSegments.size == 0) {
+                continue;
+            }
+            contentStream.setLineWidth(lineWidth(STYLES[ordinal]));
+            float[] points = styleSegments.points;
+            for (int i = 0; i < styleSegments.size; i += 4) {
+                contentStream.moveTo(points[i], points[i + 1]);
+                contentStream.lineTo(points[i + 2], points[i + 3]);
+            }
+            contentStream.stroke();
+        }
+        clear();
+    }
+
+    /**
+     * Drops everything recorded for the page, keeping the arrays for the next one.
+     */
+    public void clear() {
+        for (int slot = 0; slot < rowCount; slot++) {
+            if (horizontal[slot] != null) {
+                Arrays.fill(horizontal[slot], (byte) 0);
+            }
+            if (vertical[slot] != null) {
+                Arrays.fill(vertical[slot], (byte) 0);
+            }
+        }
+        Arrays.fill(rowY, 0, rowCount, Float.NaN);
+        Arrays.fill(columnX, 0, columnCount, Float.NaN);
+        for (Segments styleSegments : segments) {
+            if (styleSegments != null) {
+                styleSegments.size = 0;
+            }
+        }
+        baseRow = -1;
+        rowCount = 0;
+        columnCount = 0;
+    }
+
+    private void collectHorizontal(int slot) {
+        byte[] edges = horizontal[slot];
+        float y = rowY[slot];
+        if (edges == null || Float.isNaN(y)) {
+            return;
+        }
+        int column = 0;
+        while (column < edges.length) {
+            byte style = edges[column];
+            if (style == 0) {
+                column++;
+                continue;
+            }
+            int end = column + 1;
+            while (end < edges.length && edges[end] == style) {
+                end++;
+            }
+            if (!Float.isNaN(columnX[column]) && !Float.isNaN(columnX[end])) {
+                segments(style).add(columnX[column], y, columnX[end], y);
+            }
+            column = end;
+        }
+    }
+
+    private void collectVertical(int column) {
+        float x = columnX[column];
+        if (Float.isNaN(x)) {
+            return;
+        }
+        int slot = 0;
+        while (slot < rowCount) {
+            byte style = styleAt(vertical, slot, column);
+            if (style == 0) {
+                slot++;
+                continue;
+            }
+            int end = slot + 1;
+            while (end < rowCount && styleAt(vertical, end, column) == style) {
+                end++;
+            }
+            // The bottom of the run is the top of the row after it, recorded when that boundary was laid out
+            float endY = end < rowY.length ? rowY[end] : Float.NaN;
+            if (!Float.isNaN(rowY[slot]) && !Float.isNaN(endY)) {
+                segments(style).add(x, rowY[slot], x, endY);
+            }
+            slot = end;
+        }
+    }
+
+    private static byte styleAt(byte[][] edges, int slot, int column) {
+        byte[] row = edges[slot];
+        return row != null && column < row.length ? row[column] : 0;
+    }
+
+    private void setEdge(boolean horizontalEdge, int row, int column, BorderStyle style) {
+        if (style == BorderStyle.NONE) {
+            return;
+        }
+        int slot = rowSlot(row);
+        byte[][] edges = horizontalEdge ? horizontal : vertical;
+        byte[] edgeRow = edges[slot];
+        if (edgeRow == null || edgeRow.length <= column) {
+            edgeRow = edgeRow == null ? new byte[Math.max(column + 1, 16)] : Arrays.copyOf(edgeRow, Math.max(column + 1, edgeRow.length * 2));
+            edges[slot] = edgeRow;
+        }
+        if (edgeRow[column] == 0) {
+            edgeRow[column] = (byte) style.ordinal();
+        }
+        ensureColumns(column + 1);
+    }
+
+    /**
+     * Slot of a row boundary, growing the per-row arrays (or moving them down, for a row above the page's first) as
+     * needed.
+     */
+    private int rowSlot(int row) {
+        if (baseRow < 0) {
+            baseRow = row;
+        } else if (row < baseRow) {
+            rebase(row);
+        }
+        int slot = row - baseRow;
+        if (slot >= rowY.length) {
+            grow(slot + 1);
+        }
+        if (slot >= rowCount) {
+            rowCount = slot + 1;
+        }
+        return slot;
+    }
+
+    private void rebase(int row) {
+        int shift = baseRow - row;
+        grow(rowCount + shift);
+        System.arraycopy(horizontal, 0, horizontal, shift, rowCount);
+        System.arraycopy(vertical, 0, vertical, shift, rowCount);
+        System.arraycopy(rowY, 0, rowY, shift, rowCount);
+        Arrays.fill(horizontal, 0, shift, null);
+        Arrays.fill(vertical, 0, shift, null);
+        Arrays.fill(rowY, 0, shift, Float.NaN);
+        rowCount += shift;
+        baseRow = row;
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= rowY.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, rowY.length * 2);
+        horizontal = Arrays.copyOf(horizontal, newCapacity);
+        vertical = Arrays.copyOf(vertical, newCapacity);
+        int oldLength = rowY.length;
+        rowY = Arrays.copyOf(rowY, newCapacity);
+        Arrays.fill(rowY, oldLength, newCapacity, Float.NaN);
+    }
+
+    /**
+     * Column boundaries go one past the last column, the right edge of the last cell.
+     */
+    private void ensureColumns(int columns) {
+        if (columns + 1 > columnX.length) {
+            int oldLength = columnX.length;
+            columnX = Arrays.copyOf(columnX, Math.max(columns + 1, oldLength * 2));
+            Arrays.fill(columnX, oldLength, columnX.length, Float.NaN);
+        }
+        columnCount = Math.max(columnCount, columns + 1);
+    }
+
+    private Segments segments(byte style) {
+        Segments styleSegments = segments[style];
+        if (styleSegments == null) {
+            styleSegments = new Segments();
+            segments[style] = styleSegments;
+        }
+        return styleSegments;
+    }
+
+    static float lineWidth(BorderStyle style) {
+        switch (style) {
+            case HAIR:
+                return 0.5f;
+            case MEDIUM:
+            case MEDIUM_DASHED:
+            case MEDIUM_DASH_DOT:
+            case MEDIUM_DASH_DOT_DOT:
+            case SLANTED_DASH_DOT:
+                return 1.5f;
+            case THICK:
+            case DOUBLE:
+                return 2f;
+            default:
+                return 1f;
+        }
+    }
+
+    /**
+     * Growable list of x1, y1, x2, y2 quadruples, reused from page to page.
+     */
+    private static final class Segments {
+
+        private float[] points = new float[256];
+        private int size;
+
+        void add(float x1, float y1, float x2, float y2) {
+            if (size + 4 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[size++] = x1;
+            points[size++] = y1;
+            points[size++] = x2;
+            points[size++] = y2;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.excel2pdf.render;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionStage;
+import com.example.excel2pdf.metrics.ConversionStageEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses every configured TrueType font once, from the classpath stream (so it also works inside a fat jar), and keeps
+ * it for the lifetime of the application. Documents only bind a subset-embedded {@link PDType0Font} to the cached
+ * {@link TrueTypeFont}, which is cheap compared with re-parsing multi-megabyte CJK fonts per request.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FontRegistry {
+
+    private final ConverterProperties converterProperties;
+
+    private final Map<String, Family> families = new HashMap<>();
+    private final Map<String, Family> familiesByExcelName = new HashMap<>();
+
+    @PostConstruct
+    public void load() {
+        ConverterProperties.Fonts fonts = converterProperties.getFonts();
+        fonts.getFamilies().forEach((name, family) -> {
+            TrueTypeFont regular = parse(family.getRegular());
+            if (regular == null) {
+                return;
+            }
+            TrueTypeFont bold = family.getBold() != null ? parse(family.getBold()) : null;
+            Family loaded = new Family(name, regular, bold != null ? bold : regular);
+            families.put(name, loaded);
+            familiesByExcelName.put(name.toLowerCase(Locale.ROOT), loaded);
+            for (String excelName : family.getExcelNames()) {
+                familiesByExcelName.put(excelName.toLowerCase(Locale.ROOT), loaded);
+            }
+        });
+        if (!families.containsKey(fonts.getDefaultFamily())) {
+            log.warn("Default font family '{}' is not available; conversions will fail until it is configured", fonts.getDefaultFamily());
+        }
+    }
+
+    /**
+     * The family mapped to the given Excel font name, or the default family.
+     */
+    public Family resolve(String excelFontName) throws IOException {
+        Family family = excelFontName != null ? familiesByExcelName.get(excelFontName.toLowerCase(Locale.ROOT)) : null;
+        if (family == null) {
+            family = families.get(converterProperties.getFonts().getDefaultFamily());
+        }
+        if (family == null) {
+            throw new IOException("No font family available for '" + excelFontName + "'");
+        }
+        return family;
+    }
+
+    /**
+     * Creates the per-document view. Each cached font is bound to the document at most once, on first use.
+     */
+    public DocumentFonts forDocument(PDDocument pdfDocument) {
+        return new DocumentFonts(pdfDocument);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Family family : families.values()) {
+            closeQuietly(family.regular());
+            closeQuietly(family.bold());
+        }
+        families.clear();
+        familiesByExcelName.clear();
+    }
+
+    private TrueTypeFont parse(Resource resource) {
+        if (resource == null || !resource.exists()) {
+            log.warn("Font resource {} not found, skipping", resource);
+            return null;
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            TrueTypeFont font = new TTFParser().parse(inputStream);
+            // Binding once to a throwaway document reads every table PDFBox needs, so later concurrent use only reads
+            try (PDDocument warmUp = new PDDocument()) {
+                PDType0Font.load(warmUp, font, true);
+            }
+            return font;
+        } catch (IOException e) {
+            log.warn("Unable to parse font {}", resource, e);
+            return null;
+        }
+    }
+
+    private static void closeQuietly(TrueTypeFont font) {
+        try {
+            font.close();
+        } catch (IOException e) {
+            log.debug("Unable to close font", e);
+        }
+    }
+
+    public record Family(String name, TrueTypeFont regular, TrueTypeFont bold) {
+    }
+
+    /**
+     * Fonts of one document, bound on first use. Sheets of a conversion render in parallel, so binding is synchronized.
+     */
+    public class DocumentFonts {
+
+        private final PDDocument pdfDocument;
+        private final Map<TrueTypeFont, PDType0Font> bound = new HashMap<>();
+        private long bindNanos;
+
+        private DocumentFonts(PDDocument pdfDocument) {
+            this.pdfDocument = pdfDocument;
+        }
+
+        public synchronized PDType0Font get(String excelFontName, boolean bold) throws IOException {
+            Family family = resolve(excelFontName);
+            TrueTypeFont font = bold ? family.bold() : family.regular();
+            PDType0Font pdfFont = bound.get(font);
+            if (pdfFont == null) {
+                ConversionStageEvent event = new ConversionStageEvent();
+                event.begin();
+                long start = System.nanoTime();
+                pdfFont = PDType0Font.load(pdfDocument, font, true);
+                bindNanos += System.nanoTime() - start;
+                event.commit(ConversionStage.FONTS);
+                bound.put(font, pdfFont);
+            }
+            return pdfFont;
+        }
+
+        /**
+         * Time spent binding fonts to the document so far.
+         */
+        public synchronized long getBindNanos() {
+            return bindNanos;
+        }
+    }
+}
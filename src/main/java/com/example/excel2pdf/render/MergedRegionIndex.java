@@ -0,0 +1,153 @@
+package com.example.excel2pdf.render;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers "which merged region covers (row, column)?" without expanding regions into per-cell entries.
+ * <p>
+ * The rows are cut into bands at every region's first row and one past its last row, so every row of a band is
+ * covered by the same regions. Each band keeps its regions sorted by first column in flat int arrays. Excel does not
+ * allow merged regions to overlap, so a lookup is two binary searches: one for the band, one for the column. A
+ * 1000&times;20 merged block costs one entry, not 20,000.
+ */
+public final class MergedRegionIndex {
+
+    public static final MergedRegionIndex EMPTY = of(List.of());
+
+    private final CellRangeAddress[] regions;
+
+    /**
+     * Sorted first rows of the bands; band {@code b} spans {@code [bandStarts[b], bandStarts[b + 1])}.
+     */
+    private final int[] bandStarts;
+
+    /**
+     * Band {@code b}'s entries are {@code [bandOffsets[b], bandOffsets[b + 1])} of the entry arrays.
+     */
+    private final int[] bandOffsets;
+
+    private final int[] entryFirstColumns;
+    private final int[] entryLastColumns;
+    private final int[] entryRegions;
+
+    private MergedRegionIndex(CellRangeAddress[] regions) {
+        this.regions = regions;
+        Arrays.sort(regions, Comparator.comparingInt(CellRangeAddress::getFirstColumn));
+
+        int[] boundaries = new int[regions.length * 2];
+        for (int i = 0; i < regions.length; i++) {
+            boundaries[2 * i] = regions[i].getFirstRow();
+            boundaries[2 * i + 1] = regions[i].getLastRow() + 1;
+        }
+        Arrays.sort(boundaries);
+        int bandCount = 0;
+        for (int i = 0; i < boundaries.length; i++) {
+            if (i == 0 || boundaries[i] != boundaries[i - 1]) {
+                boundaries[bandCount++] = boundaries[i];
+            }
+        }
+        bandStarts = Arrays.copyOf(boundaries, bandCount);
+
+        // Count each band's regions, turn the counts into offsets, then fill in first-column order
+        bandOffsets = new int[bandCount + 1];
+        for (CellRangeAddress region : regions) {
+            for (int band = band(region.getFirstRow()); bandStarts[band] <= region.getLastRow(); band++) {
+                bandOffsets[band + 1]++;
+            }
+        }
+        for (int band = 0; band < bandCount; band++) {
+            bandOffsets[band + 1] += bandOffsets[band];
+        }
+        int entryCount = bandOffsets[bandCount];
+        entryFirstColumns = new int[entryCount];
+        entryLastColumns = new int[entryCount];
+        entryRegions = new int[entryCount];
+
+        int[] fill = Arrays.copyOf(bandOffsets, bandCount);
+        for (int i = 0; i < regions.length; i++) {
+            CellRangeAddress region = regions[i];
+            for (int band = band(region.getFirstRow()); bandStarts[band] <= region.getLastRow(); band++) {
+                int entry = fill[band]++;
+                entryFirstColumns[entry] = region.getFirstColumn();
+                entryLastColumns[entry] = region.getLastColumn();
+                entryRegions[entry] = i;
+            }
+        }
+    }
+
+    public static MergedRegionIndex of(Collection<CellRangeAddress> regions) {
+        return new MergedRegionIndex(regions.toArray(new CellRangeAddress[0]));
+    }
+
+    /**
+     * The region covering the cell, or {@code null} when it is not merged.
+     */
+    public CellRangeAddress find(int row, int column) {
+        int band = band(row);
+        if (band < 0) {
+            return null;
+        }
+        int low = bandOffsets[band];
+        int high = bandOffsets[band + 1] - 1;
+        // Last entry whose first column is at or before the cell
+        int match = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (entryFirstColumns[mid] <= column) {
+                match = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return match >= 0 && entryLastColumns[match] >= column ? regions[entryRegions[match]] : null;
+    }
+
+    /**
+     * The regions covering any of the row's cells from {@code firstColumn} to {@code lastColumn}, in column order.
+     */
+    public List<CellRangeAddress> inRow(int row, int firstColumn, int lastColumn) {
+        int band = band(row);
+        if (band < 0 || bandOffsets[band] == bandOffsets[band + 1]) {
+            return List.of();
+        }
+        List<CellRangeAddress> found = new ArrayList<>();
+        for (int entry = bandOffsets[band]; entry < bandOffsets[band + 1] && entryFirstColumns[entry] <= lastColumn; entry++) {
+            if (entryLastColumns[entry] >= firstColumn) {
+                found.add(regions[entryRegions[entry]]);
+            }
+        }
+        return found;
+    }
+
+    public boolean isMerged(int row, int column) {
+        return find(row, column) != null;
+    }
+
+    /**
+     * Whether the cell is the top-left cell of its region, the one that carries the region's value and style.
+     */
+    public boolean isAnchor(int row, int column) {
+        CellRangeAddress region = find(row, column);
+        return region != null && region.getFirstRow() == row && region.getFirstColumn() == column;
+    }
+
+    public int size() {
+        return regions.length;
+    }
+
+    /**
+     * The band containing {@code row}, or -1 before the first band. Rows past the last region fall in the final band,
+     * which never has entries.
+     */
+    private int band(int row) {
+        int index = Arrays.binarySearch(bandStarts, row);
+        return index >= 0 ? index : -index - 2;
+    }
+}
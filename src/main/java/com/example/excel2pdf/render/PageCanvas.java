@@ -0,0 +1,214 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects what the renderers draw on a page and writes it to the content stream in three passes when the page is
+ * done: every background fill, then every line of text inside a single BT/ET block, then the strokes (underlines and
+ * the {@link BorderGrid}). Colour, font and line width are only set when they change, and consecutive fills of one
+ * colour share a single path. Text can then never be painted over by the background of a cell drawn after it, and
+ * borders are never covered by fills.
+ * <p>
+ * Text that does not fit its cell is drawn after the rest, in its own text object inside a clipping rectangle per
+ * cell, so only overflowing cells pay for the extra graphics state.
+ */
+public class PageCanvas {
+
+    private static final float UNDERLINE_WIDTH = 0.5f;
+
+    private final BorderGrid borders = new BorderGrid();
+
+    private float[] fillRects = new float[256];
+    private Color[] fillColors = new Color[64];
+    private int fillCount;
+
+    private final List<TextRun> texts = new ArrayList<>();
+    private final List<TextRun> clippedTexts = new ArrayList<>();
+
+    private float[] underlines = new float[64];
+    private int underlineCount;
+
+    public BorderGrid getBorders() {
+        return borders;
+    }
+
+    public void fill(Color color, float x, float y, float width, float height) {
+        if (fillCount == fillColors.length) {
+            fillColors = Arrays.copyOf(fillColors, fillCount * 2);
+            fillRects = Arrays.copyOf(fillRects, fillCount * 8);
+        }
+        fillColors[fillCount] = color;
+        int offset = fillCount * 4;
+        fillRects[offset] = x;
+        fillRects[offset + 1] = y;
+        fillRects[offset + 2] = width;
+        fillRects[offset + 3] = height;
+        fillCount++;
+    }
+
+    /**
+     * @param x the start of the baseline
+     * @param y the baseline
+     */
+    public void text(PDType0Font font, float fontSize, Color color, float x, float y, String text) {
+        if (!text.isEmpty()) {
+            texts.add(new TextRun(font, fontSize, color, x, y, text, null));
+        }
+    }
+
+    /**
+     * Text shown only inside the given rectangle.
+     */
+    public void text(PDType0Font font, float fontSize, Color color, float x, float y, String text, Clip clip) {
+        if (!text.isEmpty()) {
+            clippedTexts.add(new TextRun(font, fontSize, color, x, y, text, clip));
+        }
+    }
+
+    public void underline(float x1, float x2, float y) {
+        if (underlineCount * 3 + 3 > underlines.length) {
+            underlines = Arrays.copyOf(underlines, underlines.length * 2);
+        }
+        underlines[underlineCount * 3] = x1;
+        underlines[underlineCount * 3 + 1] = x2;
+        underlines[underlineCount * 3 + 2] = y;
+        underlineCount++;
+    }
+
+    /**
+     * Writes the page's fills, text and strokes, then starts the next page empty.
+     */
+    public void flush(PDPageContentStream contentStream) throws IOException {
+        writeFills(contentStream);
+        writeText(contentStream);
+        writeClippedText(contentStream);
+        writeUnderlines(contentStream);
+        borders.stroke(contentStream);
+        clear();
+    }
+
+    private void writeFills(PDPageContentStream contentStream) throws IOException {
+        Color current = null;
+        for (int i = 0; i < fillCount; i++) {
+            Color color = fillColors[i];
+            if (!color.equals(current)) {
+                if (current != null) {
+                    contentStream.fill();
+                }
+                contentStream.setNonStrokingColor(color);
+                current = color;
+            }
+            int offset = i * 4;
+            contentStream.addRect(fillRects[offset], fillRects[offset + 1], fillRects[offset + 2], fillRects[offset + 3]);
+        }
+        if (current != null) {
+            contentStream.fill();
+        }
+    }
+
+    /**
+     * One text object for the whole page. Td moves relative to the start of the previous line, so each run is
+     * positioned by its offset from the one before.
+     */
+    private void writeText(PDPageContentStream contentStream) throws IOException {
+        if (texts.isEmpty()) {
+            return;
+        }
+        contentStream.beginText();
+        new TextState().write(contentStream, texts);
+        contentStream.endText();
+    }
+
+    /**
+     * Consecutive runs of one cell share its clipping rectangle and text object. Restoring the graphics state drops
+     * the font and colour, so each group starts from scratch.
+     */
+    private void writeClippedText(PDPageContentStream contentStream) throws IOException {
+        int start = 0;
+        while (start < clippedTexts.size()) {
+            Clip clip = clippedTexts.get(start).clip();
+            int end = start + 1;
+            while (end < clippedTexts.size() && clippedTexts.get(end).clip().equals(clip)) {
+                end++;
+            }
+            contentStream.saveGraphicsState();
+            contentStream.addRect(clip.x(), clip.y(), clip.width(), clip.height());
+            contentStream.clip();
+            contentStream.beginText();
+            new TextState().write(contentStream, clippedTexts.subList(start, end));
+            contentStream.endText();
+            contentStream.restoreGraphicsState();
+            start = end;
+        }
+    }
+
+    private void writeUnderlines(PDPageContentStream contentStream) throws IOException {
+        if (underlineCount == 0) {
+            return;
+        }
+        contentStream.setLineWidth(UNDERLINE_WIDTH);
+        for (int i = 0; i < underlineCount; i++) {
+            float y = underlines[i * 3 + 2];
+            contentStream.moveTo(underlines[i * 3], y);
+            contentStream.lineTo(underlines[i * 3 + 1], y);
+        }
+        contentStream.stroke();
+    }
+
+    private void clear() {
+        Arrays.fill(fillColors, 0, fillCount, null);
+        fillCount = 0;
+        texts.clear();
+        clippedTexts.clear();
+        underlineCount = 0;
+    }
+
+    /**
+     * A rectangle in page coordinates, {@code (x, y)} being its lower-left corner.
+     */
+    public record Clip(float x, float y, float width, float height) {
+    }
+
+    private record TextRun(PDType0Font font, float fontSize, Color color, float x, float y, String text, Clip clip) {
+    }
+
+    /**
+     * Font, colour and line start of the current text object, so operators are only written when they change.
+     */
+    private static final class TextState {
+
+        private PDType0Font font;
+        private float fontSize;
+        private Color color;
+        private float lineX;
+        private float lineY;
+
+        void write(PDPageContentStream contentStream, List<TextRun> runs) throws IOException {
+            for (TextRun run : runs) {
+                if (run.font() != font || run.fontSize() != fontSize) {
+                    contentStream.setFont(run.font(), run.fontSize());
+                    font = run.font();
+                    fontSize = run.fontSize();
+                }
+                if (!run.color().equals(color)) {
+                    contentStream.setNonStrokingColor(run.color());
+                    color = run.color();
+                }
+                contentStream.newLineAtOffset(run.x() - lineX, run.y() - lineY);
+                lineX = run.x();
+                lineY = run.y();
+                // Encoding reads the font's lazily built tables, which other sheets may be measuring with at the same time
+                synchronized (run.font()) {
+                    contentStream.showText(run.text());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.excel2pdf.render;
+
+import com.example.excel2pdf.config.FormulaMode;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.IOException;
+import java.util.function.IntFunction;
+
+/**
+ * State owned by a single conversion. The converter service is a shared singleton, so everything that differs between
+ * uploads (document, fonts, evaluator, border and merge bookkeeping) is created here per request and never shared.
+ * <p>
+ * Sheets are rendered in parallel, each with a context from {@link #forSheet()}: it shares the document, fonts,
+ * workbook and formula evaluator of the conversion, and has its own canvas, style cache and counters.
+ */
+@Getter
+public class RenderContext {
+
+    private final PDDocument pdfDocument;
+    private final FontRegistry.DocumentFonts fonts;
+
+    /**
+     * The source workbook, or {@code null} when rendering from the streaming reader.
+     */
+    private final Workbook workbook;
+
+    @Setter
+    private PageCanvas canvas = new PageCanvas();
+
+    @Setter
+    private MergedRegionIndex mergedRegions = MergedRegionIndex.EMPTY;
+
+    private final FormulaMode formulaMode;
+
+    /**
+     * The conversion's context; {@code this} unless created by {@link #forSheet()}.
+     */
+    @Getter(AccessLevel.NONE)
+    private final RenderContext root;
+
+    @Getter(AccessLevel.NONE)
+    private final IntFunction<? extends CellStyle> styleSource;
+
+    @Getter(AccessLevel.NONE)
+    private FormulaEvaluator formulaEvaluator;
+
+    private int evaluatedFormulas;
+
+    private int cachedFormulas;
+
+    private long formulaNanos;
+
+    private int drawnCells;
+
+    private int drawnMergedRegions;
+
+    /**
+     * Whether {@link #evaluate(Cell)} times itself into {@link #getFormulaNanos()}; set on the conversion's context.
+     */
+    @Setter
+    private boolean timingFormulas;
+
+    private final StyleCache styles;
+
+    /**
+     * Shared by the sheets of a conversion, so each distinct character is measured once per document.
+     */
+    private final TextLayout textLayout;
+
+    /**
+     * @param styleSource looks cell styles up by index: the workbook for the DOM path, the styles table when streaming
+     */
+    public RenderContext(PDDocument pdfDocument, FontRegistry fontRegistry, Workbook workbook, IntFunction<? extends CellStyle> styleSource, FormulaMode formulaMode) {
+        this.pdfDocument = pdfDocument;
+        this.fonts = fontRegistry.forDocument(pdfDocument);
+        this.workbook = workbook;
+        this.formulaMode = formulaMode;
+        this.root = this;
+        this.styleSource = styleSource;
+        this.styles = new StyleCache(workbook, styleSource, fonts::get);
+        this.textLayout = new TextLayout(new TextMeasurer());
+    }
+
+    private RenderContext(RenderContext root) {
+        this.pdfDocument = root.pdfDocument;
+        this.fonts = root.fonts;
+        this.workbook = root.workbook;
+        this.formulaMode = root.formulaMode;
+        this.root = root;
+        this.styleSource = root.styleSource;
+        this.styles = new StyleCache(workbook, styleSource, fonts::get);
+        this.textLayout = root.textLayout;
+    }
+
+    /**
+     * A context for rendering one sheet on its own thread.
+     */
+    public RenderContext forSheet() {
+        return new RenderContext(root);
+    }
+
+    /**
+     * Adds the counts of a finished sheet context to this one.
+     */
+    public void addCounts(RenderContext sheetContext) {
+        evaluatedFormulas += sheetContext.evaluatedFormulas;
+        cachedFormulas += sheetContext.cachedFormulas;
+        formulaNanos += sheetContext.formulaNanos;
+        drawnCells += sheetContext.drawnCells;
+        drawnMergedRegions += sheetContext.drawnMergedRegions;
+    }
+
+    public RenderStyle getStyle(CellStyle cellStyle) throws IOException {
+        return styles.get(cellStyle);
+    }
+
+    public RenderStyle getStyle(int styleIndex) throws IOException {
+        return styles.get(styleIndex);
+    }
+
+    /**
+     * The PDF font for an Excel font name, bound to this document on first use.
+     */
+    public PDType0Font getFont(String excelFontName, boolean bold) throws IOException {
+        return fonts.get(excelFontName, bold);
+    }
+
+    /**
+     * Evaluates with one evaluator per conversion, created on the first formula cell. Sharing it across every sheet
+     * keeps its cache of already evaluated cells, so a formula that others depend on is only calculated once. POI's
+     * evaluator is not thread-safe, so sheets rendering in parallel take turns.
+     */
+    public CellValue evaluate(Cell cell) {
+        synchronized (root) {
+            if (root.formulaEvaluator == null) {
+                root.formulaEvaluator = workbook.getCreationHelper().createFormulaEvaluator();
+            }
+            if (!root.timingFormulas) {
+                return root.formulaEvaluator.evaluate(cell);
+            }
+            long start = System.nanoTime();
+            try {
+                return root.formulaEvaluator.evaluate(cell);
+            } finally {
+                formulaNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    public void countEvaluatedFormula() {
+        evaluatedFormulas++;
+    }
+
+    public void countCachedFormula() {
+        cachedFormulas++;
+    }
+
+    public void countDrawnCell() {
+        drawnCells++;
+    }
+
+    /**
+     * Counts a merged region drawn on a page; a region spanning pages counts once per page.
+     */
+    public void countDrawnMergedRegion() {
+        drawnMergedRegions++;
+    }
+
+    public BorderGrid getBorders() {
+        return canvas.getBorders();
+    }
+
+    /**
+     * Writes everything drawn on the page about to be closed and starts the next page with an empty canvas.
+     */
+    public void finishPage(PDPageContentStream contentStream) throws IOException {
+        canvas.flush(contentStream);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+
+import java.awt.Color;
+
+/**
+ * Everything the renderer needs from a {@code CellStyle}, resolved once per style index.
+ *
+ * @param textFont    the face text is shown and measured with: bold or regular
+ * @param fillColor   solid fill, or {@code null} when the cell has no background
+ * @param wrapText    whether text breaks into lines at the cell's width
+ * @param shrinkToFit whether text too wide for the cell is set in a smaller size instead of being clipped
+ */
+public record RenderStyle(PDType0Font textFont,
+                          float fontSize,
+                          boolean bold,
+                          boolean underline,
+                          Color fillColor,
+                          Color fontColor,
+                          HorizontalAlignment alignment,
+                          VerticalAlignment verticalAlignment,
+                          boolean wrapText,
+                          boolean shrinkToFit,
+                          BorderStyle borderTop,
+                          BorderStyle borderBottom,
+                          BorderStyle borderLeft,
+                          BorderStyle borderRight) {
+
+    public boolean hasBorderTop() {
+        return borderTop != BorderStyle.NONE;
+    }
+
+    public boolean hasBorderBottom() {
+        return borderBottom != BorderStyle.NONE;
+    }
+
+    public boolean hasBorderLeft() {
+        return borderLeft != BorderStyle.NONE;
+    }
+
+    public boolean hasBorderRight() {
+        return borderRight != BorderStyle.NONE;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.poi.hssf.usermodel.HSSFFont;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hssf.util.HSSFColor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Per-workbook table of {@link RenderStyle}s indexed by {@code CellStyle.getIndex()}. A workbook only has a few hundred
+ * distinct styles, so each one is resolved (font, colours, alignment, borders) on first use and every further cell
+ * costs an array read instead of repeated font lookups and colour conversions.
+ */
+public class StyleCache {
+
+    private final Workbook workbook;
+    private final IntFunction<? extends CellStyle> styleSource;
+    private final FontResolver fontResolver;
+    private RenderStyle[] styles = new RenderStyle[64];
+
+    /**
+     * @param workbook    the DOM workbook, or {@code null} for streamed styles (which carry their own fonts)
+     * @param styleSource looks a {@code CellStyle} up by index
+     */
+    public StyleCache(Workbook workbook, IntFunction<? extends CellStyle> styleSource, FontResolver fontResolver) {
+        this.workbook = workbook;
+        this.styleSource = styleSource;
+        this.fontResolver = fontResolver;
+    }
+
+    public RenderStyle get(CellStyle cellStyle) throws IOException {
+        int index = Short.toUnsignedInt(cellStyle.getIndex());
+        RenderStyle style = index < styles.length ? styles[index] : null;
+        if (style == null) {
+            style = resolve(cellStyle);
+            store(index, style);
+        }
+        return style;
+    }
+
+    public RenderStyle get(int styleIndex) throws IOException {
+        RenderStyle style = styleIndex < styles.length ? styles[styleIndex] : null;
+        if (style == null) {
+            CellStyle cellStyle = styleSource.apply(styleIndex);
+            if (cellStyle == null) {
+                if (styleIndex == 0) {
+                    throw new IOException("Workbook defines no cell styles");
+                }
+                return get(0);
+            }
+            style = resolve(cellStyle);
+            store(styleIndex, style);
+        }
+        return style;
+    }
+
+    private void store(int index, RenderStyle style) {
+        if (index >= styles.length) {
+            styles = Arrays.copyOf(styles, Math.max(index + 1, styles.length * 2));
+        }
+        styles[index] = style;
+    }
+
+    private RenderStyle resolve(CellStyle cellStyle) throws IOException {
+        Font font = cellStyle instanceof XSSFCellStyle xssfCellStyle ? xssfCellStyle.getFont() : workbook.getFontAt(cellStyle.getFontIndex());
+        PDType0Font textFont = fontResolver.resolve(font.getFontName(), font.getBold());
+
+        return new RenderStyle(textFont,
+                font.getFontHeightInPoints(),
+                font.getBold(),
+                font.getUnderline() != Font.U_NONE,
+                fillColor(cellStyle),
+                fontColor(font),
+                cellStyle.getAlignment(),
+                cellStyle.getVerticalAlignment(),
+                cellStyle.getWrapText(),
+                cellStyle.getShrinkToFit(),
+                cellStyle.getBorderTop(),
+                cellStyle.getBorderBottom(),
+                cellStyle.getBorderLeft(),
+                cellStyle.getBorderRight());
+    }
+
+    private Color fillColor(CellStyle cellStyle) {
+        if (cellStyle.getFillPattern() != FillPatternType.SOLID_FOREGROUND) {
+            return null;
+        }
+        return toAwtColor(cellStyle.getFillForegroundColorColor());
+    }
+
+    private Color fontColor(Font font) {
+        Color color = null;
+        if (font instanceof XSSFFont xssfFont) {
+            color = toAwtColor(xssfFont.getXSSFColor());
+        } else if (font instanceof HSSFFont hssfFont && workbook instanceof HSSFWorkbook hssfWorkbook) {
+            color = toAwtColor(hssfFont.getHSSFColor(hssfWorkbook));
+        }
+        return color != null ? color : Color.BLACK;
+    }
+
+    /**
+     * Works for both file formats; HSSF colours come from the workbook palette rather than an RGB array.
+     */
+    static Color toAwtColor(org.apache.poi.ss.usermodel.Color color) {
+        if (color instanceof XSSFColor xssfColor) {
+            byte[] rgb = xssfColor.getRGB();
+            return rgb != null ? new Color(rgb[0] & 0xFF, rgb[1] & 0xFF, rgb[2] & 0xFF) : null;
+        }
+        if (color instanceof HSSFColor hssfColor) {
+            short[] triplet = hssfColor.getTriplet();
+            return new Color(triplet[0], triplet[1], triplet[2]);
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    public interface FontResolver {
+        PDType0Font resolve(String excelFontName, boolean bold) throws IOException;
+    }
+}
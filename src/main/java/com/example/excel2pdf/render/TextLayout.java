@@ -0,0 +1,186 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Places a cell's text inside the cell: line breaks, wrapping at the cell's width when the style asks for it,
+ * shrink-to-fit, horizontal and vertical alignment, and clipping of whatever still does not fit.
+ * <p>
+ * Every width comes from the {@link TextMeasurer}, and wrapping stops once the lines fill the cell's height, so a long
+ * text in a small cell costs what fits in the cell rather than its full length.
+ */
+public class TextLayout {
+
+    private static final float LINE_SPACING = 1.2f;
+    private static final Pattern LINE_BREAK = Pattern.compile("\r?\n");
+
+    private final TextMeasurer measurer;
+
+    public TextLayout(TextMeasurer measurer) {
+        this.measurer = measurer;
+    }
+
+    /**
+     * Adds the text of a cell whose top-left corner is ({@code xPosition}, {@code yPosition}) to the canvas.
+     */
+    public void draw(PageCanvas canvas, RenderStyle style, String text, float xPosition, float yPosition, float cellWidth, float cellHeight) throws IOException {
+        if (text.isBlank()) {
+            return;
+        }
+        PDType0Font font = style.textFont();
+        float fontSize = style.fontSize();
+
+        List<String> lines = new ArrayList<>();
+        boolean truncated = false;
+        if (style.wrapText()) {
+            float maxUnits = cellWidth * 1000 / fontSize;
+            // One line more than fits, so a partly visible last line is still drawn
+            int maxLines = Math.max(1, (int) (cellHeight / (fontSize * LINE_SPACING)) + 1);
+            for (String paragraph : LINE_BREAK.split(text)) {
+                if (lines.size() == maxLines) {
+                    truncated = true;
+                    break;
+                }
+                truncated = wrap(font, paragraph, maxUnits, maxLines, lines);
+            }
+        } else {
+            lines.addAll(List.of(LINE_BREAK.split(text)));
+        }
+
+        float[] lineUnits = new float[lines.size()];
+        float widestUnits = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            lineUnits[i] = measurer.units(font, lines.get(i), 0, lines.get(i).length());
+            widestUnits = Math.max(widestUnits, lineUnits[i]);
+        }
+        if (style.shrinkToFit() && !style.wrapText() && widestUnits * fontSize / 1000 > cellWidth) {
+            fontSize = cellWidth * 1000 / widestUnits;
+        }
+
+        float lineHeight = fontSize * LINE_SPACING;
+        float totalTextHeight = lines.size() * lineHeight;
+        // Lines cut off at the bottom are shown from the top, as the rest would never be reached
+        float verticalOffset = truncated ? 0 : calculateVerticalOffset(style, cellHeight, totalTextHeight, fontSize);
+
+        // The ink of the last line ends about a font size below the top of its line box, not a full line height
+        float inkHeight = totalTextHeight - lineHeight + fontSize;
+        boolean overflows = widestUnits * fontSize / 1000 > cellWidth || inkHeight > cellHeight;
+        PageCanvas.Clip clip = overflows ? new PageCanvas.Clip(xPosition, yPosition - cellHeight, cellWidth, cellHeight) : null;
+
+        float currentYPosition = yPosition - fontSize - verticalOffset;
+        for (int i = 0; i < lines.size(); i++) {
+            if (currentYPosition + fontSize < yPosition - cellHeight) {
+                break;
+            }
+            String line = lines.get(i);
+            float lineWidth = lineUnits[i] * fontSize / 1000;
+            float adjustedXPosition = calculateAdjustedXPosition(style, xPosition, cellWidth, lineWidth);
+
+            if (style.underline()) {
+                float underlineY = currentYPosition - fontSize * 0.1f;
+                if (clip == null) {
+                    canvas.underline(adjustedXPosition, adjustedXPosition + lineWidth, underlineY);
+                } else if (underlineY >= clip.y()) {
+                    // Strokes are not clipped, so the underline is cut to the cell by hand
+                    canvas.underline(Math.max(adjustedXPosition, clip.x()), Math.min(adjustedXPosition + lineWidth, clip.x() + clip.width()), underlineY);
+                }
+            }
+
+            if (clip != null) {
+                canvas.text(font, fontSize, style.fontColor(), adjustedXPosition, currentYPosition, line, clip);
+            } else {
+                canvas.text(font, fontSize, style.fontColor(), adjustedXPosition, currentYPosition, line);
+            }
+
+            currentYPosition -= lineHeight;
+        }
+    }
+
+    /**
+     * Breaks a paragraph into lines no wider than {@code maxUnits}: after a space where possible, before an ideograph
+     * otherwise, and between any two characters of a word longer than the line. A character wider than the line still
+     * gets a line of its own.
+     *
+     * @return whether lines were left out because {@code maxLines} was reached
+     */
+    private boolean wrap(PDType0Font font, String paragraph, float maxUnits, int maxLines, List<String> lines) throws IOException {
+        int length = paragraph.length();
+        if (length == 0) {
+            lines.add(paragraph);
+            return false;
+        }
+        int start = 0;
+        while (start < length) {
+            if (lines.size() == maxLines) {
+                return true;
+            }
+            float units = 0;
+            int breakEnd = -1;
+            int breakResume = -1;
+            int index = start;
+            while (index < length) {
+                int codePoint = paragraph.codePointAt(index);
+                int next = index + Character.charCount(codePoint);
+                if (codePoint == ' ') {
+                    breakEnd = index;
+                    breakResume = next;
+                } else if (index > start && Character.isIdeographic(codePoint)) {
+                    breakEnd = index;
+                    breakResume = index;
+                }
+                float advance = measurer.advance(font, codePoint);
+                // Trailing spaces may hang past the edge
+                if (index > start && codePoint != ' ' && units + advance > maxUnits) {
+                    break;
+                }
+                units += advance;
+                index = next;
+            }
+
+            if (index == length) {
+                lines.add(paragraph.substring(start));
+                return false;
+            }
+            if (breakEnd > start) {
+                lines.add(paragraph.substring(start, breakEnd).stripTrailing());
+                start = breakResume;
+            } else {
+                lines.add(paragraph.substring(start, index));
+                start = index;
+            }
+            while (start < length && paragraph.charAt(start) == ' ') {
+                start++;
+            }
+        }
+        return false;
+    }
+
+    private static float calculateAdjustedXPosition(RenderStyle style, float xPosition, float cellWidth, float textWidth) {
+        switch (style.alignment()) {
+            case CENTER:
+                return xPosition + (cellWidth - textWidth) / 2;
+            case RIGHT:
+                return xPosition + cellWidth - textWidth;
+            case LEFT:
+            default:
+                return xPosition;
+        }
+    }
+
+    private static float calculateVerticalOffset(RenderStyle style, float cellHeight, float totalTextHeight, float fontSize) {
+        switch (style.verticalAlignment()) {
+            case CENTER:
+                return (cellHeight - totalTextHeight) / 2;
+            case TOP:
+                return 0;
+            case BOTTOM:
+            default:
+                return cellHeight - totalTextHeight - fontSize * 0.2f;
+        }
+    }
+}
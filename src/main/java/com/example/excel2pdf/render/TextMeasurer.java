@@ -0,0 +1,79 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Text widths for one document, read from per-font tables of character advances. PDFBox measures each character once
+ * per font; after that a string's width is a sum of array reads. A label repeated thousands of times therefore costs
+ * no more PDFBox calls than one, and neither does a column of numbers made of the same ten digits.
+ * <p>
+ * The tables cover the Basic Multilingual Plane in pages of 256 characters, allocated when a character of the page is
+ * first measured. Characters outside it are measured every time. Safe to share between the sheets of a conversion.
+ */
+public class TextMeasurer {
+
+    private static final int PAGE_SIZE = 256;
+    private static final int PAGE_COUNT = 0x10000 / PAGE_SIZE;
+
+    private final Map<PDType0Font, AtomicReferenceArray<float[]>> advances = new ConcurrentHashMap<>();
+
+    /**
+     * Width of the text in points.
+     */
+    public float width(PDType0Font font, float fontSize, String text) throws IOException {
+        return units(font, text, 0, text.length()) * fontSize / 1000;
+    }
+
+    /**
+     * Width of {@code text[start, end)} in thousandths of the font size.
+     */
+    public float units(PDType0Font font, String text, int start, int end) throws IOException {
+        float units = 0;
+        for (int i = start; i < end; ) {
+            int codePoint = text.codePointAt(i);
+            units += advance(font, codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return units;
+    }
+
+    /**
+     * Advance of one character in thousandths of the font size.
+     *
+     * @throws IllegalArgumentException when the font has no glyph for it, as PDFBox would when showing it
+     */
+    public float advance(PDType0Font font, int codePoint) throws IOException {
+        if (codePoint >= PAGE_COUNT * PAGE_SIZE) {
+            return measure(font, codePoint);
+        }
+        AtomicReferenceArray<float[]> pages = advances.computeIfAbsent(font, key -> new AtomicReferenceArray<>(PAGE_COUNT));
+        float[] page = pages.get(codePoint / PAGE_SIZE);
+        if (page == null) {
+            float[] empty = new float[PAGE_SIZE];
+            Arrays.fill(empty, Float.NaN);
+            // Published through the atomic array, so other sheets see it filled; a racing sheet keeps the winner's page
+            page = pages.compareAndSet(codePoint / PAGE_SIZE, null, empty) ? empty : pages.get(codePoint / PAGE_SIZE);
+        }
+        float advance = page[codePoint % PAGE_SIZE];
+        if (Float.isNaN(advance)) {
+            advance = measure(font, codePoint);
+            page[codePoint % PAGE_SIZE] = advance;
+        }
+        return advance;
+    }
+
+    /**
+     * PDFont keeps its glyph widths in a plain map, so measuring goes one thread at a time per font.
+     */
+    private static float measure(PDType0Font font, int codePoint) throws IOException {
+        synchronized (font) {
+            return font.getStringWidth(new String(Character.toChars(codePoint)));
+        }
+    }
+}
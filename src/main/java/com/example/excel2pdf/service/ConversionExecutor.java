@@ -0,0 +1,159 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded pool that conversions run on. At most {@code maxConcurrent} conversions render at once and at most
+ * {@code queueCapacity} more wait for a slot; anything beyond that is rejected straight away so callers can answer 429
+ * instead of piling up heap.
+ * <p>
+ * The sheets of a workbook are laid out and rendered on a separate fork-join pool shared by all conversions, so a
+ * multi-sheet upload can use every core without letting concurrent conversions multiply the thread count.
+ */
+@Component
+public class ConversionExecutor implements DisposableBean {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final ForkJoinPool sheetPool;
+
+    public ConversionExecutor(ConverterProperties converterProperties) {
+        ConverterProperties.Executor settings = converterProperties.getExecutor();
+        int maxConcurrent = settings.getMaxConcurrent() > 0 ? settings.getMaxConcurrent() : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = settings.isVirtualThreads()
+                ? Thread.ofVirtual().name("excel2pdf-convert-", 0).factory()
+                : Thread.ofPlatform().name("excel2pdf-convert-", 0).factory();
+
+        this.executor = Executors.newFixedThreadPool(maxConcurrent, threadFactory);
+        this.permits = new Semaphore(maxConcurrent + Math.max(settings.getQueueCapacity(), 0));
+
+        int sheetParallelism = settings.getSheetParallelism() > 0 ? settings.getSheetParallelism() : Runtime.getRuntime().availableProcessors();
+        this.sheetPool = new ForkJoinPool(sheetParallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("excel2pdf-sheet-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Pool the sheets of a conversion are rendered on.
+     */
+    public ForkJoinPool getSheetPool() {
+        return sheetPool;
+    }
+
+    /**
+     * Claims a slot up front, so callers can reject a request before committing to a response and run the conversion
+     * later, e.g. once the response body is being written.
+     *
+     * @throws RejectedExecutionException when every slot and queue position is taken
+     */
+    public Reservation reserve() {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Conversion queue is full");
+        }
+        return new Reservation();
+    }
+
+    /**
+     * Runs the task on the pool and waits for it to finish.
+     *
+     * @throws RejectedExecutionException when every slot and queue position is taken
+     */
+    public void execute(ConversionTask task) throws IOException, InterruptedException {
+        try (Reservation reservation = reserve()) {
+            reservation.execute(task);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        sheetPool.shutdownNow();
+    }
+
+    /**
+     * A claimed slot. Closing it gives the slot back; {@link #execute} and {@link #submit} do so once the task has
+     * finished.
+     */
+    public class Reservation implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        public void execute(ConversionTask task) throws IOException, InterruptedException {
+            try {
+                Future<?> future = executor.submit(() -> {
+                    task.run();
+                    return null;
+                });
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    future.cancel(true);
+                    throw e;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException ioException) {
+                        throw ioException;
+                    }
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IOException("Conversion failed", cause);
+                }
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Queues the task on the pool without waiting for it. The slot is given back when the task finishes or the
+         * returned future is cancelled.
+         */
+        public Future<?> submit(ConversionTask task) {
+            FutureTask<Void> future = new FutureTask<>(() -> {
+                task.run();
+                return null;
+            }) {
+                @Override
+                protected void done() {
+                    close();
+                }
+            };
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                close();
+                throw e;
+            }
+            return future;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ConversionTask {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.config.FormulaMode;
+import com.example.excel2pdf.config.OutputMemory;
+
+/**
+ * Settings a single request may choose; anything left {@code null} falls back to the application defaults.
+ */
+public record ConversionOptions(FormulaMode formulaMode, OutputMemory outputMemory, Selection selection) {
+
+    public ConversionOptions(FormulaMode formulaMode) {
+        this(formulaMode, null, null);
+    }
+
+    public static ConversionOptions defaults(ConverterProperties properties) {
+        return new ConversionOptions(properties.getFormulas().getMode(), properties.getOutput().getMemory(), Selection.ALL);
+    }
+
+    /**
+     * Fills in whatever the request left unset from {@code defaults}.
+     */
+    public ConversionOptions orElse(ConversionOptions defaults) {
+        return new ConversionOptions(formulaMode != null ? formulaMode : defaults.formulaMode(),
+                outputMemory != null ? outputMemory : defaults.outputMemory(),
+                selection != null ? selection : defaults.selection());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.excel2pdf.service;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How far a conversion has got, updated by the renderer as it goes and readable from any thread while it runs. Also
+ * carries the request to stop: the renderer checks {@link #checkCancelled()} between pages and rows, so a cancelled
+ * conversion stops at the next page or row even while it runs on the sheet pool, where interrupts do not reach it.
+ */
+public class ConversionProgress {
+
+    private volatile int sheetCount = -1;
+    private final AtomicInteger sheetsRendered = new AtomicInteger();
+    private final LongAdder rowsRendered = new LongAdder();
+    private volatile boolean cancelled;
+
+    /**
+     * Sheets that will be rendered, or -1 while unknown. The streaming path never knows it in advance.
+     */
+    public int getSheetCount() {
+        return sheetCount;
+    }
+
+    public int getSheetsRendered() {
+        return sheetsRendered.get();
+    }
+
+    public long getRowsRendered() {
+        return rowsRendered.sum();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void setSheetCount(int sheetCount) {
+        this.sheetCount = sheetCount;
+    }
+
+    void sheetRendered() {
+        sheetsRendered.incrementAndGet();
+    }
+
+    void rowsRendered(int rows) {
+        rowsRendered.add(rows);
+    }
+
+    /**
+     * @throws InterruptedIOException once the conversion has been cancelled
+     */
+    void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Conversion cancelled");
+        }
+    }
+}
@@ -1,299 +1,739 @@
 package com.example.excel2pdf.service;
 
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.config.FormulaMode;
+import com.example.excel2pdf.config.OutputMemory;
+import com.example.excel2pdf.layout.Band;
+import com.example.excel2pdf.layout.PageArea;
+import com.example.excel2pdf.layout.SheetGeometry;
+import com.example.excel2pdf.layout.SheetLayout;
+import com.example.excel2pdf.layout.SheetPaginator;
+import com.example.excel2pdf.layout.UsedRange;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.metrics.ConversionStage;
+import com.example.excel2pdf.reader.ReadOnlyWorkbook;
+import com.example.excel2pdf.reader.WorkbookOutline;
+import com.example.excel2pdf.reader.XlsxStreamingReader;
+import com.example.excel2pdf.render.BorderGrid;
+import com.example.excel2pdf.render.FontRegistry;
+import com.example.excel2pdf.render.MergedRegionIndex;
+import com.example.excel2pdf.render.PageCanvas;
+import com.example.excel2pdf.render.RenderContext;
+import com.example.excel2pdf.render.RenderStyle;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDType0Font;
-import org.apache.poi.hssf.usermodel.HSSFCellStyle;
-import org.apache.poi.hssf.usermodel.HSSFFont;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.hssf.util.HSSFColor;
+import org.apache.pdfbox.util.Matrix;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFColor;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.springframework.core.io.ClassPathResource;
+import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
 import java.awt.Color;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ExcelToPDFConverterService {
 
-    private Map<String, Boolean> drawnBorders = new HashMap<>();
+    private static final float PAGE_MARGIN = 20;
+    private static final int SAVE_BUFFER_SIZE = 64 * 1024;
 
-    public void convertExcelToPDF(File excelFile) throws IOException {
-        drawnBorders.clear();
-        try (FileInputStream excelFileStream = new FileInputStream(excelFile);
-             Workbook workbook = WorkbookFactory.create(excelFileStream);
-             PDDocument pdfDocument = new PDDocument()) {
+    private final ConverterProperties converterProperties;
+    private final FontRegistry fontRegistry;
+    private final ConversionExecutor conversionExecutor;
+    private final ConversionMetrics conversionMetrics;
+    private final ConversionAdmission conversionAdmission;
 
-            PDType0Font customFont = PDType0Font.load(pdfDocument, new File(new ClassPathResource("fonts/NanumGothic.ttf").getURI()));
-            PDType0Font customFontBold = PDType0Font.load(pdfDocument, new File(new ClassPathResource("fonts/NanumGothicBold.ttf").getURI()));
+    private final SheetPaginator paginator = new SheetPaginator(PAGE_MARGIN);
 
-            for (int sheetIndex = 0; sheetIndex < Math.min(workbook.getNumberOfSheets(), 2); sheetIndex++) {
-                Sheet sheet = workbook.getSheetAt(sheetIndex);
-                PDPage page = new PDPage(PDRectangle.A4);
-                pdfDocument.addPage(page);
-
-                Map<CellAddress, CellRangeAddress> mergedCellsMap = getMergedCellsMap(sheet);
-
-                try (PDPageContentStream contentStream = new PDPageContentStream(pdfDocument, page)) {
-                    float yPosition = PDRectangle.A4.getHeight() - 20;
+    private final LongAdder evaluatedFormulas = new LongAdder();
+    private final LongAdder cachedFormulas = new LongAdder();
 
-                    for (Row row : sheet) {
-                        float xPosition = 20;
-                        float cellHeight = 0;
-
-                        for (int cellIndex = 0; cellIndex < row.getLastCellNum(); cellIndex++) {
-                            cellHeight = row.getHeightInPoints();
-                            Cell cell = row.getCell(cellIndex, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK);
-                            CellAddress cellAddress = cell.getAddress();
-                            CellRangeAddress cellRange = null;
+    public void convertExcelToPDF(File excelFile, File pdfFile) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(pdfFile)) {
+            convertExcelToPDF(excelFile, outputStream);
+        }
+    }
 
-                            if (mergedCellsMap.containsKey(cellAddress)) {
-                                cellRange = mergedCellsMap.get(cellAddress);
+    public void convertExcelToPDF(File excelFile, OutputStream outputStream) throws IOException {
+        convertExcelToPDF(excelFile, outputStream, ConversionOptions.defaults(converterProperties));
+    }
 
-                                if (cellRange.getFirstRow() == cell.getRowIndex() && cellRange.getFirstColumn() == cell.getColumnIndex()) {
-                                    float cellWidth = 0;
-                                    for (int col = cellRange.getFirstColumn(); col <= cellRange.getLastColumn(); col++) {
-                                        cellWidth += getExcelCellWidthInPoints(sheet, col);
-                                    }
-                                    cellHeight = getMergedCellHeight(sheet, cellRange);
+    /**
+     * Converts the workbook and writes the PDF straight into {@code outputStream}, which is left open for the caller.
+     * Safe to call concurrently: all per-conversion state lives in a {@link RenderContext} created for this call.
+     * <p>
+     * Every visible sheet is paginated as Excel prints it and rendered into buffered pages on the sheet pool, one task
+     * per sheet. The pages are written to the document in sheet order as each sheet finishes.
+     */
+    public void convertExcelToPDF(File excelFile, OutputStream outputStream, ConversionOptions options) throws IOException {
+        convertExcelToPDF(excelFile, outputStream, options, new ConversionProgress());
+    }
 
-                                    drawMergedCellContent(contentStream, sheet, cellRange, cell, xPosition, yPosition, cellWidth, cellHeight, customFont, customFontBold, workbook, mergedCellsMap);
+    /**
+     * Same as {@link #convertExcelToPDF(File, OutputStream, ConversionOptions)}, reporting sheets and rows rendered to
+     * {@code progress} and stopping with an {@link InterruptedIOException} once it is cancelled.
+     */
+    public void convertExcelToPDF(File excelFile, OutputStream outputStream, ConversionOptions options, ConversionProgress progress) throws IOException {
+        convertExcelToPDF(excelFile, outputStream, options, progress, conversionAdmission.admit(excelFile));
+    }
 
-                                    for (int col = cellRange.getFirstColumn(); col <= cellRange.getLastColumn(); col++) {
-                                        xPosition += getExcelCellWidthInPoints(sheet, col);
-                                    }
+    /**
+     * Same as {@link #convertExcelToPDF(File, OutputStream, ConversionOptions, ConversionProgress)} for a workbook
+     * the caller already admitted, e.g. to answer before committing to a response. The admission is closed once the
+     * conversion is done.
+     */
+    public void convertExcelToPDF(File excelFile, OutputStream outputStream, ConversionOptions options, ConversionProgress progress,
+                                  ConversionAdmission.Admission admission) throws IOException {
+        try (OpenedWorkbook workbook = open(excelFile, options, admission);
+             PDDocument pdfDocument = render(workbook, progress)) {
+            progress.checkCancelled();
+            save(pdfDocument, outputStream);
+        }
+    }
 
-                                    cellIndex = cellRange.getLastColumn();
-                                } else {
-                                    float cellWidth = getExcelCellWidthInPoints(sheet, cellIndex);
+    /**
+     * Checks the selection against the workbook's sheet names and defined names, read from its {@link WorkbookOutline}
+     * without loading the workbook, so a request can be answered before it commits to a response. {@link #open}
+     * checks the selection again against what it loads.
+     *
+     * @throws InvalidSelectionException when the selection names a sheet or defined name the workbook does not have,
+     *                                   or asks the streaming route for more than one area of a sheet
+     */
+    public void checkSelection(File excelFile, ConversionOptions options, ConversionAdmission.Admission admission) throws IOException {
+        Selection selection = options.orElse(ConversionOptions.defaults(converterProperties)).selection();
+        if (!selection.isAll()) {
+            WorkbookOutline outline = WorkbookOutline.read(excelFile);
+            SheetSelection sheetSelection = SheetSelection.resolve(selection, outline.sheetNames(), outline.definedNames()::get);
+            if (admission.getRoute() == ConversionAdmission.Route.STREAMING) {
+                sheetSelection.requireOneAreaPerSheet();
+            }
+        }
+    }
 
-                                    drawCellContent(contentStream, cellRange, cell, xPosition, yPosition, cellWidth, cellHeight, customFont, customFontBold, workbook, mergedCellsMap);
+    /**
+     * First stage of a conversion: admits the workbook and reads it up to the point where rendering can start. Large
+     * .xlsx files skip the DOM entirely; smaller ones and .xls keep the full-fidelity DOM path.
+     *
+     * @throws com.example.excel2pdf.admission.WorkbookRejectedException when the workbook is too costly to convert
+     * @throws java.util.concurrent.RejectedExecutionException when the conversion memory budget stayed full
+     */
+    public OpenedWorkbook open(File excelFile, ConversionOptions options) throws IOException {
+        return open(excelFile, options, conversionAdmission.admit(excelFile));
+    }
 
-                                    xPosition += cellWidth;
-                                }
-                            } else {
-                                float cellWidth = getExcelCellWidthInPoints(sheet, cellIndex);
+    /**
+     * Opens an admitted workbook the way its admission routed it and checks the selection against its sheets and
+     * defined names. The admission is closed with the returned workbook, or straight away when opening fails.
+     *
+     * @throws InvalidSelectionException when the selection names a sheet or defined name the workbook does not have
+     */
+    @SuppressWarnings("try") // The timing is only closed
+    public OpenedWorkbook open(File excelFile, ConversionOptions options, ConversionAdmission.Admission admission) throws IOException {
+        ConversionOptions resolved = options.orElse(ConversionOptions.defaults(converterProperties));
+        Selection selection = resolved.selection();
+        conversionMetrics.recordInput(excelFile.length());
+        try (ConversionMetrics.Timing timing = conversionMetrics.time(ConversionStage.OPEN)) {
+            if (admission.getRoute() == ConversionAdmission.Route.STREAMING) {
+                XlsxStreamingReader reader = new XlsxStreamingReader(excelFile);
+                try {
+                    // The workbook part is only read when there is a selection to check
+                    SheetSelection sheetSelection = selection.isAll()
+                            ? SheetSelection.resolve(selection, List.of(), name -> null)
+                            : SheetSelection.resolve(selection, reader.getOutline().sheetNames(), reader.getOutline().definedNames()::get);
+                    sheetSelection.requireOneAreaPerSheet();
+                    return new OpenedWorkbook(null, reader, resolved, sheetSelection, admission);
+                } catch (IOException | RuntimeException e) {
+                    reader.close();
+                    throw e;
+                }
+            }
+            ReadOnlyWorkbook workbook = ReadOnlyWorkbook.open(excelFile);
+            try {
+                return new OpenedWorkbook(workbook, null, resolved, resolve(selection, workbook.getWorkbook()), admission);
+            } catch (RuntimeException e) {
+                workbook.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            admission.close();
+            throw e;
+        }
+    }
 
-                                drawCellContent(contentStream, cellRange, cell, xPosition, yPosition, cellWidth, cellHeight, customFont, customFontBold, workbook, mergedCellsMap);
+    private static SheetSelection resolve(Selection selection, Workbook workbook) {
+        List<String> sheetNames = new ArrayList<>();
+        for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
+            sheetNames.add(workbook.getSheetName(sheetIndex));
+        }
+        return SheetSelection.resolve(selection, sheetNames, name -> {
+            Name definedName = workbook.getName(name);
+            return definedName != null ? definedName.getRefersToFormula() : null;
+        });
+    }
 
-                                xPosition += cellWidth;
-                            }
-                        }
-                        yPosition -= cellHeight;
-                    }
+    /**
+     * Second stage: lays out and draws every page. The returned document no longer needs the workbook, which may be
+     * closed before the document is saved. Depending on the options' {@link OutputMemory}, its content streams are
+     * kept on the heap or in a scratch file that closing the document deletes.
+     */
+    @SuppressWarnings("try") // The timing is only closed
+    public PDDocument render(OpenedWorkbook openedWorkbook, ConversionProgress progress) throws IOException {
+        PDDocument pdfDocument = new PDDocument(memoryUsage(openedWorkbook.getOptions().outputMemory()));
+        try (ConversionMetrics.Timing timing = conversionMetrics.time(ConversionStage.RENDER)) {
+            SheetSelection selection = openedWorkbook.getSelection();
+            RenderContext context = openedWorkbook.getStreamingReader() != null
+                    ? renderStreaming(openedWorkbook.getStreamingReader(), pdfDocument, selection, progress)
+                    : renderWorkbook(openedWorkbook.getWorkbook().getWorkbook(), pdfDocument, openedWorkbook.getOptions(), selection, progress);
+            if (pdfDocument.getNumberOfPages() == 0) {
+                if (!selection.isAll()) {
+                    throw new InvalidSelectionException("The selection leaves nothing to print");
                 }
+                // An empty workbook still has to be a valid PDF
+                pdfDocument.addPage(new PDPage(PDRectangle.A4));
             }
-            pdfDocument.save("output.pdf");
+            recordCounts(context);
+            return pdfDocument;
+        } catch (IOException | RuntimeException | Error e) {
+            pdfDocument.close();
+            throw e;
         }
     }
 
-    private void drawMergedCellContent(PDPageContentStream contentStream, Sheet sheet, CellRangeAddress cellRange, Cell cell, float xPosition, float yPosition, float cellWidth, float cellHeight, PDType0Font customFont, PDType0Font customBoldFont, Workbook workbook, Map<CellAddress, CellRangeAddress> mergedCellsMap) throws IOException {
-        CellStyle cellStyle = cell.getCellStyle();
-        Font cellFont = workbook.getFontAt(cellStyle.getFontIndex());
-        float fontSize = cellFont.getFontHeightInPoints();
-
-        Color bgColor = getExcelCellBackgroundColor(cellStyle);
-        if (bgColor != null) {
-            contentStream.setNonStrokingColor(bgColor);
-            contentStream.addRect(xPosition, yPosition - cellHeight, cellWidth, cellHeight);
-            contentStream.fill();
+    /**
+     * Last stage: writes the document into {@code outputStream}, which is left open. PDFBox closes the stream it
+     * saves into and issues many small writes, so the caller's stream is shielded from the close and buffered.
+     */
+    @SuppressWarnings("try") // The timing is only closed
+    public void save(PDDocument pdfDocument, OutputStream outputStream) throws IOException {
+        try (ConversionMetrics.Timing timing = conversionMetrics.time(ConversionStage.SAVE)) {
+            pdfDocument.save(new BufferedOutputStream(conversionMetrics.countOutput(StreamUtils.nonClosing(outputStream)), SAVE_BUFFER_SIZE));
         }
+    }
 
-        Color fontColor = getExcelCellFontColor(cell);
-        if (fontColor != null) {
-            contentStream.setNonStrokingColor(fontColor);
-        } else {
-            contentStream.setNonStrokingColor(Color.BLACK);
+    private MemoryUsageSetting memoryUsage(OutputMemory outputMemory) {
+        ConverterProperties.Output output = converterProperties.getOutput();
+        MemoryUsageSetting memoryUsage = switch (outputMemory) {
+            case MEMORY -> MemoryUsageSetting.setupMainMemoryOnly();
+            case MIXED -> MemoryUsageSetting.setupMixed(output.getMemoryThreshold().toBytes());
+            case TEMP_FILE -> MemoryUsageSetting.setupTempFileOnly();
+        };
+        return output.getTempDirectory() != null ? memoryUsage.setTempDir(output.getTempDirectory()) : memoryUsage;
+    }
+
+    /**
+     * Renders the selected sheets, each clipped to its selected areas. POI evaluates formulas lazily, so cells outside
+     * the selection are never evaluated, styled or drawn. When only some pages are wanted, every sheet is laid out
+     * first to number the pages, and then only the selected pages are drawn.
+     */
+    private RenderContext renderWorkbook(Workbook workbook, PDDocument pdfDocument, ConversionOptions options, SheetSelection selection,
+                                         ConversionProgress progress) throws IOException {
+        RenderContext context = new RenderContext(pdfDocument, fontRegistry, workbook, workbook::getCellStyleAt, options.formulaMode());
+        context.setTimingFormulas(conversionMetrics.isEnabled());
+
+        List<Integer> sheetIndexes = new ArrayList<>();
+        for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
+            boolean hidden = workbook.isSheetHidden(sheetIndex) || workbook.isSheetVeryHidden(sheetIndex);
+            if (selection.includes(sheetIndex, workbook.getSheetName(sheetIndex), hidden)) {
+                sheetIndexes.add(sheetIndex);
+            }
         }
+        progress.setSheetCount(sheetIndexes.size());
 
-        if (cellFont.getBold()) {
-            contentStream.setFont(customBoldFont, fontSize);
+        List<SheetTask<RenderedSheet>> renders = new ArrayList<>();
+        if (selection.allPages()) {
+            for (int sheetIndex : sheetIndexes) {
+                renders.add(() -> renderSheet(context.forSheet(), planSheet(workbook, sheetIndex, selection), page -> true, progress));
+            }
         } else {
-            contentStream.setFont(customFont, fontSize);
+            List<SheetTask<SheetPlan>> plans = new ArrayList<>();
+            for (int sheetIndex : sheetIndexes) {
+                plans.add(() -> planSheet(workbook, sheetIndex, selection));
+            }
+            List<SheetPlan> laidOut = new ArrayList<>();
+            runOnSheetPool(plans, laidOut::add);
+            int firstPage = 1;
+            for (SheetPlan plan : laidOut) {
+                int sheetFirstPage = firstPage;
+                renders.add(() -> renderSheet(context.forSheet(), plan, page -> selection.includesPage(sheetFirstPage + page), progress));
+                firstPage += plan.layout().pages().size();
+            }
         }
+        runOnSheetPool(renders, renderedSheet -> addPages(pdfDocument, context, renderedSheet));
+        return context;
+    }
 
-        String text;
-        if (cell.getCellType() == CellType.FORMULA) {
-            FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-            CellValue cellValue = evaluator.evaluate(cell);
-            text = formatCellValue(cellValue);
-        } else {
-            text = getStringCellValue(cell);
+    /**
+     * Runs the tasks on the sheet pool, one per sheet, and hands their results to {@code handler} in task order as they
+     * finish. A single task runs on the calling thread.
+     */
+    private <T> void runOnSheetPool(List<SheetTask<T>> sheetTasks, SheetResultHandler<T> handler) throws IOException {
+        if (sheetTasks.size() == 1) {
+            handler.accept(sheetTasks.get(0).run());
+            return;
+        }
+        List<ForkJoinTask<T>> tasks = new ArrayList<>();
+        for (SheetTask<T> sheetTask : sheetTasks) {
+            tasks.add(conversionExecutor.getSheetPool().submit(sheetTask::run));
         }
+        try {
+            for (ForkJoinTask<T> task : tasks) {
+                handler.accept(join(task));
+            }
+        } finally {
+            // Only has an effect when a sheet failed: the ones not started yet are dropped
+            for (ForkJoinTask<T> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
 
-        if (text.trim().isEmpty()) {
-            text = "";
+    /**
+     * Total formula cells recalculated by POI since startup.
+     */
+    public long getEvaluatedFormulaCount() {
+        return evaluatedFormulas.sum();
+    }
+
+    /**
+     * Total formula cells printed from the result stored in the file instead of being recalculated.
+     */
+    public long getCachedFormulaCount() {
+        return cachedFormulas.sum();
+    }
+
+    private void recordCounts(RenderContext context) {
+        evaluatedFormulas.add(context.getEvaluatedFormulas());
+        cachedFormulas.add(context.getCachedFormulas());
+        log.debug("Formulas evaluated: {}, taken from cached results: {}", context.getEvaluatedFormulas(), context.getCachedFormulas());
+        conversionMetrics.recordDocument(context.getDrawnCells(), context.getDrawnMergedRegions(),
+                context.getEvaluatedFormulas(), context.getCachedFormulas(), context.getPdfDocument().getNumberOfPages());
+        conversionMetrics.record(ConversionStage.FONTS, context.getFonts().getBindNanos());
+        if (context.getEvaluatedFormulas() > 0) {
+            conversionMetrics.record(ConversionStage.FORMULAS, context.getFormulaNanos());
         }
+    }
 
-        String[] lines = text.split("\n");
-        float totalTextHeight = lines.length * fontSize * 1.2f;
+    /**
+     * Sheets the selection leaves out are skipped without their XML being parsed.
+     */
+    private RenderContext renderStreaming(XlsxStreamingReader reader, PDDocument pdfDocument, SheetSelection selection, ConversionProgress progress) throws IOException {
+        // The event reader has no evaluator: formulas always print the result cached in the file
+        RenderContext context = new RenderContext(pdfDocument, fontRegistry, null, reader::getCellStyle, FormulaMode.CACHED);
+        // The sheet list carries no visibility, so hidden sheets print here as they always have
+        reader.readSheets((sheetIndex, sheetName) -> selection.includes(sheetIndex, sheetName, false),
+                new StreamingSheetRenderer(reader, context, selection, progress));
+        return context;
+    }
 
-        float verticalOffset = calculateVerticalOffset(cellStyle, cellHeight, totalTextHeight, fontSize);
+    /**
+     * Measures the sheet and lays its selected areas out into pages.
+     */
+    private SheetPlan planSheet(Workbook workbook, int sheetIndex, SheetSelection selection) {
+        Sheet sheet = workbook.getSheetAt(sheetIndex);
+        SheetGeometry geometry = new SheetGeometry(sheet);
+        UsedRange usedRange = UsedRange.of(sheet);
+        SheetLayout layout = paginator.paginate(workbook, sheetIndex, geometry, usedRange, selection.areas(sheet.getSheetName()));
+        return new SheetPlan(sheet, geometry, usedRange, layout);
+    }
 
-        float currentYPosition = yPosition - fontSize - verticalOffset;
-        for (String line : lines) {
-            float adjustedXPosition = calculateAdjustedXPosition(xPosition, cellStyle, customFont, fontSize, line, cellWidth);
+    /**
+     * Draws each page of the plan that {@code pageSelected} accepts, by its zero-based index in the sheet, onto its own
+     * canvas. Runs on the sheet pool; everything it touches besides the workbook and the shared fonts and evaluator
+     * belongs to {@code context}.
+     */
+    private RenderedSheet renderSheet(RenderContext context, SheetPlan plan, IntPredicate pageSelected, ConversionProgress progress) throws IOException {
+        Sheet sheet = plan.sheet();
+        SheetGeometry geometry = plan.geometry();
+        UsedRange usedRange = plan.usedRange();
+        SheetLayout layout = plan.layout();
+        context.setMergedRegions(MergedRegionIndex.of(sheet.getMergedRegions()));
+
+        // The page is scaled as a whole, so the sheet is drawn in unscaled points inside a proportionally larger page
+        float left = PAGE_MARGIN / layout.scale();
+        float top = (layout.paper().getHeight() - PAGE_MARGIN) / layout.scale();
+
+        // Every row band is printed once per column band; its rows count as rendered with the first column band
+        int firstColumn = layout.pages().isEmpty() ? 0 : layout.pages().get(0).columns().first();
+        List<PageCanvas> pages = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex < layout.pages().size(); pageIndex++) {
+            PageArea area = layout.pages().get(pageIndex);
+            progress.checkCancelled();
+            if (area.columns().first() == firstColumn) {
+                progress.rowsRendered(area.rows().last() - area.rows().first() + 1);
+            }
+            if (!pageSelected.test(pageIndex)) {
+                continue;
+            }
+            PageCanvas canvas = new PageCanvas();
+            context.setCanvas(canvas);
 
-            if (isCellUnderlined(cellStyle, workbook)) {
-                contentStream.setLineWidth(0.5f);
-                float underlineY = currentYPosition - fontSize * 0.1f;
-                contentStream.moveTo(adjustedXPosition, underlineY);
-                contentStream.lineTo(adjustedXPosition + customFont.getStringWidth(line) / 1000 * fontSize, underlineY);
-                contentStream.stroke();
+            float titleHeight = area.titleRows() != null ? geometry.height(area.titleRows()) : 0;
+            float titleWidth = area.titleColumns() != null ? geometry.width(area.titleColumns()) : 0;
+            if (area.titleRows() != null && area.titleColumns() != null) {
+                renderBlock(context, sheet, geometry, usedRange, area.titleRows(), area.titleColumns(), left, top);
+            }
+            if (area.titleRows() != null) {
+                renderBlock(context, sheet, geometry, usedRange, area.titleRows(), area.columns(), left + titleWidth, top);
             }
+            if (area.titleColumns() != null) {
+                renderBlock(context, sheet, geometry, usedRange, area.rows(), area.titleColumns(), left, top - titleHeight);
+            }
+            renderBlock(context, sheet, geometry, usedRange, area.rows(), area.columns(), left + titleWidth, top - titleHeight);
+            pages.add(canvas);
+        }
+        progress.sheetRendered();
+        return new RenderedSheet(context, layout, pages);
+    }
 
-            contentStream.beginText();
-            contentStream.newLineAtOffset(adjustedXPosition, currentYPosition);
-            contentStream.showText(line);
-            contentStream.endText();
+    /**
+     * Draws a block of cells with its top-left corner at ({@code left}, {@code top}). Only cells that draw something
+     * are visited: the cells the file holds, plus the gaps where a visible row or column style shows through. Empty
+     * stretches of a sparse row cost nothing, while the row and column boundaries still come from the geometry. A
+     * merged region is drawn once, at its first row inside the block, clipped to the block.
+     */
+    private void renderBlock(RenderContext context, Sheet sheet, SheetGeometry geometry, UsedRange usedRange, Band rows, Band columns,
+                             float left, float top) throws IOException {
+        // Page coordinates of the block's row tops and column lefts, so every cell and span below is a subtraction
+        float[] rowTops = new float[rows.last() - rows.first() + 2];
+        float firstRowOffset = geometry.rowOffset(rows.first());
+        for (int i = 0; i < rowTops.length; i++) {
+            rowTops[i] = top - (geometry.rowOffset(rows.first() + i) - firstRowOffset);
+        }
+        float[] columnLefts = new float[columns.last() - columns.first() + 2];
+        float firstColumnOffset = geometry.columnOffset(columns.first());
+        for (int i = 0; i < columnLefts.length; i++) {
+            columnLefts[i] = left + geometry.columnOffset(columns.first() + i) - firstColumnOffset;
+        }
 
-            currentYPosition -= fontSize * 1.2f;
+        BorderGrid borders = context.getBorders();
+        for (int i = 0; i < rowTops.length; i++) {
+            borders.setRowBoundary(rows.first() + i, rowTops[i]);
         }
 
-        if (cellRange.getLastRow() > cell.getRowIndex()) {
-            float heightDifference = getMergedCellHeight(sheet, cellRange) - cellHeight;
-            yPosition -= heightDifference;
+        // Columns whose style shows in the gaps of rows without a style of their own
+        List<Integer> styledColumns = new ArrayList<>();
+        for (int columnIndex = columns.first(); columnIndex <= columns.last(); columnIndex++) {
+            if (usedRange.isVisible(sheet.getColumnStyle(columnIndex))) {
+                styledColumns.add(columnIndex);
+            }
         }
 
-        xPosition += cellWidth;
+        MergedRegionIndex mergedRegions = context.getMergedRegions();
+        BlockCursor cursor = new BlockCursor(context, sheet, usedRange, columns, columnLefts);
+        for (int rowIndex = rows.first(); rowIndex <= rows.last(); rowIndex++) {
+            for (CellRangeAddress cellRange : mergedRegions.inRow(rowIndex, columns.first(), columns.last())) {
+                if (rowIndex == Math.max(cellRange.getFirstRow(), rows.first())) {
+                    drawMergedRegion(context, sheet, cellRange, rows, columns, rowTops, columnLefts);
+                    context.countDrawnMergedRegion();
+                }
+            }
 
-        drawMergedCellBorders(contentStream, sheet, cellRange, xPosition - cellWidth, yPosition, cellWidth, cellHeight);
+            float yPosition = rowTops[rowIndex - rows.first()];
+            float cellHeight = yPosition - rowTops[rowIndex - rows.first() + 1];
+            if (cellHeight <= 0) {
+                // Hidden row
+                continue;
+            }
+            Row row = sheet.getRow(rowIndex);
+            cursor.startRow(row, rowIndex, yPosition, cellHeight);
+
+            if (row != null && row.isFormatted()) {
+                // A row style covers every gap: all of them when it draws something, none otherwise
+                if (usedRange.isVisible(row.getRowStyle())) {
+                    for (int columnIndex = columns.first(); columnIndex <= columns.last(); columnIndex++) {
+                        cursor.visit(columnIndex);
+                    }
+                } else {
+                    cursor.visitCells();
+                }
+            } else {
+                cursor.visitCellsAnd(styledColumns);
+            }
+        }
     }
 
-    private void drawCellContent(PDPageContentStream contentStream, CellRangeAddress cellRange, Cell cell, float xPosition, float yPosition, float cellWidth, float cellHeight, PDType0Font customFont, PDType0Font customFontBold, Workbook workbook, Map<CellAddress, CellRangeAddress> mergedCellsMap) throws IOException {
-        CellStyle cellStyle = cell.getCellStyle();
-        Font cellFont = workbook.getFontAt(cellStyle.getFontIndex());
-        float fontSize = cellFont.getFontHeightInPoints();
-
-        Color bgColor = getExcelCellBackgroundColor(cellStyle);
-        if (bgColor != null) {
-            contentStream.setNonStrokingColor(bgColor);
-            contentStream.addRect(xPosition, yPosition - cellHeight, cellWidth, cellHeight);
-            contentStream.fill();
+    /**
+     * Walks one row of a block, drawing the cells it is sent to.
+     */
+    private class BlockCursor {
+
+        private final RenderContext context;
+        private final Sheet sheet;
+        private final UsedRange usedRange;
+        private final Band columns;
+        private final float[] columnLefts;
+
+        private Row row;
+        private int rowIndex;
+        private float yPosition;
+        private float cellHeight;
+
+        BlockCursor(RenderContext context, Sheet sheet, UsedRange usedRange, Band columns, float[] columnLefts) {
+            this.context = context;
+            this.sheet = sheet;
+            this.usedRange = usedRange;
+            this.columns = columns;
+            this.columnLefts = columnLefts;
         }
 
-        Color fontColor = getExcelCellFontColor(cell);
-
-        if (fontColor != null) {
-            contentStream.setNonStrokingColor(fontColor);
-        } else {
-            contentStream.setNonStrokingColor(Color.BLACK);
+        void startRow(Row row, int rowIndex, float yPosition, float cellHeight) {
+            this.row = row;
+            this.rowIndex = rowIndex;
+            this.yPosition = yPosition;
+            this.cellHeight = cellHeight;
         }
 
-        if (cellFont.getBold()) {
-            contentStream.setFont(customFontBold, fontSize);
-        } else {
-            contentStream.setFont(customFont, fontSize);
+        /**
+         * Visits the row's cells inside the block.
+         */
+        void visitCells() throws IOException {
+            visitCellsAnd(List.of());
         }
 
-        String text;
-        if (cell.getCellType() == CellType.FORMULA) {
-            FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-            CellValue cellValue = evaluator.evaluate(cell);
-            text = formatCellValue(cellValue);
-        } else {
-            text = getStringCellValue(cell);
+        /**
+         * Visits the row's cells inside the block merged, in column order, with the given columns.
+         */
+        void visitCellsAnd(List<Integer> extraColumns) throws IOException {
+            Iterator<Cell> cells = row != null ? row.cellIterator() : Collections.emptyIterator();
+            int nextCell = nextCellColumn(cells);
+            int extra = 0;
+            while (nextCell <= columns.last() || extra < extraColumns.size()) {
+                int nextExtra = extra < extraColumns.size() ? extraColumns.get(extra) : Integer.MAX_VALUE;
+                int columnIndex = Math.min(nextCell, nextExtra);
+                if (columnIndex > columns.last()) {
+                    break;
+                }
+                visit(columnIndex);
+                if (nextCell == columnIndex) {
+                    nextCell = nextCellColumn(cells);
+                }
+                if (nextExtra == columnIndex) {
+                    extra++;
+                }
+            }
         }
 
-        if (text.trim().isEmpty()) {
-            text = "";
+        /**
+         * Column of the next cell at or after the block's first column, or {@code Integer.MAX_VALUE} past the last.
+         */
+        private int nextCellColumn(Iterator<Cell> cells) {
+            while (cells.hasNext()) {
+                int columnIndex = cells.next().getColumnIndex();
+                if (columnIndex > columns.last()) {
+                    return Integer.MAX_VALUE;
+                }
+                if (columnIndex >= columns.first()) {
+                    return columnIndex;
+                }
+            }
+            return Integer.MAX_VALUE;
         }
 
-        String[] lines = text.split("\n");
-        float totalTextHeight = lines.length * fontSize * 1.2f;
-
-        float verticalOffset = calculateVerticalOffset(cellStyle, cellHeight, totalTextHeight, fontSize);
-
-        float currentYPosition = yPosition - fontSize - verticalOffset;
-        for (String line : lines) {
-            float adjustedXPosition = calculateAdjustedXPosition(xPosition, cellStyle, customFont, fontSize, line, cellWidth);
-
-            if (isCellUnderlined(cellStyle, workbook)) {
-                contentStream.setLineWidth(0.5f);
-                float underlineY = currentYPosition - fontSize * 0.1f;
-                contentStream.moveTo(adjustedXPosition, underlineY);
-                contentStream.lineTo(adjustedXPosition + customFont.getStringWidth(line) / 1000 * fontSize, underlineY);
-                contentStream.stroke();
+        /**
+         * Draws the cell, or the formatting a missing cell shows. Merged cells are drawn with their region and cells
+         * that draw nothing are passed over.
+         */
+        void visit(int columnIndex) throws IOException {
+            if (context.getMergedRegions().find(rowIndex, columnIndex) != null) {
+                return;
+            }
+            float xPosition = columnLefts[columnIndex - columns.first()];
+            float cellWidth = columnLefts[columnIndex - columns.first() + 1] - xPosition;
+            if (cellWidth <= 0) {
+                // Hidden column
+                return;
             }
 
-            contentStream.beginText();
-            contentStream.newLineAtOffset(adjustedXPosition, currentYPosition);
-            contentStream.showText(line);
-            contentStream.endText();
+            Cell cell = row != null ? row.getCell(columnIndex) : null;
+            CellStyle cellStyle;
+            if (cell != null) {
+                if (!usedRange.producesOutput(cell)) {
+                    return;
+                }
+                cellStyle = cell.getCellStyle();
+            } else {
+                cellStyle = emptyCellStyle(sheet, row, columnIndex);
+                if (!usedRange.isVisible(cellStyle)) {
+                    return;
+                }
+            }
+            RenderStyle style = context.getStyle(cellStyle);
 
-            currentYPosition -= fontSize * 1.2f;
+            paintCell(context, style, cell != null ? getCellText(cell, context) : "", xPosition, yPosition, cellWidth, cellHeight);
+            drawCellBorders(context, style, rowIndex, columnIndex, xPosition, cellWidth);
+            context.countDrawnCell();
         }
+    }
 
-        if (isCellInMergedRange(cell, mergedCellsMap)) {
+    /**
+     * Paints the part of a merged region inside the block. The value is only printed where the region's anchor is, so
+     * a region split across pages shows it once, and sides cut off by a page edge are not outlined.
+     */
+    private void drawMergedRegion(RenderContext context, Sheet sheet, CellRangeAddress cellRange, Band rows, Band columns, float[] rowTops, float[] columnLefts) throws IOException {
+        CellRangeAddress visible = new CellRangeAddress(
+                Math.max(cellRange.getFirstRow(), rows.first()), Math.min(cellRange.getLastRow(), rows.last()),
+                Math.max(cellRange.getFirstColumn(), columns.first()), Math.min(cellRange.getLastColumn(), columns.last()));
+        float xPosition = columnLefts[visible.getFirstColumn() - columns.first()];
+        float yPosition = rowTops[visible.getFirstRow() - rows.first()];
+        float cellWidth = columnLefts[visible.getLastColumn() - columns.first() + 1] - xPosition;
+        float cellHeight = yPosition - rowTops[visible.getLastRow() - rows.first() + 1];
+        if (cellWidth <= 0 || cellHeight <= 0) {
             return;
         }
 
-        drawCellBorders(contentStream, cellRange, cell, cellStyle, xPosition, yPosition, cellWidth, cellHeight);
+        Cell anchor = getCell(sheet, cellRange.getFirstRow(), cellRange.getFirstColumn());
+        RenderStyle style = anchor != null ? context.getStyle(anchor.getCellStyle()) : context.getStyle(0);
+        boolean anchorVisible = visible.getFirstRow() == cellRange.getFirstRow() && visible.getFirstColumn() == cellRange.getFirstColumn();
+        String text = anchor != null && anchorVisible ? getCellText(anchor, context) : "";
+
+        paintCell(context, style, text, xPosition, yPosition, cellWidth, cellHeight);
+
+        // A side of the merged area is drawn when any corner cell declares it
+        MergedBorders mergedBorders = new MergedBorders();
+        mergedBorders.add(style);
+        addCornerStyle(context, mergedBorders, getCell(sheet, cellRange.getFirstRow(), cellRange.getLastColumn()));
+        addCornerStyle(context, mergedBorders, getCell(sheet, cellRange.getLastRow(), cellRange.getFirstColumn()));
+        addCornerStyle(context, mergedBorders, getCell(sheet, cellRange.getLastRow(), cellRange.getLastColumn()));
+        mergedBorders.clip(cellRange, visible);
+        mergedBorders.draw(context, visible, visible.getLastRow(), xPosition, yPosition, cellWidth, cellHeight);
     }
 
-    private boolean isCellUnderlined(CellStyle cellStyle, Workbook workbook) {
-        Font font = workbook.getFontAt(cellStyle.getFontIndex());
-        return font.getUnderline() != Font.U_NONE;
+    private void addCornerStyle(RenderContext context, MergedBorders mergedBorders, Cell corner) throws IOException {
+        if (corner != null) {
+            mergedBorders.add(context.getStyle(corner.getCellStyle()));
+        }
     }
 
-    private Color getExcelCellFontColor(Cell cell) {
-        Workbook workbook = cell.getSheet().getWorkbook();
-        CellStyle cellStyle = cell.getCellStyle();
-        short colorIndex = cellStyle.getFillForegroundColor();
-        Color color = null;
+    /**
+     * The formatting a cell missing from the file shows: its row's style, else its column's. {@code null} when that is
+     * the default style, which draws nothing.
+     */
+    private static CellStyle emptyCellStyle(Sheet sheet, Row row, int columnIndex) {
+        CellStyle cellStyle = row != null && row.isFormatted() ? row.getRowStyle() : sheet.getColumnStyle(columnIndex);
+        return cellStyle != null && cellStyle.getIndex() != 0 ? cellStyle : null;
+    }
 
-        if (colorIndex != IndexedColors.AUTOMATIC.getIndex()) {
-            if (workbook instanceof XSSFWorkbook) {
-                XSSFFont xssfFont = ((XSSFCellStyle) cellStyle).getFont();
-                XSSFColor xssfColor = xssfFont.getXSSFColor();
-                if (xssfColor != null) {
-                    byte[] rgb = xssfColor.getRGB();
-                    if (rgb != null) {
-                        color = new Color((rgb[0] & 0xFF), (rgb[1] & 0xFF), (rgb[2] & 0xFF));
-                    }
-                }
-            } else if (workbook instanceof HSSFWorkbook) {
-                HSSFFont hssfFont = ((HSSFCellStyle) cellStyle).getFont(workbook);
-                HSSFColor hssfColor = hssfFont.getHSSFColor((HSSFWorkbook) workbook);
-                if (hssfColor != null) {
-                    short[] triplet = hssfColor.getTriplet();
-                    color = new Color(triplet[0], triplet[1], triplet[2]);
+    private static Cell getCell(Sheet sheet, int rowIndex, int columnIndex) {
+        Row row = sheet.getRow(rowIndex);
+        return row != null ? row.getCell(columnIndex) : null;
+    }
+
+    /**
+     * Appends a rendered sheet's pages to the document, scaling each page's content by the sheet's print scale. Each
+     * page's content stream is closed as soon as it is written, and its canvas let go, so a sheet's buffered pages
+     * move into the document (and its scratch file) one at a time.
+     */
+    private void addPages(PDDocument pdfDocument, RenderContext context, RenderedSheet renderedSheet) throws IOException {
+        SheetLayout layout = renderedSheet.layout();
+        List<PageCanvas> pages = renderedSheet.pages();
+        for (int i = 0; i < pages.size(); i++) {
+            PageCanvas canvas = pages.set(i, null);
+            PDPage page = new PDPage(layout.paper());
+            pdfDocument.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(pdfDocument, page)) {
+                if (layout.scale() != 1) {
+                    contentStream.transform(Matrix.getScaleInstance(layout.scale(), layout.scale()));
                 }
+                canvas.flush(contentStream);
             }
         }
+        context.addCounts(renderedSheet.context());
+    }
 
-        if (color == null) {
-            color = Color.BLACK;
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering sheets");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException("Sheet rendering failed", cause);
         }
+    }
 
-        return color;
+    /**
+     * Paints the background and text of a cell. Shared by the DOM and streaming paths, so it works purely on the
+     * resolved style and display text.
+     */
+    private void paintCell(RenderContext context, RenderStyle style, String text, float xPosition, float yPosition, float cellWidth, float cellHeight) throws IOException {
+        Color bgColor = style.fillColor();
+        if (bgColor != null) {
+            context.getCanvas().fill(bgColor, xPosition, yPosition - cellHeight, cellWidth, cellHeight);
+        }
+        context.getTextLayout().draw(context.getCanvas(), style, text, xPosition, yPosition, cellWidth, cellHeight);
     }
 
-    private boolean isCellInMergedRange(Cell cell, Map<CellAddress, CellRangeAddress> mergedCellsMap) {
-        for (Map.Entry<CellAddress, CellRangeAddress> entry : mergedCellsMap.entrySet()) {
-            CellRangeAddress range = entry.getValue();
-            if (range.isInRange(cell.getRowIndex(), cell.getColumnIndex())) {
-                return true;
+    private String getCellText(Cell cell, RenderContext context) {
+        if (cell.getCellType() == CellType.FORMULA) {
+            if (context.getFormulaMode() == FormulaMode.CACHED && hasCachedResult(cell)) {
+                context.countCachedFormula();
+                return formatCachedFormulaResult(cell);
             }
+            context.countEvaluatedFormula();
+            CellValue cellValue = context.evaluate(cell);
+            return formatCellValue(cellValue);
+        }
+        return getStringCellValue(cell);
+    }
+
+    /**
+     * .xls always stores a result with the formula; .xlsx written by tools other than Excel may leave {@code <v>} out.
+     */
+    private boolean hasCachedResult(Cell cell) {
+        return !(cell instanceof XSSFCell xssfCell) || xssfCell.getCTCell().isSetV();
+    }
+
+    /**
+     * Same output as {@link #formatCellValue(CellValue)}, so both modes print a value identically.
+     */
+    private String formatCachedFormulaResult(Cell cell) {
+        switch (cell.getCachedFormulaResultType()) {
+            case STRING:
+                return cell.getRichStringCellValue().getString();
+            case NUMERIC:
+                return String.valueOf(cell.getNumericCellValue());
+            case BOOLEAN:
+                return String.valueOf(cell.getBooleanCellValue());
+            default:
+                return "";
         }
-        return false;
     }
 
     private String formatCellValue(CellValue cellValue) {
@@ -309,187 +749,366 @@ public class ExcelToPDFConverterService {
         }
     }
 
-    private Map<CellAddress, CellRangeAddress> getMergedCellsMap(Sheet sheet) {
-        Map<CellAddress, CellRangeAddress> mergedCellsMap = new HashMap<>();
-        for (int i = 0; i < sheet.getNumMergedRegions(); i++) {
-            CellRangeAddress cellRange = sheet.getMergedRegion(i);
-            for (int row = cellRange.getFirstRow(); row <= cellRange.getLastRow(); row++) {
-                for (int col = cellRange.getFirstColumn(); col <= cellRange.getLastColumn(); col++) {
-                    mergedCellsMap.put(new CellAddress(row, col), cellRange);
-                }
-            }
-        }
-        return mergedCellsMap;
+    /**
+     * Records the cell's edges on the page's border grid; the renderer has already laid out the row boundaries.
+     */
+    private void drawCellBorders(RenderContext context, RenderStyle style, int rowIndex, int columnIndex, float xPosition, float cellWidth) {
+        BorderGrid borders = context.getBorders();
+        borders.setColumnBoundary(columnIndex, xPosition);
+        borders.setColumnBoundary(columnIndex + 1, xPosition + cellWidth);
+        borders.addCell(rowIndex, columnIndex, style);
     }
 
-    private float getMergedCellHeight(Sheet sheet, CellRangeAddress cellRange) {
-        float height = 0;
-        for (int row = cellRange.getFirstRow(); row <= cellRange.getLastRow(); row++) {
-            height += sheet.getRow(row).getHeightInPoints();
-        }
-        return height;
+    private String getStringCellValue(Cell cell) {
+        DataFormatter formatter = new DataFormatter();
+        return formatter.formatCellValue(cell);
     }
 
-    private Color getExcelCellBackgroundColor(CellStyle cellStyle) {
-        if (cellStyle.getFillPattern() == FillPatternType.SOLID_FOREGROUND) {
-            XSSFColor color = (XSSFColor) cellStyle.getFillForegroundColorColor();
-            if (color != null) {
-                byte[] rgb = color.getRGB();
-                if (rgb != null) {
-                    return new Color((rgb[0] & 0xFF), (rgb[1] & 0xFF), (rgb[2] & 0xFF));
-                }
-            }
+    /**
+     * Union of the border sides declared by the corner cells of a merged area.
+     */
+    private class MergedBorders {
+
+        private BorderStyle top = BorderStyle.NONE;
+        private BorderStyle bottom = BorderStyle.NONE;
+        private BorderStyle left = BorderStyle.NONE;
+        private BorderStyle right = BorderStyle.NONE;
+
+        void add(RenderStyle style) {
+            top = top != BorderStyle.NONE ? top : style.borderTop();
+            bottom = bottom != BorderStyle.NONE ? bottom : style.borderBottom();
+            left = left != BorderStyle.NONE ? left : style.borderLeft();
+            right = right != BorderStyle.NONE ? right : style.borderRight();
         }
-        return null;
-    }
-
-    private float calculateAdjustedXPosition(float xPosition, CellStyle cellStyle, PDType0Font customFont, float fontSize, String text, float cellWidth) throws IOException {
-        float textWidth = customFont.getStringWidth(text) / 1000 * fontSize;
-        HorizontalAlignment alignment = cellStyle.getAlignment();
 
-        switch (alignment) {
-            case CENTER:
-                return xPosition + (cellWidth - textWidth) / 2;
-            case RIGHT:
-                return xPosition + cellWidth - textWidth;
-            case LEFT:
-            default:
-                return xPosition;
+        /**
+         * Drops the sides of {@code region} that lie outside the {@code visible} part, where a page edge cuts it.
+         */
+        void clip(CellRangeAddress region, CellRangeAddress visible) {
+            top = visible.getFirstRow() == region.getFirstRow() ? top : BorderStyle.NONE;
+            bottom = visible.getLastRow() == region.getLastRow() ? bottom : BorderStyle.NONE;
+            left = visible.getFirstColumn() == region.getFirstColumn() ? left : BorderStyle.NONE;
+            right = visible.getLastColumn() == region.getLastColumn() ? right : BorderStyle.NONE;
         }
-    }
 
-    private float calculateVerticalOffset(CellStyle cellStyle, float cellHeight, float totalTextHeight, float fontSize) {
-        VerticalAlignment verticalAlignment = cellStyle.getVerticalAlignment();
-        switch (verticalAlignment) {
-            case CENTER:
-                return (cellHeight - totalTextHeight) / 2;
-            case TOP:
-                return 0;
-            case BOTTOM:
-            default:
-                return cellHeight - totalTextHeight - fontSize * 0.2f;
+        /**
+         * @param lastRow the region's last row, or the last one laid out so far when the region is cut by a page break
+         */
+        void draw(RenderContext context, CellRangeAddress region, int lastRow, float xPosition, float yPosition, float cellWidth, float cellHeight) {
+            BorderGrid borders = context.getBorders();
+            borders.setColumnBoundary(region.getFirstColumn(), xPosition);
+            borders.setColumnBoundary(region.getLastColumn() + 1, xPosition + cellWidth);
+            borders.setRowBoundary(lastRow + 1, yPosition - cellHeight);
+            borders.addRegion(region.getFirstRow(), lastRow, region.getFirstColumn(), region.getLastColumn(), top, bottom, left, right);
         }
     }
 
-    private void drawCellBorders(PDPageContentStream contentStream, CellRangeAddress cellRange, Cell cell, CellStyle style, float xPosition, float yPosition, float cellWidth, float cellHeight) throws IOException {
-        boolean drawTopBorder = style.getBorderTop() != BorderStyle.NONE && !isBorderDrawn(xPosition, yPosition, cellWidth, "top");
-        boolean drawBottomBorder = style.getBorderBottom() != BorderStyle.NONE && !isBorderDrawn(xPosition, yPosition - cellHeight, cellWidth, "bottom");
-        boolean drawLeftBorder = style.getBorderLeft() != BorderStyle.NONE && !isBorderDrawn(xPosition, yPosition, cellHeight, "left");
-        boolean drawRightBorder = style.getBorderRight() != BorderStyle.NONE && !isBorderDrawn(xPosition + cellWidth, yPosition, cellHeight, "right");
-
-        if (drawTopBorder) {
-            contentStream.moveTo(xPosition, yPosition);
-            contentStream.lineTo(xPosition + cellWidth, yPosition);
-            contentStream.stroke();
-            markBorderDrawn(xPosition, yPosition, cellWidth, "top");
+    /**
+     * Renders rows as the SAX reader emits them. A page is closed and the next one started as soon as a row no longer
+     * fits, and a merged cell is held back only until its last row has arrived, so memory is bounded by the widest row
+     * and the merged regions currently open rather than by the sheet size.
+     */
+    private class StreamingSheetRenderer implements XlsxStreamingReader.SheetHandler {
+
+        private final XlsxStreamingReader reader;
+        private final RenderContext context;
+        private final SheetSelection selection;
+        private final ConversionProgress progress;
+
+        private final List<PendingMergedCell> pendingMergedCells = new ArrayList<>();
+        private XlsxStreamingReader.SheetInfo sheet;
+        private MergedRegionIndex mergedRegions;
+
+        /**
+         * The sheet's printed rows and columns: its selected area, or everything.
+         */
+        private CellRangeAddress printed;
+
+        /**
+         * The first row not laid out yet, or -1 before the sheet's first row: rows the XML leaves out in between still
+         * take their default height, the way the DOM path lays them out.
+         */
+        private int nextRow;
+
+        private PDPageContentStream contentStream;
+        private float yPosition;
+        private boolean pageEmpty;
+        private int pageNumber;
+
+        /**
+         * Whether the current page is kept. Rows of a page left out only advance the pagination.
+         */
+        private boolean drawing;
+
+        StreamingSheetRenderer(XlsxStreamingReader reader, RenderContext context, SheetSelection selection, ConversionProgress progress) {
+            this.reader = reader;
+            this.context = context;
+            this.selection = selection;
+            this.progress = progress;
         }
 
-        if (drawBottomBorder) {
-            contentStream.moveTo(xPosition, yPosition - cellHeight);
-            contentStream.lineTo(xPosition + cellWidth, yPosition - cellHeight);
-            contentStream.stroke();
-            markBorderDrawn(xPosition, yPosition - cellHeight, cellWidth, "bottom");
+        @Override
+        public void startSheet(XlsxStreamingReader.SheetInfo sheet) throws IOException {
+            this.sheet = sheet;
+            mergedRegions = MergedRegionIndex.of(sheet.mergedRegions());
+            List<CellRangeAddress> areas = selection.areas(sheet.name());
+            printed = areas == null ? new CellRangeAddress(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE) : areas.get(0);
+            nextRow = areas == null ? -1 : printed.getFirstRow();
+            startPage();
         }
 
-        if (drawLeftBorder) {
-            contentStream.moveTo(xPosition, yPosition);
-            contentStream.lineTo(xPosition, yPosition - cellHeight);
-            contentStream.stroke();
-            markBorderDrawn(xPosition, yPosition, cellHeight, "left");
-        }
+        @Override
+        public void row(XlsxStreamingReader.StreamedRow row) throws IOException {
+            progress.checkCancelled();
+            int rowIndex = row.rowIndex();
+            float rowHeight = row.heightInPoints();
+            if (rowIndex < printed.getFirstRow() || rowIndex > printed.getLastRow()) {
+                progress.rowsRendered(1);
+                return;
+            }
+            for (int skippedRow = nextRow < 0 ? rowIndex : nextRow; skippedRow < rowIndex; skippedRow++) {
+                startRow(skippedRow, sheet.defaultRowHeight());
+                endRow(skippedRow, sheet.defaultRowHeight());
+            }
+            nextRow = rowIndex + 1;
+            startRow(rowIndex, rowHeight);
+
+            // Only the columns that hold a cell or a merged region's anchor or corners are visited; gaps are skipped
+            // over with the column offsets
+            List<XlsxStreamingReader.StreamedCell> cells = row.cells();
+            int[] visitedColumns = drawing ? visitedColumns(rowIndex, row) : new int[0];
+            int cellPointer = 0;
+            for (int cellIndex : visitedColumns) {
+                if (cellIndex > printed.getLastColumn()) {
+                    continue;
+                }
+                CellRangeAddress cellRange = mergedRegions.find(rowIndex, cellIndex);
+                boolean anchor = cellRange != null && cellRange.getFirstRow() == rowIndex && cellRange.getFirstColumn() == cellIndex;
+                // Left of the printed columns, only a merged region reaching into them draws anything, clipped to them
+                if (cellIndex < printed.getFirstColumn() && !(anchor && cellRange.getLastColumn() >= printed.getFirstColumn())) {
+                    continue;
+                }
+                while (cellPointer < cells.size() && cells.get(cellPointer).columnIndex() < cellIndex) {
+                    cellPointer++;
+                }
+                XlsxStreamingReader.StreamedCell cell = cellPointer < cells.size() && cells.get(cellPointer).columnIndex() == cellIndex
+                        ? cells.get(cellPointer) : null;
+                RenderStyle cellStyle = context.getStyle(cell != null ? cell.styleIndex() : 0);
+                String text = cell != null ? cell.text() : "";
+
+                if (anchor) {
+                    // As on the DOM path, a region cut by the printed columns keeps its fill but not its text
+                    CellRangeAddress visible = new CellRangeAddress(cellRange.getFirstRow(), cellRange.getLastRow(),
+                            Math.max(cellIndex, printed.getFirstColumn()), Math.min(cellRange.getLastColumn(), printed.getLastColumn()));
+                    float xPosition = PAGE_MARGIN + sheet.columnWidths().spanInPoints(printed.getFirstColumn(), visible.getFirstColumn() - 1);
+                    float cellWidth = sheet.columnWidths().spanInPoints(visible.getFirstColumn(), visible.getLastColumn());
+
+                    PendingMergedCell mergedCell = new PendingMergedCell(cellRange, visible, cellStyle,
+                            visible.getFirstColumn() == cellIndex ? text : "", xPosition, yPosition, cellWidth);
+                    mergedCell.borders.add(cellStyle);
+                    mergedCell.borders.add(context.getStyle(styleIndexAt(cells, cellRange.getLastColumn())));
+                    pendingMergedCells.add(mergedCell);
+                } else if (cellRange == null) {
+                    float xPosition = PAGE_MARGIN + sheet.columnWidths().spanInPoints(printed.getFirstColumn(), cellIndex - 1);
+                    float cellWidth = sheet.columnWidths().widthInPoints(cellIndex);
+                    if (cellWidth > 0 && rowHeight > 0) {
+                        paintCell(context, cellStyle, text, xPosition, yPosition, cellWidth, rowHeight);
+                        drawCellBorders(context, cellStyle, rowIndex, cellIndex, xPosition, cellWidth);
+                        context.countDrawnCell();
+                    }
+                } else if (cellRange.getFirstRow() != rowIndex && rowIndex == cellRange.getLastRow()
+                        && (cellIndex == cellRange.getFirstColumn() || cellIndex == cellRange.getLastColumn())) {
+                    addCornerBorders(cellRange, cellStyle);
+                }
+            }
 
-        if (drawRightBorder) {
-            contentStream.moveTo(xPosition + cellWidth, yPosition);
-            contentStream.lineTo(xPosition + cellWidth, yPosition - cellHeight);
-            contentStream.stroke();
-            markBorderDrawn(xPosition + cellWidth, yPosition, cellHeight, "right");
+            endRow(rowIndex, rowHeight);
+            progress.rowsRendered(1);
         }
-    }
 
-    private void drawMergedCellBorders(PDPageContentStream contentStream, Sheet sheet, CellRangeAddress cellRange, float xPosition, float yPosition, float cellWidth, float cellHeight) throws IOException {
-        List<Cell> cornerCells = new ArrayList<>();
+        @Override
+        public void endSheet() throws IOException {
+            flushPendingMergedCells();
+            finishPage();
+            progress.sheetRendered();
+        }
 
-        Cell topLeftCell = getCell(sheet, cellRange.getFirstRow(), cellRange.getFirstColumn());
-        // Top-right corner
-        Cell topRightCell = getCell(sheet, cellRange.getFirstRow(), cellRange.getLastColumn());
-        // Bottom-left corner
-        Cell bottomLeftCell = getCell(sheet, cellRange.getLastRow(), cellRange.getFirstColumn());
-        // Bottom-right corner
-        Cell bottomRightCell = getCell(sheet, cellRange.getLastRow(), cellRange.getLastColumn());
+        /**
+         * Breaks the page when the row does not fit on it, and records the row's top.
+         */
+        private void startRow(int rowIndex, float rowHeight) throws IOException {
+            if (!pageEmpty && yPosition - rowHeight < PAGE_MARGIN) {
+                flushPendingMergedCells();
+                startPage();
+            }
+            context.getBorders().setRowBoundary(rowIndex, yPosition);
+        }
 
-        // Add cells to the list
-        cornerCells.add(topLeftCell);
-        cornerCells.add(topRightCell);
-        cornerCells.add(bottomLeftCell);
-        cornerCells.add(bottomRightCell);
+        /**
+         * Moves below the row, growing the merged cells it belongs to and drawing the ones it ends.
+         */
+        private void endRow(int rowIndex, float rowHeight) throws IOException {
+            for (PendingMergedCell mergedCell : pendingMergedCells) {
+                mergedCell.height += rowHeight;
+                mergedCell.lastRow = rowIndex;
+            }
+            yPosition -= rowHeight;
+            context.getBorders().setRowBoundary(rowIndex + 1, yPosition);
+            pageEmpty = false;
+
+            Iterator<PendingMergedCell> pending = pendingMergedCells.iterator();
+            while (pending.hasNext()) {
+                PendingMergedCell mergedCell = pending.next();
+                if (mergedCell.region.getLastRow() <= rowIndex) {
+                    mergedCell.draw();
+                    pending.remove();
+                }
+            }
+        }
 
-        // Print the corner cells
-        for (Cell cell : cornerCells) {
-            CellStyle style = cell.getCellStyle();
-            boolean drawTopBorder = style.getBorderTop() != BorderStyle.NONE && !isBorderDrawn(xPosition, yPosition, cellWidth, "top");
-            boolean drawBottomBorder = style.getBorderBottom() != BorderStyle.NONE && !isBorderDrawn(xPosition, yPosition - cellHeight, cellWidth, "bottom");
-            boolean drawLeftBorder = style.getBorderLeft() != BorderStyle.NONE && !isBorderDrawn(xPosition, yPosition, cellHeight, "left");
-            boolean drawRightBorder = style.getBorderRight() != BorderStyle.NONE && !isBorderDrawn(xPosition + cellWidth, yPosition, cellHeight, "right");
+        /**
+         * Starts the next page, which is only added to the document when the selection keeps it.
+         */
+        private void startPage() throws IOException {
+            finishPage();
+            pageNumber++;
+            drawing = selection.includesPage(pageNumber);
+            if (drawing) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                context.getPdfDocument().addPage(page);
+                contentStream = new PDPageContentStream(context.getPdfDocument(), page);
+            }
+            yPosition = PDRectangle.A4.getHeight() - PAGE_MARGIN;
+            pageEmpty = true;
+        }
 
-            if (drawTopBorder) {
-                contentStream.moveTo(xPosition, yPosition);
-                contentStream.lineTo(xPosition + cellWidth, yPosition);
-                contentStream.stroke();
-                markBorderDrawn(xPosition, yPosition, cellWidth, "top");
+        private void finishPage() throws IOException {
+            if (contentStream != null) {
+                context.finishPage(contentStream);
+                contentStream.close();
+                contentStream = null;
+            } else {
+                // The row boundaries of a page left out
+                context.setCanvas(new PageCanvas());
             }
+        }
 
-            if (drawBottomBorder) {
-                contentStream.moveTo(xPosition, yPosition - cellHeight);
-                contentStream.lineTo(xPosition + cellWidth, yPosition - cellHeight);
-                contentStream.stroke();
-                markBorderDrawn(xPosition, yPosition - cellHeight, cellWidth, "bottom");
+        /**
+         * Merged cells that are still open when the page ends are drawn with the rows seen so far.
+         */
+        private void flushPendingMergedCells() throws IOException {
+            for (PendingMergedCell mergedCell : pendingMergedCells) {
+                mergedCell.draw();
             }
+            pendingMergedCells.clear();
+        }
 
-            if (drawLeftBorder) {
-                contentStream.moveTo(xPosition, yPosition);
-                contentStream.lineTo(xPosition, yPosition - cellHeight);
-                contentStream.stroke();
-                markBorderDrawn(xPosition, yPosition, cellHeight, "left");
+        private void addCornerBorders(CellRangeAddress cellRange, RenderStyle cellStyle) {
+            for (PendingMergedCell mergedCell : pendingMergedCells) {
+                if (mergedCell.region == cellRange) {
+                    mergedCell.borders.add(cellStyle);
+                }
             }
+        }
 
-            if (drawRightBorder) {
-                contentStream.moveTo(xPosition + cellWidth, yPosition);
-                contentStream.lineTo(xPosition + cellWidth, yPosition - cellHeight);
-                contentStream.stroke();
-                markBorderDrawn(xPosition + cellWidth, yPosition, cellHeight, "right");
+        /**
+         * Sorted, distinct columns of the row's cells and of the anchors and bottom corners of the merged regions it
+         * crosses.
+         */
+        private int[] visitedColumns(int rowIndex, XlsxStreamingReader.StreamedRow row) {
+            List<XlsxStreamingReader.StreamedCell> cells = row.cells();
+            List<CellRangeAddress> regions = row.lastCellNum() > 0 ? mergedRegions.inRow(rowIndex, 0, row.lastCellNum() - 1) : List.of();
+            int[] columns = new int[cells.size() + 2 * regions.size()];
+            int count = 0;
+            for (XlsxStreamingReader.StreamedCell cell : cells) {
+                columns[count++] = cell.columnIndex();
             }
+            for (CellRangeAddress region : regions) {
+                if (region.getFirstRow() == rowIndex) {
+                    columns[count++] = region.getFirstColumn();
+                } else if (region.getLastRow() == rowIndex) {
+                    columns[count++] = region.getFirstColumn();
+                    if (region.getLastColumn() < row.lastCellNum()) {
+                        columns[count++] = region.getLastColumn();
+                    }
+                }
+            }
+            Arrays.sort(columns, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || columns[i] != columns[distinct - 1]) {
+                    columns[distinct++] = columns[i];
+                }
+            }
+            return Arrays.copyOf(columns, distinct);
         }
-    }
 
-    private static Cell getCell(Sheet sheet, int rowIndex, int colIndex) {
-        Row row = sheet.getRow(rowIndex);
-        if (row == null) {
-            row = sheet.createRow(rowIndex);
+        private int styleIndexAt(List<XlsxStreamingReader.StreamedCell> cells, int columnIndex) {
+            for (XlsxStreamingReader.StreamedCell cell : cells) {
+                if (cell.columnIndex() == columnIndex) {
+                    return cell.styleIndex();
+                }
+            }
+            return 0;
         }
-        Cell cell = row.getCell(colIndex);
-        if (cell == null) {
-            cell = row.createCell(colIndex);
+
+        private class PendingMergedCell {
+
+            private final CellRangeAddress region;
+            private final CellRangeAddress visible;
+            private final RenderStyle cellStyle;
+            private final String text;
+            private final float xPosition;
+            private final float yPosition;
+            private final float width;
+            private final MergedBorders borders = new MergedBorders();
+            private float height;
+            private int lastRow;
+
+            PendingMergedCell(CellRangeAddress region, CellRangeAddress visible, RenderStyle cellStyle, String text, float xPosition,
+                              float yPosition, float width) {
+                this.region = region;
+                this.visible = visible;
+                this.cellStyle = cellStyle;
+                this.text = text;
+                this.xPosition = xPosition;
+                this.yPosition = yPosition;
+                this.width = width;
+                this.lastRow = region.getFirstRow();
+            }
+
+            void draw() throws IOException {
+                if (width <= 0 || height <= 0) {
+                    // Only hidden rows or columns so far
+                    return;
+                }
+                paintCell(context, cellStyle, text, xPosition, yPosition, width, height);
+                borders.clip(region, visible);
+                borders.draw(context, visible, lastRow, xPosition, yPosition, width, height);
+                context.countDrawnMergedRegion();
+            }
         }
-        return cell;
     }
 
-    private boolean isBorderDrawn(float x, float y, float length, String direction) {
-        String key = direction + "_" + x + "_" + y;
-        return drawnBorders.getOrDefault(key, false);
+    /**
+     * A sheet's pages, drawn and waiting to be written to the document.
+     */
+    private record RenderedSheet(RenderContext context, SheetLayout layout, List<PageCanvas> pages) {
     }
 
-    private void markBorderDrawn(float x, float y, float length, String direction) {
-        String key = direction + "_" + x + "_" + y;
-        drawnBorders.put(key, true);
+    /**
+     * A sheet measured and paginated, not drawn yet.
+     */
+    private record SheetPlan(Sheet sheet, SheetGeometry geometry, UsedRange usedRange, SheetLayout layout) {
     }
 
-    private String getStringCellValue(Cell cell) {
-        DataFormatter formatter = new DataFormatter();
-        return formatter.formatCellValue(cell);
+    @FunctionalInterface
+    private interface SheetTask<T> {
+        T run() throws IOException;
     }
 
-    private float getExcelCellWidthInPoints(Sheet sheet, int columnIndex) {
-        int widthUnits = sheet.getColumnWidth(columnIndex);
-        return widthUnits * 6f / 256;
+    @FunctionalInterface
+    private interface SheetResultHandler<T> {
+        void accept(T result) throws IOException;
     }
 }
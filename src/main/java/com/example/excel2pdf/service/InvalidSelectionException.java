@@ -0,0 +1,12 @@
+package com.example.excel2pdf.service;
+
+/**
+ * The {@link Selection} is well-formed but does not fit the workbook: it names a sheet or defined name the workbook
+ * does not have, or leaves nothing to print.
+ */
+public class InvalidSelectionException extends IllegalArgumentException {
+
+    public InvalidSelectionException(String message) {
+        super(message);
+    }
+}
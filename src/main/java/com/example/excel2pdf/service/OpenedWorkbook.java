@@ -0,0 +1,73 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.reader.ReadOnlyWorkbook;
+import com.example.excel2pdf.reader.XlsxStreamingReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A workbook read as far as it is before rendering starts: the whole DOM, or for a streamed .xlsx only the package and
+ * its styles, as the sheets are parsed while they render. Holds the file and its admission's share of the memory
+ * budget until closed.
+ */
+public final class OpenedWorkbook implements Closeable {
+
+    private final ReadOnlyWorkbook workbook;
+    private final XlsxStreamingReader streamingReader;
+    private final ConversionOptions options;
+    private final SheetSelection selection;
+    private final ConversionAdmission.Admission admission;
+
+    OpenedWorkbook(ReadOnlyWorkbook workbook, XlsxStreamingReader streamingReader, ConversionOptions options, SheetSelection selection,
+                   ConversionAdmission.Admission admission) {
+        this.workbook = workbook;
+        this.streamingReader = streamingReader;
+        this.options = options;
+        this.selection = selection;
+        this.admission = admission;
+    }
+
+    /**
+     * {@code null} when the workbook is streamed.
+     */
+    ReadOnlyWorkbook getWorkbook() {
+        return workbook;
+    }
+
+    /**
+     * {@code null} unless the workbook is streamed.
+     */
+    XlsxStreamingReader getStreamingReader() {
+        return streamingReader;
+    }
+
+    /**
+     * The request's options with the application defaults filled in.
+     */
+    ConversionOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * The options' selection, checked against the workbook's sheets and defined names.
+     */
+    SheetSelection getSelection() {
+        return selection;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (workbook != null) {
+                workbook.close();
+            }
+            if (streamingReader != null) {
+                streamingReader.close();
+            }
+        } finally {
+            admission.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.excel2pdf.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 1-based output pages to keep, written as in a print dialog: {@code 1-3,7,10-}. An open-ended range runs to the last
+ * page.
+ */
+public final class PageRanges {
+
+    private final int[] firsts;
+    private final int[] lasts;
+
+    private PageRanges(int[] firsts, int[] lasts) {
+        this.firsts = firsts;
+        this.lasts = lasts;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the text is not a list of pages and ranges
+     */
+    public static PageRanges parse(String text) {
+        List<int[]> ranges = new ArrayList<>();
+        for (String part : text.split(",")) {
+            String range = part.strip();
+            int dash = range.indexOf('-');
+            try {
+                int first = Integer.parseInt((dash < 0 ? range : range.substring(0, dash)).strip());
+                int last = dash < 0 ? first
+                        : range.substring(dash + 1).isBlank() ? Integer.MAX_VALUE : Integer.parseInt(range.substring(dash + 1).strip());
+                if (first < 1 || last < first) {
+                    throw new IllegalArgumentException("Invalid page range: " + range);
+                }
+                ranges.add(new int[]{first, last});
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page range: " + range, e);
+            }
+        }
+        return new PageRanges(ranges.stream().mapToInt(range -> range[0]).toArray(), ranges.stream().mapToInt(range -> range[1]).toArray());
+    }
+
+    public boolean contains(int page) {
+        for (int i = 0; i < firsts.length; i++) {
+            if (page >= firsts[i] && page <= lasts[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < firsts.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(firsts[i]);
+            if (lasts[i] != firsts[i]) {
+                text.append('-').append(lasts[i] == Integer.MAX_VALUE ? "" : String.valueOf(lasts[i]));
+            }
+        }
+        return text.toString();
+    }
+}
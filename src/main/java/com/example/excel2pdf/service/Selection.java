@@ -0,0 +1,64 @@
+package com.example.excel2pdf.service;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.AreaReference;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The part of a workbook a request wants printed; {@link #ALL} prints what Excel would.
+ * <p>
+ * A sheet prints when it is listed in {@code sheets} or one of the ranges or names points into it. With neither, every
+ * visible sheet prints. A printed sheet shows the ranges given for it instead of its print area.
+ *
+ * @param sheets names of the sheets to print, or their 1-based positions
+ * @param ranges A1 areas: {@code A1:F40} on every printed sheet, {@code Summary!A1:F40} on that sheet only
+ * @param names  defined names whose areas are printed
+ * @param pages  output pages to keep, counted across the whole document; {@code null} for all of them
+ */
+public record Selection(List<String> sheets, List<String> ranges, List<String> names, PageRanges pages) {
+
+    public static final Selection ALL = new Selection(List.of(), List.of(), List.of(), null);
+
+    public Selection {
+        sheets = sheets != null ? List.copyOf(sheets) : List.of();
+        ranges = ranges != null ? List.copyOf(ranges) : List.of();
+        names = names != null ? List.copyOf(names) : List.of();
+        for (String range : ranges) {
+            // Fails on anything that is not an A1 area, before a workbook is even opened
+            AreaReference.generateContiguous(SpreadsheetVersion.EXCEL2007, range);
+        }
+    }
+
+    /**
+     * Builds a selection from request parameters, any of which may be missing.
+     *
+     * @throws IllegalArgumentException when a range or the page list cannot be parsed
+     */
+    public static Selection of(List<String> sheets, List<String> ranges, List<String> names, String pages) {
+        return new Selection(sheets, ranges, names, pages != null && !pages.isBlank() ? PageRanges.parse(pages) : null);
+    }
+
+    /**
+     * Same as {@link #of}, empty instead of throwing when the request is malformed.
+     */
+    public static Optional<Selection> parse(List<String> sheets, List<String> ranges, List<String> names, String pages) {
+        try {
+            return Optional.of(of(sheets, ranges, names, pages));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public boolean isAll() {
+        return sheets.isEmpty() && ranges.isEmpty() && names.isEmpty() && pages == null;
+    }
+
+    /**
+     * Canonical text of the selection, for cache keys.
+     */
+    public String key() {
+        return "sheets=" + sheets + ";ranges=" + ranges + ";names=" + names + ";pages=" + (pages != null ? pages : "");
+    }
+}
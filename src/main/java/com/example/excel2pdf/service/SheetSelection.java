@@ -0,0 +1,151 @@
+package com.example.excel2pdf.service;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link Selection} resolved against one workbook: which sheets print, which areas of each, and which pages are kept.
+ * Sheet names compare case-insensitively, as in Excel.
+ */
+final class SheetSelection {
+
+    private final List<String> sheets;
+    private final Map<String, List<CellRangeAddress>> sheetAreas = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<CellRangeAddress> everySheetAreas = new ArrayList<>();
+    private final PageRanges pages;
+
+    private SheetSelection(Selection selection) {
+        this.sheets = selection.sheets();
+        this.pages = selection.pages();
+    }
+
+    /**
+     * @param sheetNames   the workbook's sheets, in workbook order
+     * @param definedNames the formula a defined name refers to, or {@code null} when the workbook has no such name
+     * @throws InvalidSelectionException when a sheet or name is unknown, or a name does not refer to an area of a sheet
+     */
+    static SheetSelection resolve(Selection selection, List<String> sheetNames, UnaryOperator<String> definedNames) {
+        SheetSelection resolved = new SheetSelection(selection);
+        for (String range : selection.ranges()) {
+            resolved.add(range, true);
+        }
+        for (String name : selection.names()) {
+            String formula = definedNames.apply(name);
+            if (formula == null) {
+                throw new InvalidSelectionException("No defined name " + name);
+            }
+            try {
+                resolved.add(formula, false);
+            } catch (InvalidSelectionException e) {
+                throw e;
+            } catch (IllegalArgumentException e) {
+                // e.g. #REF! left behind by a deleted sheet
+                throw new InvalidSelectionException("Defined name " + name + " does not refer to an area: " + formula);
+            }
+        }
+        Set<String> known = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        known.addAll(sheetNames);
+        for (String sheet : selection.sheets()) {
+            if (!known.contains(sheet) && !isSheetPosition(sheet, sheetNames.size())) {
+                throw new InvalidSelectionException("No sheet " + sheet);
+            }
+        }
+        for (String sheet : resolved.sheetAreas.keySet()) {
+            if (!known.contains(sheet)) {
+                throw new InvalidSelectionException("No sheet " + sheet);
+            }
+        }
+        return resolved;
+    }
+
+    private static boolean isSheetPosition(String sheet, int sheetCount) {
+        try {
+            int position = Integer.parseInt(sheet);
+            return position >= 1 && position <= sheetCount;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void add(String references, boolean unqualifiedAllowed) {
+        for (AreaReference reference : AreaReference.generateContiguous(SpreadsheetVersion.EXCEL2007, references)) {
+            String sheetName = reference.getFirstCell().getSheetName();
+            if (sheetName == null && !unqualifiedAllowed) {
+                throw new InvalidSelectionException("Not an area of a sheet: " + references);
+            }
+            CellRangeAddress area = new CellRangeAddress(reference.getFirstCell().getRow(), reference.getLastCell().getRow(),
+                    reference.getFirstCell().getCol(), reference.getLastCell().getCol());
+            if (sheetName == null) {
+                everySheetAreas.add(area);
+            } else {
+                sheetAreas.computeIfAbsent(sheetName, name -> new ArrayList<>()).add(area);
+            }
+        }
+    }
+
+    /**
+     * Whether the sheet at the zero-based {@code sheetIndex} prints. A hidden sheet only prints when asked for.
+     */
+    boolean includes(int sheetIndex, String sheetName, boolean hidden) {
+        boolean named = sheetAreas.containsKey(sheetName);
+        for (String sheet : sheets) {
+            named |= sheet.equalsIgnoreCase(sheetName) || sheet.equals(String.valueOf(sheetIndex + 1));
+        }
+        if (named) {
+            return true;
+        }
+        return sheets.isEmpty() && sheetAreas.isEmpty() && !hidden;
+    }
+
+    /**
+     * The areas to print on the sheet, in request order, or {@code null} to print its own print area.
+     */
+    List<CellRangeAddress> areas(String sheetName) {
+        List<CellRangeAddress> areas = new ArrayList<>(sheetAreas.getOrDefault(sheetName, List.of()));
+        areas.addAll(everySheetAreas);
+        return areas.isEmpty() ? null : areas;
+    }
+
+    /**
+     * The streaming renderer walks each sheet's rows once, top to bottom, so it prints a single area per sheet.
+     *
+     * @throws InvalidSelectionException when a sheet has more than one area to print
+     */
+    void requireOneAreaPerSheet() {
+        for (Map.Entry<String, List<CellRangeAddress>> areas : sheetAreas.entrySet()) {
+            if (areas.getValue().size() + everySheetAreas.size() > 1) {
+                throw new InvalidSelectionException("Large workbooks print one area per sheet; " + areas.getKey() + " has several");
+            }
+        }
+        if (everySheetAreas.size() > 1) {
+            throw new InvalidSelectionException("Large workbooks print one area per sheet; the ranges give several");
+        }
+    }
+
+    /**
+     * Whether the 1-based page of the whole document is kept.
+     */
+    boolean includesPage(int page) {
+        return pages == null || pages.contains(page);
+    }
+
+    boolean allPages() {
+        return pages == null;
+    }
+
+    /**
+     * Whether the request narrowed the workbook down at all; printing nothing is only an error when it did.
+     */
+    boolean isAll() {
+        return sheets.isEmpty() && sheetAreas.isEmpty() && everySheetAreas.isEmpty() && pages == null;
+    }
+}
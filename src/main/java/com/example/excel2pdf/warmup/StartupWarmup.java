@@ -0,0 +1,121 @@
+package com.example.excel2pdf.warmup;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.render.FontRegistry;
+import com.example.excel2pdf.service.ConversionExecutor;
+import com.example.excel2pdf.service.ExcelToPDFConverterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts generated workbooks at startup, so POI, PDFBox, the font subsetting path and the JIT are warm before the
+ * first request. Spring Boot reports readiness only once every {@link ApplicationReadyEvent} listener has returned, so
+ * the readiness probe keeps traffic away until the warm-up is done.
+ * <p>
+ * The conversions run through a converter of their own with metrics disabled, sharing the application's fonts,
+ * executor and admission budget, so they warm the same code without showing up in the conversion metrics. Large
+ * uploads take the streaming path, which is not warmed up: those conversions last long enough to warm it themselves.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupWarmup {
+
+    private final ConverterProperties converterProperties;
+    private final FontRegistry fontRegistry;
+    private final ConversionExecutor conversionExecutor;
+    private final ConversionAdmission conversionAdmission;
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        ConverterProperties.Warmup settings = converterProperties.getWarmup();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        warmUp(settings.getIterations());
+        if (settings.isTrainingRun()) {
+            log.info("AppCDS training run finished, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    /**
+     * Converts the generated .xlsx and .xls {@code iterations} times each. A failure is logged and ends the warm-up:
+     * the application then starts cold, not broken.
+     *
+     * @return the number of conversions that completed
+     */
+    public int warmUp(int iterations) {
+        long started = System.nanoTime();
+        ExcelToPDFConverterService converter = new ExcelToPDFConverterService(converterProperties, fontRegistry, conversionExecutor,
+                ConversionMetrics.disabled(), conversionAdmission);
+        int conversions = 0;
+        List<File> workbooks = new ArrayList<>();
+        try {
+            workbooks.add(write(new XSSFWorkbook(), ".xlsx"));
+            workbooks.add(write(new HSSFWorkbook(), ".xls"));
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                for (File workbook : workbooks) {
+                    converter.convertExcelToPDF(workbook, OutputStream.nullOutputStream());
+                    conversions++;
+                }
+            }
+            log.info("Warmed up with {} conversions in {} ms", conversions, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Warm-up stopped after {} conversions", conversions, e);
+        } finally {
+            for (File workbook : workbooks) {
+                workbook.delete();
+            }
+        }
+        return conversions;
+    }
+
+    private File write(Workbook workbook, String suffix) throws IOException {
+        File file = Files.createTempFile("excel2pdf-warmup-", suffix).toFile();
+        try (workbook; OutputStream outputStream = new FileOutputStream(file)) {
+            WarmupWorkbook.write(workbook, fontNames());
+            if (workbook instanceof HSSFWorkbook hssfWorkbook) {
+                // Spares every conversion POI's warnings about missing document properties
+                hssfWorkbook.createInformationProperties();
+            }
+            workbook.write(outputStream);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * The default family first, then every other configured family, so each one is bound and subset as in a real conversion.
+     */
+    private List<String> fontNames() {
+        ConverterProperties.Fonts fonts = converterProperties.getFonts();
+        List<String> fontNames = new ArrayList<>();
+        fontNames.add(fonts.getDefaultFamily());
+        for (String family : fonts.getFamilies().keySet()) {
+            if (!family.equals(fonts.getDefaultFamily())) {
+                fontNames.add(family);
+            }
+        }
+        return fontNames;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.excel2pdf.warmup;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small report touching what real uploads do: every configured font family in regular and bold, fills, borders,
+ * number formats, wrapped text, merged regions, formulas and a second sheet. Written with standard APIs only, so it
+ * comes out the same as .xlsx and .xls.
+ */
+final class WarmupWorkbook {
+
+    static final int ROWS = 300;
+    static final int COLUMNS = 8;
+
+    private WarmupWorkbook() {
+    }
+
+    /**
+     * @param fontNames at least one font name; the first is used for the headers
+     */
+    static void write(Workbook workbook, List<String> fontNames) {
+        List<CellStyle> textStyles = new ArrayList<>();
+        for (String fontName : fontNames) {
+            for (boolean bold : new boolean[]{false, true}) {
+                Font font = workbook.createFont();
+                font.setFontName(fontName);
+                font.setBold(bold);
+                CellStyle style = bordered(workbook);
+                style.setFont(font);
+                textStyles.add(style);
+            }
+        }
+        CellStyle numberStyle = bordered(workbook);
+        numberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+        numberStyle.setAlignment(HorizontalAlignment.RIGHT);
+        CellStyle headerStyle = bordered(workbook);
+        Font headerFont = workbook.createFont();
+        headerFont.setFontName(fontNames.get(0));
+        headerFont.setBold(true);
+        headerStyle.setFont(headerFont);
+        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        headerStyle.setAlignment(HorizontalAlignment.CENTER);
+        CellStyle wrappedStyle = bordered(workbook);
+        wrappedStyle.setWrapText(true);
+
+        Sheet report = workbook.createSheet("Report");
+        Row title = report.createRow(0);
+        title.createCell(0).setCellValue("Warm-up report");
+        title.getCell(0).setCellStyle(headerStyle);
+        report.addMergedRegion(new CellRangeAddress(0, 0, 0, COLUMNS - 1));
+        for (int rowIndex = 1; rowIndex < ROWS; rowIndex++) {
+            Row row = report.createRow(rowIndex);
+            Cell label = row.createCell(0);
+            label.setCellValue("Item " + rowIndex);
+            label.setCellStyle(textStyles.get(rowIndex % textStyles.size()));
+            for (int columnIndex = 1; columnIndex < COLUMNS - 2; columnIndex++) {
+                Cell number = row.createCell(columnIndex);
+                number.setCellValue(rowIndex * 10.5 + columnIndex);
+                number.setCellStyle(numberStyle);
+            }
+            int excelRow = rowIndex + 1;
+            Cell total = row.createCell(COLUMNS - 2);
+            total.setCellFormula("SUM(B" + excelRow + ":F" + excelRow + ")");
+            total.setCellStyle(numberStyle);
+            Cell note = row.createCell(COLUMNS - 1);
+            note.setCellValue("A note long enough to wrap inside its cell on row " + rowIndex);
+            note.setCellStyle(wrappedStyle);
+            if (rowIndex % 25 == 0) {
+                report.addMergedRegion(new CellRangeAddress(rowIndex, rowIndex + 1, 1, 2));
+            }
+        }
+
+        Sheet summary = workbook.createSheet("Summary");
+        Row row = summary.createRow(0);
+        row.createCell(0).setCellValue("Total");
+        row.createCell(1).setCellFormula("SUM(Report!G2:G" + ROWS + ")");
+        row.getCell(1).setCellStyle(numberStyle);
+    }
+
+    private static CellStyle bordered(Workbook workbook) {
+        CellStyle style = workbook.createCellStyle();
+        style.setBorderTop(BorderStyle.THIN);
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setBorderRight(BorderStyle.THIN);
+        return style;
+    }
+}
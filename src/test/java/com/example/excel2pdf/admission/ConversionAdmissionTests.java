@@ -0,0 +1,107 @@
+package com.example.excel2pdf.admission;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversionAdmissionTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void rejectsZipBombsBeforeParsing() throws IOException {
+		File bomb = tempDir.resolve("bomb.xlsx").toFile();
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(bomb))) {
+			zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+			zip.write("<worksheet><dimension ref=\"A1:XFD1048576\"/>".getBytes(StandardCharsets.UTF_8));
+			byte[] padding = new byte[1024 * 1024];
+			Arrays.fill(padding, (byte) ' ');
+			for (int i = 0; i < 16; i++) {
+				zip.write(padding);
+			}
+			zip.write("</worksheet>".getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+
+		assertThatThrownBy(() -> new ConversionAdmission(new ConverterProperties()).admit(bomb))
+				.isInstanceOf(WorkbookRejectedException.class)
+				.hasMessageContaining("compressed");
+	}
+
+	@Test
+	void streamsAnXlsxAndRejectsAnXlsWhoseDomWouldBeTooLarge() throws IOException {
+		ConverterProperties properties = new ConverterProperties();
+		ConversionAdmission admission = new ConversionAdmission(properties);
+		File xlsx = workbook(new XSSFWorkbook(), "grid.xlsx");
+		File xls = workbook(new HSSFWorkbook(), "grid.xls");
+
+		try (ConversionAdmission.Admission admitted = admission.admit(xlsx)) {
+			assertThat(admitted.getRoute()).isEqualTo(ConversionAdmission.Route.DOM);
+		}
+
+		properties.getAdmission().setMaxDomSize(DataSize.ofKilobytes(64));
+		try (ConversionAdmission.Admission admitted = admission.admit(xlsx)) {
+			assertThat(admitted.getRoute()).isEqualTo(ConversionAdmission.Route.STREAMING);
+		}
+		assertThatThrownBy(() -> admission.admit(xls)).isInstanceOf(WorkbookRejectedException.class);
+	}
+
+	@Test
+	void sharesTheMemoryBudgetBetweenConversionsInFlight() throws IOException {
+		ConverterProperties properties = new ConverterProperties();
+		properties.getAdmission().setMemoryBudget(DataSize.ofMegabytes(40));
+		properties.getAdmission().setMaxDomSize(DataSize.ofKilobytes(1));
+		properties.getAdmission().setBudgetWait(Duration.ZERO);
+		ConversionAdmission admission = new ConversionAdmission(properties);
+		File xlsx = workbook(new XSSFWorkbook(), "grid.xlsx");
+
+		ConversionAdmission.Admission first = admission.admit(xlsx);
+		ConversionAdmission.Admission second = admission.admit(xlsx);
+		assertThatThrownBy(() -> admission.admit(xlsx)).isInstanceOf(RejectedExecutionException.class);
+
+		first.close();
+		first.close();
+		try (ConversionAdmission.Admission third = admission.admit(xlsx)) {
+			assertThat(third.getRoute()).isEqualTo(ConversionAdmission.Route.STREAMING);
+		}
+		second.close();
+		assertThat(admission.getAvailable()).isEqualTo(DataSize.ofMegabytes(40).toBytes());
+	}
+
+	private File workbook(Workbook workbook, String name) throws IOException {
+		File file = tempDir.resolve(name).toFile();
+		try (workbook; OutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet();
+			for (int rowIndex = 0; rowIndex < 200; rowIndex++) {
+				Row row = sheet.createRow(rowIndex);
+				for (int columnIndex = 0; columnIndex < 10; columnIndex++) {
+					row.createCell(columnIndex).setCellValue("Cell " + rowIndex + "/" + columnIndex);
+				}
+			}
+			workbook.write(out);
+		}
+		return file;
+	}
+}
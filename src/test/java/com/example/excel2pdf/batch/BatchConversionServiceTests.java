@@ -0,0 +1,104 @@
+package com.example.excel2pdf.batch;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.render.FontRegistry;
+import com.example.excel2pdf.service.ConversionExecutor;
+import com.example.excel2pdf.service.ConversionOptions;
+import com.example.excel2pdf.service.ExcelToPDFConverterService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchConversionServiceTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void convertsEveryWorkbookAndListsTheFailures() throws Exception {
+		File archive = tempDir.resolve("batch.zip").toFile();
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+			add(zip, "reports/q1.xlsx", workbook(new XSSFWorkbook(), "Q1"));
+			add(zip, "reports/q1.xls", workbook(new HSSFWorkbook(), "Q1 legacy"));
+			add(zip, "reports/~$q1.xlsx", new byte[10]);
+			add(zip, "broken.xlsx", "not a workbook".getBytes(StandardCharsets.UTF_8));
+			add(zip, "readme.txt", "ignored".getBytes(StandardCharsets.UTF_8));
+		}
+
+		ConverterProperties properties = new ConverterProperties();
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		properties.getFonts().setDefaultFamily("Liberation Sans");
+		properties.getFonts().getFamilies().clear();
+		properties.getFonts().getFamilies().put("Liberation Sans",
+				new ConverterProperties.FontFamily(new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"), null));
+		FontRegistry fontRegistry = new FontRegistry(properties);
+		fontRegistry.load();
+		ConversionExecutor conversionExecutor = new ConversionExecutor(properties);
+		BatchConversionService batch = new BatchConversionService(properties,
+				new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor, ConversionMetrics.disabled(), new ConversionAdmission(properties)));
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			batch.convert(archive, output, new ConversionOptions(null));
+		} finally {
+			conversionExecutor.destroy();
+			fontRegistry.close();
+		}
+
+		Map<String, byte[]> entries = unzip(output.toByteArray());
+		assertThat(entries.keySet()).containsExactlyInAnyOrder("reports/q1.pdf", "reports/q1 (2).pdf", BatchConversionService.ERROR_MANIFEST);
+		for (String name : new String[]{"reports/q1.pdf", "reports/q1 (2).pdf"}) {
+			try (PDDocument pdf = PDDocument.load(entries.get(name))) {
+				assertThat(pdf.getNumberOfPages()).isEqualTo(1);
+			}
+		}
+		assertThat(new String(entries.get(BatchConversionService.ERROR_MANIFEST), StandardCharsets.UTF_8).lines())
+				.singleElement().asString().startsWith("broken.xlsx: ");
+	}
+
+	private static byte[] workbook(Workbook workbook, String text) throws IOException {
+		try (workbook) {
+			workbook.createSheet("Sheet1").createRow(0).createCell(0).setCellValue(text);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			workbook.write(out);
+			return out.toByteArray();
+		}
+	}
+
+	private static void add(ZipOutputStream zip, String name, byte[] content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	private static Map<String, byte[]> unzip(byte[] archive) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+			for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+				entries.put(entry.getName(), zip.readAllBytes());
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.excel2pdf.cache;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.config.FormulaMode;
+import com.example.excel2pdf.service.ConversionOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversionCacheTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void keysOnContentAndResolvedOptions() throws IOException {
+		ConversionCache cache = new ConversionCache(properties(100, 10), Clock.systemUTC());
+		File first = write("first.xlsx", "same bytes");
+		File second = write("second.xlsx", "same bytes");
+
+		CacheKey key = cache.key(first, new ConversionOptions(null));
+
+		assertThat(cache.key(second, new ConversionOptions(FormulaMode.EVALUATE))).isEqualTo(key);
+		assertThat(cache.key(second, new ConversionOptions(FormulaMode.CACHED))).isNotEqualTo(key);
+		assertThat(key.matches("W/" + key.etag() + ", \"other\"")).isTrue();
+		assertThat(key.matches("\"other\"")).isFalse();
+	}
+
+	@Test
+	void servesCommittedPdfsAndEvictsTheLeastRecentlyUsed() throws IOException {
+		// Room for two 40 byte PDFs per tier
+		ConversionCache cache = new ConversionCache(properties(100, 80), Clock.systemUTC());
+		CacheKey a = new CacheKey("a");
+		CacheKey b = new CacheKey("b");
+		CacheKey c = new CacheKey("c");
+
+		assertThat(cache.get(a)).isEmpty();
+		store(cache, a, 40);
+		store(cache, b, 40);
+		assertThat(read(cache.get(a))).hasSize(40);
+		store(cache, c, 40);
+
+		assertThat(cache.get(b)).isEmpty();
+		assertThat(read(cache.get(a))).hasSize(40);
+		assertThat(read(cache.get(c))).hasSize(40);
+		assertThat(cache.getStats()).extracting(CacheStats::memoryHits, CacheStats::misses, CacheStats::memoryEvictions, CacheStats::diskEvictions)
+				.containsExactly(3L, 2L, 1L, 1L);
+	}
+
+	@Test
+	void keepsLargePdfsOnDiskOnlyAndReloadsThemAfterARestart() throws IOException {
+		store(new ConversionCache(properties(1000, 10), Clock.systemUTC()), new CacheKey("large"), 40);
+
+		ConversionCache restarted = new ConversionCache(properties(1000, 10), Clock.systemUTC());
+
+		assertThat(read(restarted.get(new CacheKey("large")))).hasSize(40);
+		assertThat(restarted.getStats()).extracting(CacheStats::diskHits, CacheStats::memoryBytes, CacheStats::diskBytes)
+				.containsExactly(1L, 0L, 40L);
+	}
+
+	@Test
+	void dropsAbandonedAndExpiredPdfs() throws IOException {
+		MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+		ConversionCache cache = new ConversionCache(properties(100, 10), clock);
+
+		try (ConversionCache.Recorder recorder = cache.record(new CacheKey("failed"), new ByteArrayOutputStream())) {
+			recorder.write(new byte[10]);
+		}
+		store(cache, new CacheKey("old"), 10);
+		clock.instant = clock.instant.plus(Duration.ofHours(2));
+
+		assertThat(cache.get(new CacheKey("failed"))).isEmpty();
+		assertThat(cache.get(new CacheKey("old"))).isEmpty();
+		// Once per tier
+		assertThat(cache.getStats().expirations()).isEqualTo(2);
+		try (var files = Files.list(tempDir.resolve("cache"))) {
+			assertThat(files).isEmpty();
+		}
+	}
+
+	private ConverterProperties properties(long budget, long memoryMaxEntrySize) {
+		ConverterProperties properties = new ConverterProperties();
+		ConverterProperties.Cache cache = properties.getCache();
+		cache.setMemorySize(DataSize.ofBytes(budget));
+		cache.setDiskSize(DataSize.ofBytes(budget));
+		cache.setMemoryMaxEntrySize(DataSize.ofBytes(memoryMaxEntrySize));
+		cache.setDirectory(tempDir.resolve("cache").toFile());
+		cache.setTtl(Duration.ofHours(1));
+		return properties;
+	}
+
+	private File write(String name, String content) throws IOException {
+		return Files.writeString(tempDir.resolve(name), content).toFile();
+	}
+
+	private static void store(ConversionCache cache, CacheKey key, int size) throws IOException {
+		ByteArrayOutputStream client = new ByteArrayOutputStream();
+		try (ConversionCache.Recorder recorder = cache.record(key, client)) {
+			recorder.write(new byte[size], 0, size);
+			recorder.commit();
+		}
+		assertThat(client.size()).isEqualTo(size);
+	}
+
+	private static byte[] read(Optional<CachedPdf> cached) throws IOException {
+		assertThat(cached).isPresent();
+		try (CachedPdf pdf = cached.get()) {
+			return pdf.content().readAllBytes();
+		}
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant instant;
+
+		MutableClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(java.time.ZoneId zone) {
+			return this;
+		}
+	}
+}
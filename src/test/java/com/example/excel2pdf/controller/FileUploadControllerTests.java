@@ -0,0 +1,185 @@
+package com.example.excel2pdf.controller;
+
+import com.example.excel2pdf.service.ConversionExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		"excel2pdf.fonts.default-family=LiberationSans",
+		"excel2pdf.fonts.families.LiberationSans.regular=classpath:org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf",
+		"excel2pdf.cache.enabled=false",
+		"excel2pdf.executor.max-concurrent=1",
+		"excel2pdf.executor.queue-capacity=1"})
+@AutoConfigureMockMvc
+class FileUploadControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private HeldTasks heldTasks;
+
+	@Autowired
+	private ConversionExecutor conversionExecutor;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		heldTasks.clear();
+	}
+
+	@Test
+	void releasesTheSlotAndUploadWhenTheRequestTimesOutBeforeTheBodyRuns() throws Exception {
+		List<Path> uploadsBefore = uploads();
+		double abandonedBefore = requests("abandoned");
+
+		MvcResult result = mockMvc.perform(multipart("/convert-excel-to-pdf").file(workbook()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		assertThat(uploads()).hasSize(uploadsBefore.size() + 1);
+
+		// What the container does when the async timeout passes while the body still waits for an executor thread
+		MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+		for (AsyncListener listener : new ArrayList<>(asyncContext.getListeners())) {
+			listener.onTimeout(new AsyncEvent(asyncContext));
+		}
+		asyncContext.complete();
+		// A body that starts late does nothing
+		heldTasks.runAll();
+
+		assertThat(uploads()).containsExactlyInAnyOrderElementsOf(uploadsBefore);
+		assertThat(requests("abandoned")).isEqualTo(abandonedBefore + 1);
+		assertEverySlotIsFree();
+	}
+
+	@Test
+	void answersASelectionThatLeavesNothingToPrintWith400BeforeTheFirstByte() throws Exception {
+		MvcResult result = mockMvc.perform(multipart("/convert-excel-to-pdf").file(workbook()).param("pages", "999-"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		heldTasks.runAll();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().bytes(new byte[0]));
+		assertEverySlotIsFree();
+	}
+
+	@Test
+	void answersAnUnknownSheetWith400WithoutStartingTheConversion() throws Exception {
+		mockMvc.perform(multipart("/convert-excel-to-pdf").file(workbook()).param("sheets", "Missing"))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isBadRequest());
+		assertThat(heldTasks.tasks).isEmpty();
+		assertEverySlotIsFree();
+	}
+
+	private void assertEverySlotIsFree() {
+		// max-concurrent 1 plus queue-capacity 1
+		ConversionExecutor.Reservation first = conversionExecutor.reserve();
+		ConversionExecutor.Reservation second = conversionExecutor.reserve();
+		assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(conversionExecutor::reserve);
+		first.close();
+		second.close();
+	}
+
+	private double requests(String outcome) {
+		Counter counter = meterRegistry.find("excel2pdf.requests").tags("endpoint", "convert", "outcome", outcome).counter();
+		return counter != null ? counter.count() : 0;
+	}
+
+	private static List<Path> uploads() throws IOException {
+		try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+			return files.filter(file -> file.getFileName().toString().matches("excel2pdf-.*\\.upload")).toList();
+		}
+	}
+
+	private static MockMultipartFile workbook() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			workbook.createSheet("Summary").createRow(0).createCell(0).setCellValue("Summary A1");
+			workbook.write(out);
+			return new MockMultipartFile("file", "report.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray());
+		}
+	}
+
+	/**
+	 * Holds the streamed bodies instead of running them, so a test decides whether and when they start.
+	 */
+	static class HeldTasks implements AsyncTaskExecutor {
+
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+		@Override
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		void runAll() {
+			for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+				task.run();
+			}
+		}
+
+		void clear() {
+			tasks.clear();
+		}
+	}
+
+	@TestConfiguration
+	static class HeldTasksConfiguration {
+
+		@Bean
+		HeldTasks heldTasks() {
+			return new HeldTasks();
+		}
+
+		// Runs after Spring Boot's configurer, so its executor replaces the application task executor
+		@Bean
+		WebMvcConfigurer heldTasksAsyncSupport(HeldTasks heldTasks) {
+			return new WebMvcConfigurer() {
+				@Override
+				public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+					configurer.setTaskExecutor(heldTasks);
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.example.excel2pdf.job;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.render.FontRegistry;
+import com.example.excel2pdf.service.ConversionExecutor;
+import com.example.excel2pdf.service.ConversionOptions;
+import com.example.excel2pdf.service.ExcelToPDFConverterService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class ConversionJobServiceTests {
+
+	@TempDir
+	Path tempDir;
+
+	private ConverterProperties properties;
+	private FontRegistry fontRegistry;
+	private ConversionExecutor conversionExecutor;
+
+	@BeforeEach
+	void setUp() {
+		properties = new ConverterProperties();
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		properties.getFonts().setDefaultFamily("Liberation Sans");
+		properties.getFonts().getFamilies().clear();
+		properties.getFonts().getFamilies().put("Liberation Sans",
+				new ConverterProperties.FontFamily(new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"), null));
+		properties.getJobs().setDirectory(tempDir.resolve("results").toFile());
+		properties.getJobs().setResultTtl(Duration.ofHours(1));
+		fontRegistry = new FontRegistry(properties);
+		fontRegistry.load();
+		conversionExecutor = new ConversionExecutor(properties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		conversionExecutor.destroy();
+		fontRegistry.close();
+	}
+
+	@Test
+	void convertsInTheBackgroundAndReportsProgress() throws Exception {
+		ConversionJobService jobs = jobService(Clock.systemUTC());
+		File workbook = workbook(2, 30);
+
+		ConversionJob job = jobs.submit(workbook, new ConversionOptions(null));
+
+		assertThat(awaitFinished(job)).isEqualTo(JobState.SUCCEEDED);
+		assertThat(JobStatus.of(job)).extracting(JobStatus::sheetCount, JobStatus::sheetsRendered, JobStatus::rowsRendered)
+				.containsExactly(2, 2, 60L);
+		try (PDDocument pdf = PDDocument.load(job.getResult().toFile())) {
+			assertThat(pdf.getNumberOfPages()).isEqualTo(2);
+		}
+		assertThat(workbook).doesNotExist();
+		jobs.destroy();
+	}
+
+	@Test
+	void timesOutAndExpires() throws Exception {
+		MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+		properties.getJobs().setTimeout(Duration.ZERO);
+		ConversionJobService jobs = jobService(clock);
+
+		ConversionJob job = jobs.submit(workbook(1, 5000), new ConversionOptions(null));
+
+		assertThat(awaitFinished(job)).isEqualTo(JobState.TIMED_OUT);
+		assertThat(job.getResult()).isNull();
+		assertThat(tempDir.resolve("results")).isEmptyDirectory();
+
+		jobs.expire();
+		assertThat(jobs.get(job.getId())).isPresent();
+		clock.instant = clock.instant.plus(Duration.ofHours(1));
+		jobs.expire();
+		assertThat(jobs.get(job.getId())).isEmpty();
+		jobs.destroy();
+	}
+
+	@Test
+	void takesASlotOfTheSharedConversionExecutor() throws Exception {
+		conversionExecutor.destroy();
+		properties.getExecutor().setMaxConcurrent(1);
+		properties.getExecutor().setQueueCapacity(0);
+		conversionExecutor = new ConversionExecutor(properties);
+		ConversionJobService jobs = jobService(Clock.systemUTC());
+		File workbook = workbook(1, 30);
+
+		ConversionExecutor.Reservation request = conversionExecutor.reserve();
+		assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(() -> jobs.submit(workbook, new ConversionOptions(null)));
+		request.close();
+		ConversionJob job = jobs.submit(workbook, new ConversionOptions(null));
+		assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(conversionExecutor::reserve);
+
+		assertThat(awaitFinished(job)).isEqualTo(JobState.SUCCEEDED);
+		// The slot comes back once the job's task has returned
+		awaitReservation().close();
+		jobs.destroy();
+	}
+
+	private ConversionJobService jobService(Clock clock) throws IOException {
+		ExcelToPDFConverterService converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor, ConversionMetrics.disabled(), new ConversionAdmission(properties));
+		return new ConversionJobService(properties, converter, conversionExecutor, clock);
+	}
+
+	private File workbook(int sheets, int rows) throws IOException {
+		File file = File.createTempFile("job-", ".xlsx", tempDir.toFile());
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+			for (int sheetIndex = 0; sheetIndex < sheets; sheetIndex++) {
+				Sheet sheet = workbook.createSheet("Sheet" + sheetIndex);
+				for (int rowIndex = 0; rowIndex < rows; rowIndex++) {
+					sheet.createRow(rowIndex).createCell(0).setCellValue("Row " + rowIndex);
+				}
+			}
+			workbook.write(out);
+		}
+		return file;
+	}
+
+	private static JobState awaitFinished(ConversionJob job) throws InterruptedException {
+		for (int i = 0; i < 600 && !job.getState().isFinished(); i++) {
+			Thread.sleep(50);
+		}
+		return job.getState();
+	}
+
+	private ConversionExecutor.Reservation awaitReservation() throws InterruptedException {
+		for (int i = 0; i < 600; i++) {
+			try {
+				return conversionExecutor.reserve();
+			} catch (RejectedExecutionException e) {
+				Thread.sleep(50);
+			}
+		}
+		return conversionExecutor.reserve();
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant instant;
+
+		MutableClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(java.time.ZoneId zone) {
+			return this;
+		}
+	}
+}
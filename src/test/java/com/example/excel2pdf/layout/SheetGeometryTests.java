@@ -0,0 +1,61 @@
+package com.example.excel2pdf.layout;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SheetGeometryTests {
+
+	@Test
+	void sumsRowsAndColumnsSkippingHiddenOnesAndDefaultingMissingOnes() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet();
+			sheet.setDefaultRowHeightInPoints(15);
+			for (int r : new int[]{0, 1, 3}) {
+				Row row = sheet.createRow(r);
+				row.setHeightInPoints(20);
+				row.createCell(r).setCellValue(r);
+			}
+			sheet.getRow(1).setZeroHeight(true);
+			sheet.setColumnWidth(0, 10 * 256);
+			sheet.setColumnHidden(2, true);
+			// Reaches past the last row and column that hold cells
+			sheet.addMergedRegion(new CellRangeAddress(4, 5, 4, 5));
+
+			SheetGeometry geometry = new SheetGeometry(sheet);
+
+			assertThat(geometry.rowCount()).isEqualTo(6);
+			assertThat(geometry.columnCount()).isEqualTo(6);
+			assertThat(geometry.rowHeight(1)).isZero();
+			assertThat(geometry.rowHeight(2)).isEqualTo(15);
+			assertThat(geometry.rowOffset(4)).isEqualTo(20 + 0 + 15 + 20);
+			assertThat(geometry.height(4, 5)).isEqualTo(30);
+			assertThat(geometry.rowOffset(10)).isEqualTo(geometry.rowOffset(6) + 4 * 15);
+
+			// baseColWidth 8 plus Excel's padding, not POI's bare baseColWidth
+			float defaultWidth = Math.round((8 + 5.0 / 7) * 256) * 6f / 256;
+			assertThat(geometry.columnWidth(0)).isEqualTo(60);
+			assertThat(geometry.columnWidth(2)).isZero();
+			assertThat(geometry.width(0, 3)).isEqualTo(60 + 2 * defaultWidth);
+			assertThat(geometry.columnWidth(100)).isEqualTo(defaultWidth);
+		}
+	}
+
+	@Test
+	void prefersTheDeclaredDefaultColumnWidth() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			XSSFSheet sheet = workbook.createSheet();
+			sheet.createRow(0).createCell(1).setCellValue("b");
+			sheet.getCTWorksheet().getSheetFormatPr().setDefaultColWidth(12.5);
+
+			assertThat(new SheetGeometry(sheet).columnWidth(0)).isEqualTo(12.5f * 6);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.excel2pdf.layout;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.poi.ss.usermodel.PrintSetup;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SheetPaginatorTests {
+
+	private final SheetPaginator paginator = new SheetPaginator(20);
+
+	@Test
+	void splitsRowsAtTheBottomOfThePageAndAtManualBreaks() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = grid(workbook, 200, 3);
+			// 802pt of usable A4 height fits 40 rows of 20pt
+			sheet.setRowBreak(9);
+
+			SheetLayout layout = paginator.paginate(workbook, 0, new SheetGeometry(sheet));
+
+			assertThat(layout.paper().getWidth()).isEqualTo(PDRectangle.A4.getWidth());
+			assertThat(layout.pages()).extracting(PageArea::rows)
+					.containsExactly(new Band(0, 9), new Band(10, 49), new Band(50, 89), new Band(90, 129), new Band(130, 169), new Band(170, 199));
+		}
+	}
+
+	@Test
+	void repeatsTitleRowsAndHonoursThePrintArea() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = grid(workbook, 200, 10);
+			sheet.setRepeatingRows(CellRangeAddress.valueOf("1:2"));
+			workbook.setPrintArea(0, 2, 4, 0, 99);
+
+			SheetLayout layout = paginator.paginate(workbook, 0, new SheetGeometry(sheet));
+
+			// The first page starts with the titles; later ones keep 40pt for them
+			assertThat(layout.pages()).extracting(PageArea::rows)
+					.containsExactly(new Band(0, 39), new Band(40, 77), new Band(78, 99));
+			assertThat(layout.pages().get(0).titleRows()).isNull();
+			assertThat(layout.pages().get(1).titleRows()).isEqualTo(new Band(0, 1));
+			assertThat(layout.pages()).extracting(PageArea::columns).containsOnly(new Band(2, 4));
+		}
+	}
+
+	@Test
+	void fitsTheWidthOnOnePageAndTurnsLandscape() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = grid(workbook, 10, 40);
+			sheet.setFitToPage(true);
+			sheet.getPrintSetup().setFitWidth((short) 1);
+			sheet.getPrintSetup().setFitHeight((short) 0);
+			sheet.getPrintSetup().setLandscape(true);
+
+			SheetLayout layout = paginator.paginate(workbook, 0, new SheetGeometry(sheet));
+
+			assertThat(layout.paper().getWidth()).isEqualTo(PDRectangle.A4.getHeight());
+			assertThat(layout.scale()).isLessThan(1);
+			assertThat(layout.pages()).singleElement().extracting(PageArea::columns).isEqualTo(new Band(0, 39));
+		}
+	}
+
+	@Test
+	void printsNothingForAnEmptySheet() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet();
+			sheet.getPrintSetup().setPaperSize(PrintSetup.LETTER_PAPERSIZE);
+
+			SheetLayout layout = paginator.paginate(workbook, 0, new SheetGeometry(sheet));
+
+			assertThat(layout.paper().getHeight()).isEqualTo(PDRectangle.LETTER.getHeight());
+			assertThat(layout.pages()).isEmpty();
+		}
+	}
+
+	private static Sheet grid(XSSFWorkbook workbook, int rows, int columns) {
+		Sheet sheet = workbook.createSheet();
+		for (int r = 0; r < rows; r++) {
+			Row row = sheet.createRow(r);
+			row.setHeightInPoints(20);
+			for (int c = 0; c < columns; c++) {
+				row.createCell(c).setCellValue(r * columns + c);
+			}
+		}
+		return sheet;
+	}
+}
@@ -0,0 +1,58 @@
+package com.example.excel2pdf.layout;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsedRangeTests {
+
+	@Test
+	void endsAtTheLastCellThatDrawsSomething() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet();
+			CellStyle numberFormat = workbook.createCellStyle();
+			numberFormat.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+			CellStyle bordered = workbook.createCellStyle();
+			bordered.setBorderBottom(BorderStyle.THIN);
+
+			for (int rowIndex = 0; rowIndex < 500; rowIndex++) {
+				Row row = sheet.createRow(rowIndex);
+				// A formatted margin far wider and longer than the content
+				for (int columnIndex = 0; columnIndex < 200; columnIndex++) {
+					row.createCell(columnIndex).setCellStyle(numberFormat);
+				}
+			}
+			sheet.getRow(2).getCell(2).setCellValue(42);
+			sheet.getRow(9).getCell(4).setCellStyle(bordered);
+			sheet.getRow(5).getCell(1).setCellValue("Merged");
+			sheet.addMergedRegion(new CellRangeAddress(5, 6, 1, 6));
+			// Nothing in it draws, so it does not count
+			sheet.addMergedRegion(new CellRangeAddress(20, 30, 20, 30));
+
+			UsedRange usedRange = UsedRange.of(sheet);
+
+			assertThat(usedRange.area()).isEqualTo(new CellRangeAddress(0, 9, 0, 6));
+			assertThat(usedRange.isVisible(numberFormat)).isFalse();
+			assertThat(usedRange.isVisible(bordered)).isTrue();
+			assertThat(usedRange.producesOutput(sheet.getRow(100).getCell(100))).isFalse();
+		}
+	}
+
+	@Test
+	void isEmptyWhenNothingDraws() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet();
+			sheet.createRow(3).createCell(3).setCellValue("");
+
+			assertThat(UsedRange.of(sheet).area()).isNull();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.excel2pdf.metrics;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.cache.CacheKey;
+import com.example.excel2pdf.cache.ConversionCache;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.render.FontRegistry;
+import com.example.excel2pdf.service.ConversionExecutor;
+import com.example.excel2pdf.service.ExcelToPDFConverterService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversionMetricsTests {
+
+	@TempDir
+	Path tempDir;
+
+	private ConverterProperties properties;
+	private FontRegistry fontRegistry;
+	private ConversionExecutor conversionExecutor;
+
+	@BeforeEach
+	void setUp() {
+		properties = new ConverterProperties();
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		properties.getFonts().setDefaultFamily("Liberation Sans");
+		properties.getFonts().getFamilies().clear();
+		properties.getFonts().getFamilies().put("Liberation Sans",
+				new ConverterProperties.FontFamily(new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"), null));
+		fontRegistry = new FontRegistry(properties);
+		fontRegistry.load();
+		conversionExecutor = new ConversionExecutor(properties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		conversionExecutor.destroy();
+		fontRegistry.close();
+	}
+
+	@Test
+	void timesStagesAndCountsWhatWasDrawn() throws IOException {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		ExcelToPDFConverterService converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor,
+				new ConversionMetrics(properties, registry), new ConversionAdmission(properties));
+		File workbook = workbook();
+		ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+
+		converter.convertExcelToPDF(workbook, pdf);
+
+		for (ConversionStage stage : ConversionStage.values()) {
+			assertThat(registry.get("excel2pdf.conversion.stage").tag("stage", stage.tag()).timer().count()).as(stage.tag()).isEqualTo(1);
+		}
+		// Three rows of two cells, the first two of which are merged
+		assertThat(registry.get("excel2pdf.conversion.cells").counter().count()).isEqualTo(4);
+		assertThat(registry.get("excel2pdf.conversion.merged.regions").counter().count()).isEqualTo(1);
+		assertThat(registry.get("excel2pdf.conversion.formulas").tag("mode", "evaluated").counter().count()).isEqualTo(1);
+		assertThat(registry.get("excel2pdf.conversion.pages").counter().count()).isEqualTo(1);
+		assertThat(registry.get("excel2pdf.conversion.input").summary().totalAmount()).isEqualTo(workbook.length());
+		assertThat(registry.get("excel2pdf.conversion.output").summary().totalAmount()).isEqualTo(pdf.size());
+	}
+
+	@Test
+	void registersNothingWhenDisabled() throws IOException {
+		properties.getMetrics().setEnabled(false);
+		MeterRegistry registry = new SimpleMeterRegistry();
+		ExcelToPDFConverterService converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor,
+				new ConversionMetrics(properties, registry), new ConversionAdmission(properties));
+
+		converter.convertExcelToPDF(workbook(), new ByteArrayOutputStream());
+
+		assertThat(registry.getMeters()).isEmpty();
+	}
+
+	@Test
+	void bindsTheCacheStatsPerTier() throws IOException {
+		properties.getCache().setDirectory(tempDir.resolve("cache").toFile());
+		ConversionCache cache = new ConversionCache(properties);
+		MeterRegistry registry = new SimpleMeterRegistry();
+		new ConversionCacheMetrics(properties, cache).bindTo(registry);
+
+		CacheKey key = new CacheKey("key");
+		assertThat(cache.get(key)).isEmpty();
+		try (ConversionCache.Recorder recorder = cache.record(key, new ByteArrayOutputStream())) {
+			recorder.write(new byte[40]);
+			recorder.commit();
+		}
+		cache.get(key).orElseThrow().close();
+
+		assertThat(registry.get("excel2pdf.cache.misses").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("excel2pdf.cache.hits").tag("tier", "memory").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("excel2pdf.cache.hits").tag("tier", "disk").functionCounter().count()).isZero();
+		assertThat(registry.get("excel2pdf.cache.entries").tag("tier", "disk").gauge().value()).isEqualTo(1);
+		assertThat(registry.get("excel2pdf.cache.size").tag("tier", "memory").gauge().value()).isEqualTo(40);
+	}
+
+	private File workbook() throws IOException {
+		File file = tempDir.resolve("metrics.xlsx").toFile();
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet();
+			for (int rowIndex = 0; rowIndex < 3; rowIndex++) {
+				Row row = sheet.createRow(rowIndex);
+				row.createCell(0).setCellValue(rowIndex + 1);
+				row.createCell(1).setCellValue("Row " + rowIndex);
+			}
+			sheet.getRow(2).getCell(0).setCellFormula("A2*2");
+			sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
+			workbook.write(out);
+		}
+		return file;
+	}
+}
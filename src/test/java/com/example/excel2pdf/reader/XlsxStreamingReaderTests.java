@@ -0,0 +1,79 @@
+package com.example.excel2pdf.reader;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XlsxStreamingReaderTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void streamsRowsWithFormattedValuesAndSheetMetadata() throws IOException {
+		File xlsx = tempDir.resolve("report.xlsx").toFile();
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(xlsx)) {
+			XSSFSheet sheet = workbook.createSheet("Summary");
+			sheet.setColumnWidth(1, 20 * 256);
+			sheet.getCTWorksheet().getSheetFormatPr().setDefaultColWidth(12.5);
+			Row header = sheet.createRow(0);
+			header.createCell(0).setCellValue("Name");
+			header.createCell(1).setCellValue("Total");
+			Row data = sheet.createRow(2);
+			data.setHeightInPoints(30);
+			data.createCell(0).setCellValue("Widgets");
+			data.createCell(1).setCellValue(42);
+			data.createCell(2).setCellFormula("B3*2");
+			sheet.addMergedRegion(new CellRangeAddress(0, 1, 0, 0));
+			workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+			workbook.write(out);
+		}
+
+		List<XlsxStreamingReader.SheetInfo> sheets = new ArrayList<>();
+		List<XlsxStreamingReader.StreamedRow> rows = new ArrayList<>();
+		try (XlsxStreamingReader reader = new XlsxStreamingReader(xlsx)) {
+			reader.readSheets((sheetIndex, sheetName) -> sheetIndex < 2, new XlsxStreamingReader.SheetHandler() {
+				@Override
+				public void startSheet(XlsxStreamingReader.SheetInfo sheet) {
+					sheets.add(sheet);
+				}
+
+				@Override
+				public void row(XlsxStreamingReader.StreamedRow row) {
+					rows.add(row);
+				}
+
+				@Override
+				public void endSheet() {
+				}
+			});
+		}
+
+		assertThat(sheets).hasSize(1);
+		XlsxStreamingReader.SheetInfo sheet = sheets.get(0);
+		assertThat(sheet.name()).isEqualTo("Summary");
+		assertThat(sheet.mergedRegions()).containsExactly(new CellRangeAddress(0, 1, 0, 0));
+		assertThat(sheet.columnWidths().widthInPoints(1)).isEqualTo(120f);
+		assertThat(sheet.columnWidths().widthInPoints(0)).isEqualTo(12.5f * 6);
+
+		assertThat(rows).extracting(XlsxStreamingReader.StreamedRow::rowIndex).containsExactly(0, 2);
+		assertThat(rows.get(0).cells()).extracting(XlsxStreamingReader.StreamedCell::text).containsExactly("Name", "Total");
+		assertThat(rows.get(1).heightInPoints()).isEqualTo(30f);
+		assertThat(rows.get(1).cells()).extracting(XlsxStreamingReader.StreamedCell::text).containsExactly("Widgets", "42", "84.0");
+		assertThat(rows.get(1).lastCellNum()).isEqualTo(3);
+	}
+
+}
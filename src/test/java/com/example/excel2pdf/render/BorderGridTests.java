@@ -0,0 +1,115 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.poi.ss.usermodel.BorderStyle.DOUBLE;
+import static org.apache.poi.ss.usermodel.BorderStyle.HAIR;
+import static org.apache.poi.ss.usermodel.BorderStyle.MEDIUM;
+import static org.apache.poi.ss.usermodel.BorderStyle.NONE;
+import static org.apache.poi.ss.usermodel.BorderStyle.THICK;
+import static org.apache.poi.ss.usermodel.BorderStyle.THIN;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BorderGridTests {
+
+	@Test
+	void joinsAdjacentEdgesOfOneStyleIntoSingleSegments() throws IOException {
+		BorderGrid grid = gridOf(3, 3);
+		for (int row = 0; row < 3; row++) {
+			for (int column = 0; column < 3; column++) {
+				grid.addRegion(row, row, column, column, THIN, THIN, THIN, THIN);
+			}
+		}
+
+		// Four horizontal and four vertical lines across the 3x3 block, stroked as one path
+		assertThat(stroke(grid)).containsExactlyInAnyOrder(
+				"1.0 0 100 90 100", "1.0 0 80 90 80", "1.0 0 60 90 60", "1.0 0 40 90 40",
+				"1.0 0 100 0 40", "1.0 30 100 30 40", "1.0 60 100 60 40", "1.0 90 100 90 40");
+	}
+
+	@Test
+	void keepsTheFirstStyleOnASharedEdge() throws IOException {
+		BorderGrid grid = gridOf(1, 2);
+		grid.addRegion(0, 0, 0, 0, NONE, NONE, NONE, THICK);
+		grid.addRegion(0, 0, 1, 1, NONE, NONE, THIN, NONE);
+
+		assertThat(stroke(grid)).containsExactly("2.0 30 100 30 80");
+	}
+
+	@Test
+	void strokesEachStyleAtItsOwnWidth() throws IOException {
+		BorderStyle[] styles = {THIN, HAIR, MEDIUM, THICK, DOUBLE};
+		BorderGrid grid = gridOf(styles.length, 1);
+		for (int row = 0; row < styles.length; row++) {
+			grid.addRegion(row, row, 0, 0, styles[row], NONE, NONE, NONE);
+		}
+
+		// Every style used to be stroked at the same 1pt
+		assertThat(stroke(grid)).containsExactlyInAnyOrder(
+				"1.0 0 100 30 100", "0.5 0 80 30 80", "1.5 0 60 30 60", "2.0 0 40 30 40", "2.0 0 20 30 20");
+	}
+
+	/**
+	 * A grid of 30pt wide, 20pt high cells with its top-left corner at (0, 100).
+	 */
+	private static BorderGrid gridOf(int rows, int columns) {
+		BorderGrid grid = new BorderGrid();
+		for (int row = 0; row <= rows; row++) {
+			grid.setRowBoundary(row, 100 - 20 * row);
+		}
+		for (int column = 0; column <= columns; column++) {
+			grid.setColumnBoundary(column, 30 * column);
+		}
+		return grid;
+	}
+
+	/**
+	 * The stroked segments as {@code width x1 y1 x2 y2}.
+	 */
+	private static List<String> stroke(BorderGrid grid) throws IOException {
+		try (PDDocument document = new PDDocument()) {
+			PDPage page = new PDPage();
+			document.addPage(page);
+			try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+				grid.stroke(contentStream);
+			}
+
+			PDFStreamParser parser = new PDFStreamParser(page);
+			parser.parse();
+			List<String> segments = new ArrayList<>();
+			List<Float> operands = new ArrayList<>();
+			float lineWidth = 0;
+			String start = null;
+			for (Object token : parser.getTokens()) {
+				if (token instanceof COSNumber number) {
+					operands.add(number.floatValue());
+					continue;
+				}
+				switch (((Operator) token).getName()) {
+					case "w" -> lineWidth = operands.get(0);
+					case "m" -> start = point(operands);
+					case "l" -> segments.add(lineWidth + " " + start + " " + point(operands));
+					default -> {
+					}
+				}
+				operands.clear();
+			}
+			return segments;
+		}
+	}
+
+	private static String point(List<Float> operands) {
+		return Math.round(operands.get(0)) + " " + Math.round(operands.get(1));
+	}
+}
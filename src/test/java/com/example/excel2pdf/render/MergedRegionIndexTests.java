@@ -0,0 +1,88 @@
+package com.example.excel2pdf.render;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MergedRegionIndexTests {
+
+	@Test
+	void findsTheRegionCoveringEveryCell() {
+		// Tall, wide and small regions side by side, so bands hold several regions each
+		List<CellRangeAddress> regions = List.of(
+				new CellRangeAddress(0, 999, 0, 0),
+				new CellRangeAddress(2, 3, 1, 19),
+				new CellRangeAddress(4, 4, 2, 3),
+				new CellRangeAddress(4, 10, 5, 5),
+				new CellRangeAddress(10, 10, 6, 8));
+		MergedRegionIndex index = MergedRegionIndex.of(regions);
+
+		for (int row = 0; row < 1002; row++) {
+			for (int column = 0; column < 22; column++) {
+				assertThat(index.find(row, column)).isEqualTo(linearFind(regions, row, column));
+			}
+		}
+		assertThat(index.isAnchor(2, 1)).isTrue();
+		assertThat(index.isAnchor(3, 1)).isFalse();
+		assertThat(index.isMerged(4, 4)).isFalse();
+	}
+
+	@Test
+	void agreesWithALinearScanOnRandomNonOverlappingRegions() {
+		Random random = new Random(42);
+		List<CellRangeAddress> regions = new ArrayList<>();
+		boolean[][] taken = new boolean[300][40];
+		for (int attempt = 0; attempt < 2000; attempt++) {
+			int firstRow = random.nextInt(300);
+			int firstColumn = random.nextInt(40);
+			int lastRow = Math.min(299, firstRow + random.nextInt(6));
+			int lastColumn = Math.min(39, firstColumn + random.nextInt(4));
+			if (isFree(taken, firstRow, lastRow, firstColumn, lastColumn) && (firstRow != lastRow || firstColumn != lastColumn)) {
+				for (int row = firstRow; row <= lastRow; row++) {
+					for (int column = firstColumn; column <= lastColumn; column++) {
+						taken[row][column] = true;
+					}
+				}
+				regions.add(new CellRangeAddress(firstRow, lastRow, firstColumn, lastColumn));
+			}
+		}
+		MergedRegionIndex index = MergedRegionIndex.of(regions);
+
+		for (int row = 0; row < 300; row++) {
+			for (int column = 0; column < 40; column++) {
+				assertThat(index.find(row, column)).isEqualTo(linearFind(regions, row, column));
+			}
+		}
+	}
+
+	@Test
+	void emptyIndexFindsNothing() {
+		assertThat(MergedRegionIndex.EMPTY.find(0, 0)).isNull();
+		assertThat(MergedRegionIndex.EMPTY.size()).isZero();
+	}
+
+	private static boolean isFree(boolean[][] taken, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				if (taken[row][column]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static CellRangeAddress linearFind(List<CellRangeAddress> regions, int row, int column) {
+		for (CellRangeAddress region : regions) {
+			if (region.isInRange(row, column)) {
+				return region;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageCanvasTests {
+
+	@Test
+	void writesFillsTextClippedTextUnderlinesAndBordersInThatOrder() throws IOException {
+		try (PDDocument document = new PDDocument()) {
+			PDType0Font font;
+			try (InputStream in = new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf").getInputStream()) {
+				font = PDType0Font.load(document, in);
+			}
+
+			// Drawn the way a renderer interleaves them, cell by cell
+			PageCanvas canvas = new PageCanvas();
+			BorderGrid borders = canvas.getBorders();
+			borders.setRowBoundary(0, 800);
+			borders.setRowBoundary(1, 780);
+			borders.setColumnBoundary(0, 50);
+			borders.setColumnBoundary(1, 110);
+			borders.addRegion(0, 0, 0, 0, BorderStyle.THIN, BorderStyle.THIN, BorderStyle.THIN, BorderStyle.THIN);
+			canvas.text(font, 10, Color.BLACK, 52, 785, "A1");
+			canvas.fill(Color.YELLOW, 50, 780, 60, 20);
+			canvas.underline(52, 70, 784);
+			canvas.text(font, 10, Color.RED, 112, 785, "B1", new PageCanvas.Clip(110, 780, 20, 20));
+			canvas.fill(Color.YELLOW, 110, 780, 60, 20);
+			canvas.text(font, 10, Color.BLUE, 172, 785, "C1");
+			canvas.fill(Color.GREEN, 170, 780, 60, 20);
+			canvas.text(font, 10, Color.BLACK, 232, 785, "D1");
+
+			PDPage page = new PDPage();
+			document.addPage(page);
+			try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+				canvas.flush(contentStream);
+			}
+			List<String> operators = operators(page);
+
+			int lastFill = operators.lastIndexOf("f");
+			int firstText = operators.indexOf("BT");
+			int clip = operators.indexOf("W");
+			int underline = operators.indexOf("S");
+			int border = operators.lastIndexOf("S");
+			assertThat(lastFill).isLessThan(firstText);
+			assertThat(firstText).isLessThan(clip);
+			assertThat(clip).isLessThan(underline);
+			assertThat(underline).isLessThan(border);
+
+			// One fill per colour change, one text object for every unclipped run and one per clipped cell
+			assertThat(operators).filteredOn("f"::equals).hasSize(2);
+			assertThat(operators).filteredOn("BT"::equals).hasSize(2);
+			List<String> textObject = operators.subList(firstText, operators.indexOf("ET") + 1);
+			assertThat(textObject).filteredOn("Tj"::equals).hasSize(3);
+			assertThat(textObject).filteredOn("Tf"::equals).hasSize(1);
+		}
+	}
+
+	private static List<String> operators(PDPage page) throws IOException {
+		PDFStreamParser parser = new PDFStreamParser(page);
+		parser.parse();
+		List<String> operators = new ArrayList<>();
+		for (Object token : parser.getTokens()) {
+			if (token instanceof Operator operator) {
+				operators.add(operator.getName());
+			}
+		}
+		return operators;
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.excel2pdf.render;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TextLayoutTests {
+
+	// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+	private static final String FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+	@Test
+	void measuresLikePdfBox() throws IOException {
+		try (PDDocument document = new PDDocument()) {
+			PDType0Font font = load(document);
+			TextMeasurer measurer = new TextMeasurer();
+
+			for (String text : new String[]{"Total", "Total", "1,234.50", ""}) {
+				assertThat(measurer.width(font, 11, text)).isCloseTo(font.getStringWidth(text) / 1000 * 11, within(0.001f));
+			}
+		}
+	}
+
+	@Test
+	void wrapsAtSpacesAndDropsLinesBelowTheCell() throws IOException {
+		try (PDDocument document = new PDDocument()) {
+			PDType0Font font = load(document);
+			TextLayout layout = new TextLayout(new TextMeasurer());
+			PageCanvas canvas = new PageCanvas();
+			float cellWidth = 0;
+			for (String line : new String[]{"alpha beta", "gamma delta", "epsilon zeta"}) {
+				cellWidth = Math.max(cellWidth, font.getStringWidth(line) / 1000 * 10 + 1);
+			}
+
+			// Room for two 12pt lines: the third is drawn clipped, the fourth not at all
+			layout.draw(canvas, style(font, true), "alpha beta gamma delta epsilon zeta eta theta", 100, 700, cellWidth, 26);
+
+			assertThat(render(document, canvas).lines().map(String::strip))
+					.containsExactly("alpha beta", "gamma delta", "epsilon zeta");
+		}
+	}
+
+	@Test
+	void keepsUnwrappedTextOnOneLine() throws IOException {
+		try (PDDocument document = new PDDocument()) {
+			PDType0Font font = load(document);
+			TextLayout layout = new TextLayout(new TextMeasurer());
+			PageCanvas canvas = new PageCanvas();
+
+			layout.draw(canvas, style(font, false), "alpha beta gamma\r\ndelta", 100, 700, 20, 40);
+
+			assertThat(render(document, canvas).lines().map(String::strip)).containsExactly("alpha beta gamma", "delta");
+		}
+	}
+
+	private static String render(PDDocument document, PageCanvas canvas) throws IOException {
+		PDPage page = new PDPage(PDRectangle.A4);
+		document.addPage(page);
+		try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+			canvas.flush(contentStream);
+		}
+		// The font subset is only embedded on save
+		ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+		document.save(pdf);
+		try (PDDocument saved = PDDocument.load(pdf.toByteArray())) {
+			return new PDFTextStripper().getText(saved);
+		}
+	}
+
+	private static RenderStyle style(PDType0Font font, boolean wrapText) {
+		return new RenderStyle(font, 10, false, false, null, Color.BLACK, HorizontalAlignment.LEFT, VerticalAlignment.TOP,
+				wrapText, false, BorderStyle.NONE, BorderStyle.NONE, BorderStyle.NONE, BorderStyle.NONE);
+	}
+
+	private static PDType0Font load(PDDocument document) throws IOException {
+		try (InputStream inputStream = TextLayoutTests.class.getResourceAsStream(FONT)) {
+			return PDType0Font.load(document, inputStream);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.config.ConverterProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+class ConversionExecutorTests {
+
+	private static final int MAX_CONCURRENT = 2;
+	private static final int QUEUE_CAPACITY = 3;
+
+	private ConversionExecutor conversionExecutor;
+
+	@BeforeEach
+	void setUp() {
+		ConverterProperties properties = new ConverterProperties();
+		properties.getExecutor().setMaxConcurrent(MAX_CONCURRENT);
+		properties.getExecutor().setQueueCapacity(QUEUE_CAPACITY);
+		conversionExecutor = new ConversionExecutor(properties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		conversionExecutor.destroy();
+	}
+
+	@Test
+	void rejectsReservationsPastTheSlotsAndQueue() {
+		List<ConversionExecutor.Reservation> reservations = new ArrayList<>();
+		for (int i = 0; i < MAX_CONCURRENT + QUEUE_CAPACITY; i++) {
+			reservations.add(conversionExecutor.reserve());
+		}
+		// The controller answers this with 429 and Retry-After
+		assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(conversionExecutor::reserve);
+
+		reservations.get(0).close();
+		conversionExecutor.reserve();
+		assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(conversionExecutor::reserve);
+	}
+
+	@Test
+	void givesASlotBackOnlyOnceHoweverOftenItIsClosed() {
+		for (int i = 0; i < MAX_CONCURRENT + QUEUE_CAPACITY - 1; i++) {
+			conversionExecutor.reserve();
+		}
+		ConversionExecutor.Reservation reservation = conversionExecutor.reserve();
+		reservation.close();
+		reservation.close();
+
+		conversionExecutor.reserve();
+		assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(conversionExecutor::reserve);
+	}
+
+	@Test
+	void givesTheSlotBackWhenTheTaskFails() throws IOException, InterruptedException {
+		for (int i = 0; i < MAX_CONCURRENT + QUEUE_CAPACITY - 1; i++) {
+			conversionExecutor.reserve();
+		}
+		ConversionExecutor.Reservation reservation = conversionExecutor.reserve();
+		assertThatIOException().isThrownBy(() -> reservation.execute(() -> {
+			throw new IOException("Corrupt workbook");
+		})).withMessage("Corrupt workbook");
+		// Closing after execute, as the controller's release hook may, does not free a second slot
+		reservation.close();
+
+		conversionExecutor.execute(() -> {
+		});
+		conversionExecutor.reserve();
+		assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(conversionExecutor::reserve);
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.config.OutputMemory;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.render.FontRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutputMemoryTests {
+
+	@TempDir
+	Path tempDir;
+
+	private ConverterProperties properties;
+	private FontRegistry fontRegistry;
+	private ConversionExecutor conversionExecutor;
+	private ExcelToPDFConverterService converter;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		properties = new ConverterProperties();
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		properties.getFonts().setDefaultFamily("Liberation Sans");
+		properties.getFonts().getFamilies().clear();
+		properties.getFonts().getFamilies().put("Liberation Sans",
+				new ConverterProperties.FontFamily(new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"), null));
+		properties.getOutput().setTempDirectory(Files.createDirectory(tempDir.resolve("scratch")).toFile());
+		fontRegistry = new FontRegistry(properties);
+		fontRegistry.load();
+		conversionExecutor = new ConversionExecutor(properties);
+		converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor, ConversionMetrics.disabled(),
+				new ConversionAdmission(properties));
+	}
+
+	@AfterEach
+	void tearDown() {
+		conversionExecutor.destroy();
+		fontRegistry.close();
+	}
+
+	@Test
+	void buildsTheSameDocumentInAScratchFileAndDeletesIt() throws IOException {
+		File workbook = workbook();
+
+		int inMemory = pageCount(convert(workbook, OutputMemory.MEMORY));
+		int inScratchFile = pageCount(convert(workbook, OutputMemory.TEMP_FILE));
+
+		assertThat(inScratchFile).isEqualTo(inMemory).isGreaterThan(1);
+		assertThat(tempDir.resolve("scratch")).isEmptyDirectory();
+	}
+
+	private byte[] convert(File workbook, OutputMemory outputMemory) throws IOException {
+		ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+		converter.convertExcelToPDF(workbook, pdf, new ConversionOptions(null, outputMemory, null));
+		return pdf.toByteArray();
+	}
+
+	private static int pageCount(byte[] pdf) throws IOException {
+		try (PDDocument document = PDDocument.load(pdf)) {
+			return document.getNumberOfPages();
+		}
+	}
+
+	private File workbook() throws IOException {
+		File file = tempDir.resolve("long.xlsx").toFile();
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet();
+			for (int rowIndex = 0; rowIndex < 300; rowIndex++) {
+				Row row = sheet.createRow(rowIndex);
+				row.createCell(0).setCellValue("Row " + rowIndex);
+				row.createCell(1).setCellValue(rowIndex * 1.5);
+			}
+			workbook.write(out);
+		}
+		return file;
+	}
+}
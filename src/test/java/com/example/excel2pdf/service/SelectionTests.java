@@ -0,0 +1,221 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.reader.WorkbookOutline;
+import com.example.excel2pdf.render.FontRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.assertj.core.api.AbstractThrowableAssert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SelectionTests {
+
+	@TempDir
+	Path tempDir;
+
+	private ConverterProperties properties;
+	private FontRegistry fontRegistry;
+	private ConversionExecutor conversionExecutor;
+	private ExcelToPDFConverterService converter;
+
+	@BeforeEach
+	void setUp() {
+		properties = new ConverterProperties();
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		properties.getFonts().setDefaultFamily("Liberation Sans");
+		properties.getFonts().getFamilies().clear();
+		properties.getFonts().getFamilies().put("Liberation Sans",
+				new ConverterProperties.FontFamily(new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"), null));
+		fontRegistry = new FontRegistry(properties);
+		fontRegistry.load();
+		conversionExecutor = new ConversionExecutor(properties);
+		converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor, ConversionMetrics.disabled(),
+				new ConversionAdmission(properties));
+	}
+
+	@AfterEach
+	void tearDown() {
+		conversionExecutor.destroy();
+		fontRegistry.close();
+	}
+
+	@Test
+	void printsOnlyTheSelectedSheetsAndRanges() throws IOException {
+		File workbook = workbook();
+
+		String summary = text(convert(workbook, Selection.of(List.of("Summary"), List.of("A1:B2"), null, null)));
+		assertThat(summary).contains("Summary A1").doesNotContain("Outside", "Data");
+
+		String named = text(convert(workbook, Selection.of(null, null, List.of("Totals"), null)));
+		assertThat(named).contains("Data 0", "Data 2").doesNotContain("Data 3", "Summary");
+
+		String bySheetPosition = text(convert(workbook, Selection.of(List.of("1"), List.of("Data!A5:A6"), null, null)));
+		assertThat(bySheetPosition).contains("Summary A1", "Outside", "Data 4", "Data 5").doesNotContain("Data 6");
+	}
+
+	@Test
+	void keepsOnlyTheSelectedPages() throws IOException {
+		File workbook = workbook();
+		int allPages = pageCount(convert(workbook, Selection.ALL));
+
+		byte[] pages = convert(workbook, Selection.of(null, null, null, "2-3"));
+		assertThat(allPages).isGreaterThan(3);
+		assertThat(pageCount(pages)).isEqualTo(2);
+		// Page 1 is the summary sheet, so the kept pages are the data sheet's first two
+		assertThat(text(pages)).contains("Data 0").doesNotContain("Summary A1");
+	}
+
+	@Test
+	void streamsOnlyTheSelectedSheetsAndPages() throws IOException {
+		properties.getStreaming().setThreshold(DataSize.ofBytes(0));
+		File workbook = workbook();
+
+		String data = text(convert(workbook, Selection.of(List.of("Data"), List.of("A10:A12"), null, null)));
+		assertThat(data).contains("Data 9", "Data 11").doesNotContain("Data 8", "Data 12", "Summary");
+
+		byte[] pages = convert(workbook, Selection.of(null, null, List.of("Totals"), "1"));
+		assertThat(pageCount(pages)).isEqualTo(1);
+		assertThat(text(pages)).contains("Data 2").doesNotContain("Data 3");
+	}
+
+	@Test
+	void rejectsSheetsAndNamesTheWorkbookDoesNotHaveWhenOpening() throws IOException {
+		File workbook = workbook();
+		for (boolean streaming : new boolean[]{false, true}) {
+			properties.getStreaming().setThreshold(DataSize.ofBytes(streaming ? 0 : Long.MAX_VALUE));
+
+			assertThatOpening(workbook, Selection.of(List.of("Missing"), null, null, null)).hasMessage("No sheet Missing");
+			assertThatOpening(workbook, Selection.of(List.of("3"), null, null, null)).hasMessage("No sheet 3");
+			assertThatOpening(workbook, Selection.of(null, List.of("Missing!A1:B2"), null, null)).hasMessage("No sheet Missing");
+			assertThatOpening(workbook, Selection.of(null, null, List.of("Nowhere"), null)).hasMessage("No defined name Nowhere");
+		}
+	}
+
+	@Test
+	void checksTheSelectionAgainstTheWorkbookOutline() throws IOException {
+		for (File workbook : List.of(workbook(new XSSFWorkbook(), "selection.xlsx"), workbook(new HSSFWorkbook(), "selection.xls"))) {
+			WorkbookOutline outline = WorkbookOutline.read(workbook);
+			assertThat(outline.sheetNames()).containsExactly("Summary", "Data");
+			assertThat(outline.definedNames()).containsEntry("totals", "Data!$A$1:$A$3");
+
+			try (ConversionAdmission.Admission admission = new ConversionAdmission(properties).admit(workbook)) {
+				converter.checkSelection(workbook, new ConversionOptions(null, null, Selection.of(List.of("2"), List.of("Summary!A1:B2"), List.of("Totals"), null)), admission);
+				assertThatExceptionOfType(InvalidSelectionException.class)
+						.isThrownBy(() -> converter.checkSelection(workbook, new ConversionOptions(null, null, Selection.of(List.of("Missing"), null, null, null)), admission))
+						.withMessage("No sheet Missing");
+				assertThatExceptionOfType(InvalidSelectionException.class)
+						.isThrownBy(() -> converter.checkSelection(workbook, new ConversionOptions(null, null, Selection.of(null, null, List.of("Nowhere"), null)), admission))
+						.withMessage("No defined name Nowhere");
+			}
+		}
+	}
+
+	@Test
+	void rejectsSeveralAreasOfASheetOnlyWhenStreaming() throws IOException {
+		File workbook = workbook();
+		Selection twoAreas = Selection.of(null, List.of("Data!A1:A2", "Data!A5:A6"), null, null);
+
+		properties.getStreaming().setThreshold(DataSize.ofBytes(0));
+		assertThatOpening(workbook, twoAreas).hasMessage("Large workbooks print one area per sheet; Data has several");
+		try (ConversionAdmission.Admission admission = new ConversionAdmission(properties).admit(workbook)) {
+			assertThatExceptionOfType(InvalidSelectionException.class)
+					.isThrownBy(() -> converter.checkSelection(workbook, new ConversionOptions(null, null, twoAreas), admission));
+		}
+
+		properties.getStreaming().setThreshold(DataSize.ofBytes(Long.MAX_VALUE));
+		assertThat(text(convert(workbook, twoAreas))).contains("Data 0", "Data 5").doesNotContain("Data 2");
+	}
+
+	@Test
+	void rejectsSelectionsThatLeaveNothingToPrint() throws IOException {
+		File workbook = workbook();
+		for (boolean streaming : new boolean[]{false, true}) {
+			properties.getStreaming().setThreshold(DataSize.ofBytes(streaming ? 0 : Long.MAX_VALUE));
+
+			assertThatExceptionOfType(InvalidSelectionException.class)
+					.isThrownBy(() -> convert(workbook, Selection.of(null, null, null, "100-")))
+					.withMessage("The selection leaves nothing to print");
+		}
+	}
+
+	@Test
+	void rejectsMalformedSelections() {
+		assertThatIllegalArgumentException().isThrownBy(() -> Selection.of(null, List.of("not a range"), null, null));
+		assertThatIllegalArgumentException().isThrownBy(() -> Selection.of(null, null, null, "3-1"));
+		assertThat(Selection.parse(null, null, null, "x")).isEmpty();
+		assertThat(PageRanges.parse("1-3, 7,10-")).hasToString("1-3,7,10-");
+	}
+
+	private AbstractThrowableAssert<?, ? extends Throwable> assertThatOpening(File workbook, Selection selection) {
+		return assertThatThrownBy(() -> converter.open(workbook, new ConversionOptions(null, null, selection)).close())
+				.isInstanceOf(InvalidSelectionException.class);
+	}
+
+	private byte[] convert(File workbook, Selection selection) throws IOException {
+		ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+		converter.convertExcelToPDF(workbook, pdf, new ConversionOptions(null, null, selection));
+		return pdf.toByteArray();
+	}
+
+	private static int pageCount(byte[] pdf) throws IOException {
+		try (PDDocument document = PDDocument.load(pdf)) {
+			return document.getNumberOfPages();
+		}
+	}
+
+	private static String text(byte[] pdf) throws IOException {
+		try (PDDocument document = PDDocument.load(pdf)) {
+			return new PDFTextStripper().getText(document);
+		}
+	}
+
+	private File workbook() throws IOException {
+		return workbook(new XSSFWorkbook(), "selection.xlsx");
+	}
+
+	private File workbook(Workbook workbook, String fileName) throws IOException {
+		File file = tempDir.resolve(fileName).toFile();
+		try (workbook; FileOutputStream out = new FileOutputStream(file)) {
+			Sheet summary = workbook.createSheet("Summary");
+			summary.createRow(0).createCell(0).setCellValue("Summary A1");
+			summary.createRow(19).createCell(7).setCellValue("Outside");
+
+			Sheet data = workbook.createSheet("Data");
+			for (int rowIndex = 0; rowIndex < 200; rowIndex++) {
+				Row row = data.createRow(rowIndex);
+				row.createCell(0).setCellValue("Data " + rowIndex);
+			}
+
+			Name totals = workbook.createName();
+			totals.setNameName("Totals");
+			totals.setRefersToFormula("Data!$A$1:$A$3");
+			workbook.write(out);
+		}
+		return file;
+	}
+}
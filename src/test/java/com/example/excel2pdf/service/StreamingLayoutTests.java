@@ -0,0 +1,182 @@
+package com.example.excel2pdf.service;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.metrics.ConversionMetrics;
+import com.example.excel2pdf.render.FontRegistry;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class StreamingLayoutTests {
+
+	@TempDir
+	Path tempDir;
+
+	private ConverterProperties properties;
+	private FontRegistry fontRegistry;
+	private ConversionExecutor conversionExecutor;
+	private ExcelToPDFConverterService converter;
+
+	@BeforeEach
+	void setUp() {
+		properties = new ConverterProperties();
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		properties.getFonts().setDefaultFamily("Liberation Sans");
+		properties.getFonts().getFamilies().clear();
+		properties.getFonts().getFamilies().put("Liberation Sans",
+				new ConverterProperties.FontFamily(new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"), null));
+		fontRegistry = new FontRegistry(properties);
+		fontRegistry.load();
+		conversionExecutor = new ConversionExecutor(properties);
+		converter = new ExcelToPDFConverterService(properties, fontRegistry, conversionExecutor, ConversionMetrics.disabled(),
+				new ConversionAdmission(properties));
+	}
+
+	@AfterEach
+	void tearDown() {
+		conversionExecutor.destroy();
+		fontRegistry.close();
+	}
+
+	@Test
+	void placesRowsAcrossGapsAndEmptyRowsLikeTheDomPath() throws IOException {
+		File file = tempDir.resolve("gaps.xlsx").toFile();
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet("Gaps");
+			sheet.createRow(0).createCell(0).setCellValue("Row 1");
+			sheet.createRow(5).createCell(0).setCellValue("Row 6");
+			// A <row ht> element without cells
+			sheet.createRow(7).setHeightInPoints(40);
+			sheet.createRow(9).createCell(0).setCellValue("Row 10");
+			// Far enough below to need a page break inside the gap
+			sheet.createRow(70).createCell(0).setCellValue("Row 71");
+			workbook.write(out);
+		}
+
+		List<PlacedText> dom = placedText(convert(file, false));
+		List<PlacedText> streaming = placedText(convert(file, true));
+
+		assertThat(dom).extracting(PlacedText::text).containsExactly("Row 1", "Row 6", "Row 10", "Row 71");
+		assertThat(streaming).extracting(PlacedText::text).containsExactlyElementsOf(dom.stream().map(PlacedText::text).toList());
+		for (int i = 0; i < dom.size(); i++) {
+			assertThat(streaming.get(i).page()).as(dom.get(i).text()).isEqualTo(dom.get(i).page());
+			assertThat(streaming.get(i).y()).as(dom.get(i).text()).isCloseTo(dom.get(i).y(), within(0.01f));
+		}
+		assertThat(dom.get(1).y() - dom.get(0).y()).isCloseTo(5 * 15f, within(0.01f));
+		assertThat(dom.get(2).y() - dom.get(1).y()).isCloseTo(15 + 15 + 40 + 15f, within(0.01f));
+		assertThat(dom.get(3).page()).isEqualTo(2);
+	}
+
+	@Test
+	void clipsAMergedRegionReachingIntoTheSelectedAreaFromTheLeft() throws IOException {
+		File file = tempDir.resolve("merged.xlsx").toFile();
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet("Merged");
+			CellStyle filled = workbook.createCellStyle();
+			filled.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+			filled.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+			Cell anchor = sheet.createRow(0).createCell(0);
+			anchor.setCellValue("Merged");
+			anchor.setCellStyle(filled);
+			sheet.addMergedRegion(CellRangeAddress.valueOf("A1:C1"));
+			sheet.createRow(1).createCell(1).setCellValue("B2");
+			workbook.write(out);
+		}
+		Selection selection = Selection.of(null, List.of("Merged!B1:D2"), null, null);
+
+		List<PlacedText> dom = placedText(convert(file, false, selection));
+		List<PlacedText> streaming = placedText(convert(file, true, selection));
+
+		// The anchor is outside the selection, so only the region's fill shows, from column B to C
+		assertThat(dom).extracting(PlacedText::text).containsExactly("B2");
+		assertThat(streaming).extracting(PlacedText::text).containsExactly("B2");
+		assertThat(fills(convert(file, true, selection))).isEqualTo(fills(convert(file, false, selection))).hasSize(1);
+	}
+
+	private byte[] convert(File workbook, boolean streaming) throws IOException {
+		return convert(workbook, streaming, null);
+	}
+
+	private byte[] convert(File workbook, boolean streaming, Selection selection) throws IOException {
+		properties.getStreaming().setThreshold(DataSize.ofBytes(streaming ? 0 : Long.MAX_VALUE));
+		ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+		converter.convertExcelToPDF(workbook, pdf, new ConversionOptions(null, null, selection));
+		return pdf.toByteArray();
+	}
+
+	private static List<PlacedText> placedText(byte[] pdf) throws IOException {
+		List<PlacedText> placed = new ArrayList<>();
+		try (PDDocument document = PDDocument.load(pdf)) {
+			PDFTextStripper stripper = new PDFTextStripper() {
+				@Override
+				protected void writeString(String text, List<TextPosition> textPositions) {
+					placed.add(new PlacedText(getCurrentPageNo(), text, textPositions.get(0).getYDirAdj()));
+				}
+			};
+			stripper.writeText(document, Writer.nullWriter());
+		}
+		return placed;
+	}
+
+	/**
+	 * The rectangles filled on the first page, as {@code x y width height}.
+	 */
+	private static List<String> fills(byte[] pdf) throws IOException {
+		List<String> fills = new ArrayList<>();
+		try (PDDocument document = PDDocument.load(pdf)) {
+			PDFStreamParser parser = new PDFStreamParser(document.getPage(0));
+			parser.parse();
+			List<Object> operands = new ArrayList<>();
+			List<String> path = new ArrayList<>();
+			for (Object token : parser.getTokens()) {
+				if (!(token instanceof Operator operator)) {
+					operands.add(token);
+					continue;
+				}
+				if (operator.getName().equals("re")) {
+					path.add(operands.stream().map(operand -> String.format("%.2f", ((COSNumber) operand).floatValue())).collect(Collectors.joining(" ")));
+				} else {
+					if (operator.getName().equals("f")) {
+						fills.addAll(path);
+					}
+					path.clear();
+				}
+				operands.clear();
+			}
+		}
+		return fills;
+	}
+
+	private record PlacedText(int page, String text, float y) {
+	}
+}
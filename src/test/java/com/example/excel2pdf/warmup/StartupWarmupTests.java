@@ -0,0 +1,58 @@
+package com.example.excel2pdf.warmup;
+
+import com.example.excel2pdf.admission.ConversionAdmission;
+import com.example.excel2pdf.config.ConverterProperties;
+import com.example.excel2pdf.render.FontRegistry;
+import com.example.excel2pdf.service.ConversionExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupWarmupTests {
+
+	private ConverterProperties properties;
+	private FontRegistry fontRegistry;
+	private ConversionExecutor conversionExecutor;
+	private ConversionAdmission conversionAdmission;
+
+	@BeforeEach
+	void setUp() {
+		properties = new ConverterProperties();
+		// Bundled with PDFBox, so the test does not depend on the fonts configured for the application
+		properties.getFonts().setDefaultFamily("Liberation Sans");
+		properties.getFonts().getFamilies().clear();
+		properties.getFonts().getFamilies().put("Liberation Sans",
+				new ConverterProperties.FontFamily(new ClassPathResource("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"), null));
+		fontRegistry = new FontRegistry(properties);
+		fontRegistry.load();
+		conversionExecutor = new ConversionExecutor(properties);
+		conversionAdmission = new ConversionAdmission(properties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		conversionExecutor.destroy();
+		fontRegistry.close();
+	}
+
+	@Test
+	void convertsBothFormatsEveryIterationAndGivesTheBudgetBack() {
+		long available = conversionAdmission.getAvailable();
+
+		int conversions = new StartupWarmup(properties, fontRegistry, conversionExecutor, conversionAdmission).warmUp(2);
+
+		assertThat(conversions).isEqualTo(4);
+		assertThat(conversionAdmission.getAvailable()).isEqualTo(available);
+	}
+
+	@Test
+	void stopsWithoutFailingWhenAConversionFails() {
+		// Never loaded, so no font family resolves
+		FontRegistry noFonts = new FontRegistry(properties);
+
+		assertThat(new StartupWarmup(properties, noFonts, conversionExecutor, conversionAdmission).warmUp(2)).isZero();
+	}
+}